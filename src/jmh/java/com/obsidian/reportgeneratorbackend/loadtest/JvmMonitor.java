@@ -0,0 +1,117 @@
+package com.obsidian.reportgeneratorbackend.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 描述: 测量期间的 JVM 资源统计：
+ *       - 峰值堆内存：每 SAMPLE_INTERVAL_MS 采样一次已用堆内存，取最大值；
+ *       - GC：通过 GC 通知累计次数、总耗时和单次最长耗时。对 Concurrent 收集器（如 G1 的并发标记）
+ *         只统计次数，耗时不计入停顿时间。
+ *       服务与负载客户端运行在同一个 JVM 中，统计值包含客户端本身的少量开销。
+ */
+final class JvmMonitor implements AutoCloseable {
+
+    private static final long SAMPLE_INTERVAL_MS = 50;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loadtest-heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGc;
+
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final AtomicLong gcCount = new AtomicLong();
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final AtomicLong gcMaxPauseMillis = new AtomicLong();
+
+    JvmMonitor() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+        }
+        sampler.scheduleAtFixedRate(this::sampleHeap, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * 清零所有统计，在每种导出模式的测量开始时调用。
+     */
+    void reset() {
+        peakHeapBytes.set(memory.getHeapMemoryUsage().getUsed());
+        gcCount.set(0);
+        gcPauseMillis.set(0);
+        gcMaxPauseMillis.set(0);
+    }
+
+    long getPeakHeapBytes() {
+        sampleHeap();
+        return peakHeapBytes.get();
+    }
+
+    long getGcCount() {
+        return gcCount.get();
+    }
+
+    long getGcPauseMillis() {
+        return gcPauseMillis.get();
+    }
+
+    long getGcMaxPauseMillis() {
+        return gcMaxPauseMillis.get();
+    }
+
+    long getMaxHeapBytes() {
+        return memory.getHeapMemoryUsage().getMax();
+    }
+
+    private void sampleHeap() {
+        peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        gcCount.incrementAndGet();
+        if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) {
+            return;
+        }
+        long duration = info.getGcInfo().getDuration();
+        gcPauseMillis.addAndGet(duration);
+        gcMaxPauseMillis.accumulateAndGet(duration, Math::max);
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException ignored) {
+                // 已经移除
+            }
+        }
+    }
+}
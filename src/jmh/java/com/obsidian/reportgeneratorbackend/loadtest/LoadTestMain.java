@@ -0,0 +1,300 @@
+package com.obsidian.reportgeneratorbackend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.ReportGeneratorBackendApplication;
+import com.obsidian.reportgeneratorbackend.dto.TemplateUploadResponse;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.service.BenchmarkFixtures;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 描述: REST 接口的负载 / 浸泡测试。在本地以随机端口启动应用，用合成的模板和记录（BenchmarkFixtures）
+ *       以固定并发依次压测每种导出模式的 /api/reports/generate，记录延迟分位数、吞吐量、峰值堆内存和 GC 停顿，
+ *       结果以 JSON 写入报告文件。指定 baseline 时与上一次的报告对比，出现回退则以退出码 1 结束，
+ *       可以直接作为构建的检查步骤，不依赖任何外部服务。
+ *       运行: mvn -Pbenchmark test-compile exec:exec@load-test -Dloadtest.args="concurrency=8 duration=60s"
+ */
+public final class LoadTestMain {
+
+    private static final int MAX_REPORTED_ERRORS = 5;
+
+    private final LoadTestOptions options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final AtomicInteger reportedErrors = new AtomicInteger();
+
+    private ObjectMapper objectMapper;
+    private URI baseUri;
+
+    private LoadTestMain(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        int exitCode = new LoadTestMain(options).run();
+        System.exit(exitCode);
+    }
+
+    private int run() throws Exception {
+        List<String> applicationArgs = new ArrayList<>();
+        applicationArgs.add("--server.port=0");
+        applicationArgs.addAll(options.getApplicationArgs());
+
+        try (ConfigurableApplicationContext context =
+                     new SpringApplicationBuilder(ReportGeneratorBackendApplication.class)
+                             .run(applicationArgs.toArray(new String[0]));
+             JvmMonitor monitor = new JvmMonitor()) {
+            objectMapper = context.getBean(ObjectMapper.class);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUri = URI.create("http://localhost:" + port + "/api/reports/");
+
+            LoadTestReport report = newReport(monitor);
+            String templateId = uploadTemplate(BenchmarkFixtures.template(options.getComplexity()));
+            for (ExportMode mode : options.getModes()) {
+                byte[] body = objectMapper.writeValueAsBytes(BenchmarkFixtures.request(mode, options.getRecordCount(),
+                        options.getItemCount(), options.getMappingSize(), options.getRecordsPerSn()));
+                System.out.printf("%s: 预热 %s，测量 %s，并发 %d%n", mode, options.getWarmup(), options.getDuration(),
+                        options.getConcurrency());
+
+                drive(templateId, body, options.getWarmup());
+                monitor.reset();
+                LoadTestReport.ModeResult result = measure(templateId, body, monitor);
+                report.getModes().put(mode.name(), result);
+                printResult(mode.name(), result);
+            }
+
+            int exitCode = 0;
+            if (options.getBaseline() != null) {
+                LoadTestReport baseline = objectMapper.readValue(options.getBaseline().toFile(), LoadTestReport.class);
+                List<String> regressions = report.compareWith(baseline, options.getTolerance());
+                if (regressions.isEmpty()) {
+                    System.out.println("与基线 " + options.getBaseline() + " 相比没有超出容差的回退。");
+                } else {
+                    System.out.println("与基线 " + options.getBaseline() + " 相比出现回退：");
+                    regressions.forEach(regression -> System.out.println("  " + regression));
+                    exitCode = 1;
+                }
+            }
+
+            if (options.getOutput().getParent() != null) {
+                Files.createDirectories(options.getOutput().getParent());
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(options.getOutput().toFile(), report);
+            System.out.println("结果已写入 " + options.getOutput().toAbsolutePath());
+            return exitCode;
+        }
+    }
+
+    private LoadTestReport newReport(JvmMonitor monitor) {
+        LoadTestReport report = new LoadTestReport();
+        report.setTimestamp(Instant.now().toString());
+        report.getOptions().put("concurrency", options.getConcurrency());
+        report.getOptions().put("warmup", options.getWarmup().toString());
+        report.getOptions().put("duration", options.getDuration().toString());
+        report.getOptions().put("recordCount", options.getRecordCount());
+        report.getOptions().put("itemCount", options.getItemCount());
+        report.getOptions().put("mappingSize", options.getMappingSize());
+        report.getOptions().put("recordsPerSn", options.getRecordsPerSn());
+        report.getOptions().put("complexity", options.getComplexity().name());
+        report.getOptions().put("applicationArgs", options.getApplicationArgs());
+        report.getEnvironment().setJavaVersion(System.getProperty("java.version"));
+        report.getEnvironment().setAvailableProcessors(Runtime.getRuntime().availableProcessors());
+        report.getEnvironment().setMaxHeapBytes(monitor.getMaxHeapBytes());
+        return report;
+    }
+
+    /*
+     * 模板只上传一次，之后的请求都按 templateId 引用（与生产中的推荐用法一致）。
+     */
+    private String uploadTemplate(byte[] template) throws IOException, InterruptedException {
+        Multipart multipart = new Multipart();
+        multipart.part("template", "template.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", template);
+        HttpResponse<byte[]> response = client.send(multipart.post(baseUri.resolve("templates")),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("模板上传失败: HTTP " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), TemplateUploadResponse.class).getTemplateId();
+    }
+
+    /*
+     * 以配置的并发持续发送请求，直到 length 结束，返回各线程的记录。
+     */
+    private List<Recorder> drive(String templateId, byte[] requestJson, Duration length)
+            throws InterruptedException, ExecutionException {
+        Multipart multipart = new Multipart();
+        multipart.part("request", "request.json", "application/json", requestJson);
+        // HttpRequest 不可变，所有客户端线程重复发送同一个请求
+        HttpRequest request = multipart.post(baseUri.resolve("generate?templateId=" + templateId));
+        long deadline = System.nanoTime() + length.toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(options.getConcurrency());
+        try {
+            List<Future<Recorder>> futures = new ArrayList<>();
+            for (int i = 0; i < options.getConcurrency(); i++) {
+                futures.add(clients.submit(() -> {
+                    Recorder recorder = new Recorder();
+                    while (System.nanoTime() < deadline) {
+                        send(request, recorder);
+                    }
+                    return recorder;
+                }));
+            }
+            List<Recorder> recorders = new ArrayList<>(futures.size());
+            for (Future<Recorder> future : futures) {
+                recorders.add(future.get());
+            }
+            return recorders;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private LoadTestReport.ModeResult measure(String templateId, byte[] requestJson, JvmMonitor monitor)
+            throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        List<Recorder> recorders = drive(templateId, requestJson, options.getDuration());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LoadTestReport.ModeResult result = new LoadTestReport.ModeResult();
+        int latencyCount = 0;
+        long[] latencies = new long[0];
+        long outputBytes = 0;
+        for (Recorder recorder : recorders) {
+            latencies = Arrays.copyOf(latencies, latencyCount + recorder.count);
+            System.arraycopy(recorder.latencies, 0, latencies, latencyCount, recorder.count);
+            latencyCount += recorder.count;
+            result.setSucceeded(result.getSucceeded() + recorder.count);
+            result.setRejected(result.getRejected() + recorder.rejected);
+            result.setFailed(result.getFailed() + recorder.failed);
+            outputBytes += recorder.outputBytes;
+        }
+        result.setRequests(result.getSucceeded() + result.getRejected() + result.getFailed());
+        result.setDurationSeconds(seconds);
+        result.setThroughputPerSecond(result.getSucceeded() / seconds);
+        result.setOutputBytesPerSecond(outputBytes / seconds);
+        result.setLatencyMillis(LoadTestReport.Latency.of(latencies, latencyCount));
+        result.setPeakHeapBytes(monitor.getPeakHeapBytes());
+        result.setGcCount(monitor.getGcCount());
+        result.setGcPauseMillis(monitor.getGcPauseMillis());
+        result.setGcMaxPauseMillis(monitor.getGcMaxPauseMillis());
+        return result;
+    }
+
+    private void send(HttpRequest request, Recorder recorder) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long bytes;
+            try (InputStream body = response.body()) {
+                // 读完整个响应，延迟包含报告生成和传输的全部时间
+                bytes = body.transferTo(OutputStream.nullOutputStream());
+            }
+            if (response.statusCode() == 200) {
+                recorder.succeeded(System.nanoTime() - start, bytes);
+            } else if (response.statusCode() == 429) {
+                recorder.rejected++;
+            } else {
+                recorder.failed++;
+                reportError("HTTP " + response.statusCode());
+            }
+        } catch (IOException e) {
+            recorder.failed++;
+            reportError(e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportError(String message) {
+        if (reportedErrors.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+            System.err.println("请求失败: " + message);
+        }
+    }
+
+    private static void printResult(String mode, LoadTestReport.ModeResult result) {
+        LoadTestReport.Latency latency = result.getLatencyMillis();
+        System.out.printf("%s: %d 个请求（成功 %d，拒绝 %d，失败 %d），%.2f 次/秒，"
+                        + "延迟 p50 %.1f ms / p90 %.1f ms / p99 %.1f ms / max %.1f ms，"
+                        + "峰值堆内存 %d MB，GC %d 次共 %d ms（最长 %d ms）%n",
+                mode, result.getRequests(), result.getSucceeded(), result.getRejected(), result.getFailed(),
+                result.getThroughputPerSecond(), latency.getP50(), latency.getP90(), latency.getP99(), latency.getMax(),
+                result.getPeakHeapBytes() >> 20, result.getGcCount(), result.getGcPauseMillis(),
+                result.getGcMaxPauseMillis());
+    }
+
+    /*
+     * 描述: 单个客户端线程的记录，只由该线程写入。
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long rejected;
+        private long failed;
+        private long outputBytes;
+
+        void succeeded(long nanos, long bytes) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            outputBytes += bytes;
+        }
+    }
+
+    /*
+     * 描述: multipart/form-data 请求体的编码。
+     */
+    private static final class Multipart {
+        private final String boundary = "----loadtest" + UUID.randomUUID().toString().replace("-", "");
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        void part(String name, String filename, String contentType, byte[] content) {
+            String header = "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n\r\n";
+            body.writeBytes(header.getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(content);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        HttpRequest post(URI uri) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(body.size() + boundary.length() + 8);
+            encoded.writeBytes(body.toByteArray());
+            encoded.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            return HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMinutes(10))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(encoded.toByteArray()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.obsidian.reportgeneratorbackend.loadtest;
+
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.service.BenchmarkFixtures;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * 描述: 负载测试的参数，命令行格式为 key=value（后出现的覆盖先出现的）；以 "--" 开头的参数原样传给 Spring Boot，
+ *       用于覆盖应用配置，例如 --report.zip.patch-enabled=false。
+ *       时长支持 "30s"、"5m"、"1h" 或 ISO-8601 格式（PT30S）。
+ */
+@Data
+public class LoadTestOptions {
+
+    /*
+     * 依次压测的导出模式。
+     */
+    private List<ExportMode> modes = new ArrayList<>(Arrays.asList(ExportMode.values()));
+
+    /*
+     * 并发的客户端线程数。
+     */
+    private int concurrency = 4;
+
+    /*
+     * 每种导出模式的预热时长，预热期间的请求不计入结果。
+     */
+    private Duration warmup = Duration.ofSeconds(10);
+
+    /*
+     * 每种导出模式的测量时长；浸泡测试 (soak) 时设置为数小时。
+     */
+    private Duration duration = Duration.ofSeconds(30);
+
+    private int recordCount = 200;
+    private int itemCount = 50;
+    private int mappingSize = 20;
+    private int recordsPerSn = 1;
+    private BenchmarkFixtures.TemplateComplexity complexity = BenchmarkFixtures.TemplateComplexity.SIMPLE;
+
+    /*
+     * 结果报告（JSON）的路径。
+     */
+    private Path output = Paths.get("target", "loadtest-result.json");
+
+    /*
+     * 上一次构建的结果报告；指定时与之对比，并在出现回退时以非 0 退出码结束。
+     */
+    private Path baseline;
+
+    /*
+     * 对比时允许的相对偏差，例如 0.10 表示 p99 延迟或峰值堆内存增加超过 10%、吞吐量下降超过 10% 视为回退。
+     */
+    private double tolerance = 0.10;
+
+    /*
+     * 传给 Spring Boot 的参数。
+     */
+    private List<String> applicationArgs = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (arg.startsWith("--")) {
+                options.applicationArgs.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("负载测试参数格式应为 key=value: " + arg);
+            }
+            options.set(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        if (options.concurrency < 1) {
+            throw new IllegalArgumentException("concurrency 必须大于 0。");
+        }
+        return options;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "modes":
+                modes = new ArrayList<>();
+                for (String mode : value.split(",")) {
+                    modes.add(ExportMode.valueOf(mode.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+                }
+                break;
+            case "concurrency":
+                concurrency = Integer.parseInt(value);
+                break;
+            case "warmup":
+                warmup = parseDuration(value);
+                break;
+            case "duration":
+                duration = parseDuration(value);
+                break;
+            case "recordCount":
+                recordCount = Integer.parseInt(value);
+                break;
+            case "itemCount":
+                itemCount = Integer.parseInt(value);
+                break;
+            case "mappingSize":
+                mappingSize = Integer.parseInt(value);
+                break;
+            case "recordsPerSn":
+                recordsPerSn = Integer.parseInt(value);
+                break;
+            case "complexity":
+                complexity = BenchmarkFixtures.TemplateComplexity.valueOf(value.toUpperCase(Locale.ROOT));
+                break;
+            case "output":
+                output = Paths.get(value);
+                break;
+            case "baseline":
+                baseline = value.isEmpty() ? null : Paths.get(value);
+                break;
+            case "tolerance":
+                tolerance = Double.parseDouble(value);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的负载测试参数: " + key);
+        }
+    }
+
+    static Duration parseDuration(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.startsWith("pt")) {
+            return Duration.parse(text.toUpperCase(Locale.ROOT));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        switch (text.charAt(text.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                throw new IllegalArgumentException("无法解析的时长: " + value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.obsidian.reportgeneratorbackend.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 描述: 负载测试的结果报告，以 JSON 写出，供下一次构建作为基线对比（见 compareWith）。
+ */
+@Data
+public class LoadTestReport {
+
+    private String timestamp;
+    private Map<String, Object> options = new LinkedHashMap<>();
+    private Environment environment = new Environment();
+
+    /*
+     * 导出模式 -> 该模式的测量结果。
+     */
+    private Map<String, ModeResult> modes = new LinkedHashMap<>();
+
+    /*
+     * 与基线对比时发现的回退，未对比或没有回退时为空。
+     */
+    private List<String> regressions = new ArrayList<>();
+
+    /*
+     * 描述: 运行环境，对比不同机器上的结果时用于核对。
+     */
+    @Data
+    public static class Environment {
+        private String javaVersion;
+        private int availableProcessors;
+        private long maxHeapBytes;
+    }
+
+    /*
+     * 描述: 一种导出模式在测量时长内的结果。
+     */
+    @Data
+    public static class ModeResult {
+        private long requests;
+        private long succeeded;
+
+        /*
+         * 被准入控制拒绝（429）的请求数。
+         */
+        private long rejected;
+        private long failed;
+        private double durationSeconds;
+        private double throughputPerSecond;
+        private double outputBytesPerSecond;
+        private Latency latencyMillis = new Latency();
+        private long peakHeapBytes;
+        private long gcCount;
+        private long gcPauseMillis;
+        private long gcMaxPauseMillis;
+    }
+
+    /*
+     * 描述: 成功请求的延迟分布（毫秒）。
+     */
+    @Data
+    public static class Latency {
+        private double mean;
+        private double p50;
+        private double p90;
+        private double p99;
+        private double max;
+
+        static Latency of(long[] nanos, int count) {
+            Latency latency = new Latency();
+            if (count == 0) {
+                return latency;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long value : sorted) {
+                total += value;
+            }
+            latency.mean = millis(total / count);
+            latency.p50 = millis(percentile(sorted, 0.50));
+            latency.p90 = millis(percentile(sorted, 0.90));
+            latency.p99 = millis(percentile(sorted, 0.99));
+            latency.max = millis(sorted[count - 1]);
+            return latency;
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+
+    /*
+     * 与基线报告逐个导出模式对比，把超出容差的指标记入 regressions 并返回。
+     * p99 延迟和峰值堆内存增加、吞吐量下降超过 tolerance 视为回退；新出现的失败请求也视为回退。
+     */
+    public List<String> compareWith(LoadTestReport baseline, double tolerance) {
+        regressions.clear();
+        for (Map.Entry<String, ModeResult> entry : modes.entrySet()) {
+            ModeResult before = baseline.getModes().get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            ModeResult after = entry.getValue();
+            String mode = entry.getKey();
+            if (after.getLatencyMillis().getP99() > before.getLatencyMillis().getP99() * (1 + tolerance)) {
+                regressions.add(String.format("%s: p99 延迟 %.1f ms -> %.1f ms", mode,
+                        before.getLatencyMillis().getP99(), after.getLatencyMillis().getP99()));
+            }
+            if (after.getThroughputPerSecond() < before.getThroughputPerSecond() * (1 - tolerance)) {
+                regressions.add(String.format("%s: 吞吐量 %.2f/s -> %.2f/s", mode,
+                        before.getThroughputPerSecond(), after.getThroughputPerSecond()));
+            }
+            if (after.getPeakHeapBytes() > before.getPeakHeapBytes() * (1 + tolerance)) {
+                regressions.add(String.format("%s: 峰值堆内存 %d MB -> %d MB", mode,
+                        before.getPeakHeapBytes() >> 20, after.getPeakHeapBytes() >> 20));
+            }
+            if (after.getFailed() > 0 && before.getFailed() == 0) {
+                regressions.add(String.format("%s: 出现 %d 个失败请求", mode, after.getFailed()));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,214 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/BenchmarkFixtures.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SourceRule;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 描述: 基准测试和负载测试（见 loadtest 包）使用的合成模板和请求数据。
+ *       所有数据都是确定性生成的，同一组参数在不同构建之间得到完全相同的输入。
+ */
+public final class BenchmarkFixtures {
+
+    /*
+     * 1x1 像素的 PNG，用于给复杂模板添加图片。
+     */
+    private static final byte[] PNG = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==");
+
+    private BenchmarkFixtures() {
+    }
+
+    /*
+     * 描述: 模板复杂度：行列数、样式数、合并区域数、图片数。
+     */
+    public enum TemplateComplexity {
+        SIMPLE(15, 4, 2, 1, 0),
+        COMPLEX(120, 16, 24, 20, 3);
+
+        final int rows;
+        final int cols;
+        final int styles;
+        final int mergedRegions;
+        final int pictures;
+
+        TemplateComplexity(int rows, int cols, int styles, int mergedRegions, int pictures) {
+            this.rows = rows;
+            this.cols = cols;
+            this.styles = styles;
+            this.mergedRegions = mergedRegions;
+            this.pictures = pictures;
+        }
+    }
+
+    public static byte[] template(TemplateComplexity complexity) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet("Template");
+
+            List<CellStyle> styles = new ArrayList<>(complexity.styles);
+            short[] colors = {IndexedColors.YELLOW.getIndex(), IndexedColors.LIGHT_GREEN.getIndex(),
+                    IndexedColors.LIGHT_BLUE.getIndex(), IndexedColors.GREY_25_PERCENT.getIndex()};
+            for (int i = 0; i < complexity.styles; i++) {
+                CellStyle style = workbook.createCellStyle();
+                Font font = workbook.createFont();
+                font.setBold(i % 2 == 0);
+                font.setFontHeightInPoints((short) (10 + i % 4));
+                style.setFont(font);
+                style.setFillForegroundColor(colors[i % colors.length]);
+                style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+                style.setBorderBottom(BorderStyle.THIN);
+                style.setDataFormat(workbook.createDataFormat().getFormat(i % 3 == 0 ? "0.00" : "General"));
+                styles.add(style);
+            }
+
+            for (int r = 0; r < complexity.rows; r++) {
+                Row row = sheet.createRow(r);
+                row.setHeightInPoints(15 + r % 5);
+                for (int c = 0; c < complexity.cols; c++) {
+                    Cell cell = row.createCell(c);
+                    if (c == 0) {
+                        cell.setCellValue("测试项 " + r);
+                    } else if ((r + c) % 7 == 0) {
+                        cell.setCellValue(r * 0.5 + c);
+                    }
+                    cell.setCellStyle(styles.get((r + c) % styles.size()));
+                }
+            }
+            for (int c = 0; c < complexity.cols; c++) {
+                sheet.setColumnWidth(c, 3000 + c * 100);
+            }
+            for (int i = 0; i < complexity.mergedRegions; i++) {
+                int row = i * 3 % complexity.rows;
+                sheet.addMergedRegion(new CellRangeAddress(row, row, complexity.cols, complexity.cols + 2 + i % 2));
+            }
+            if (complexity.pictures > 0) {
+                int pictureIndex = workbook.addPicture(PNG, Workbook.PICTURE_TYPE_PNG);
+                XSSFDrawing drawing = sheet.createDrawingPatriarch();
+                for (int i = 0; i < complexity.pictures; i++) {
+                    int col = complexity.cols + 4 + i * 3;
+                    drawing.createPicture(new XSSFClientAnchor(0, 0, 0, 0, col, 0, col + 2, 3), pictureIndex);
+                }
+            }
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /*
+     * 构建合成请求。
+     * @param recordCount  日志记录数
+     * @param itemCount    每条记录的测试项数
+     * @param mappingSize  映射规则（目标单元格）数，每 5 条规则中有 1 条是双源规则
+     * @param recordsPerSn 每个 SN 对应的记录数，决定 ZIP / 多工作表模式的分组数
+     */
+    public static ReportGenerationRequest request(ExportMode exportMode, int recordCount, int itemCount,
+                                                  int mappingSize, int recordsPerSn) {
+        ReportGenerationRequest request = new ReportGenerationRequest();
+        request.setExportMode(exportMode);
+        request.setMappingRules(mappingRules(mappingSize, itemCount));
+        request.setLogData(records(recordCount, itemCount, recordsPerSn));
+        return request;
+    }
+
+    static Map<String, SingleCellMapping> mappingRules(int mappingSize, int itemCount) {
+        Map<String, SingleCellMapping> rules = new LinkedHashMap<>();
+        rules.put("0_1", mapping(source(MappingPlan.SN_MAPPING_KEY, null, null)));
+        for (int i = 0; i < mappingSize - 1; i++) {
+            SourceRule first = source(itemName(i % itemCount), i % 2 == 0 ? 2 : null, i % 3 == 0 ? "V" : null);
+            SingleCellMapping mapping = i % 5 == 4
+                    ? mapping(first, source(itemName((i + 1) % itemCount), 1, "mA"))
+                    : mapping(first);
+            rules.put((i + 1) + "_1", mapping);
+        }
+        return rules;
+    }
+
+    static List<LogRecord> records(int recordCount, int itemCount, int recordsPerSn) {
+        List<LogRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            LogRecord record = new LogRecord();
+            record.setSn(String.format("SN%08d", i / Math.max(1, recordsPerSn)));
+            List<DetailedItem> items = new ArrayList<>(itemCount);
+            for (int k = 0; k < itemCount; k++) {
+                DetailedItem item = new DetailedItem();
+                item.setItemName(itemName(k));
+                // 大部分是数值，少量是 PASS/FAIL 之类的文本
+                item.setActualValue(k % 10 == 9 ? (i % 2 == 0 ? "PASS" : "FAIL")
+                        : String.valueOf(3.3 + (i * 31 + k * 17) % 1000 / 1000.0));
+                items.add(item);
+            }
+            // 打乱测试项顺序，避免映射查找总是命中前几个元素
+            Collections.rotate(items, i % Math.max(1, itemCount));
+            record.setDetailedItems(items);
+            records.add(record);
+        }
+        return records;
+    }
+
+    static String itemName(int index) {
+        return "测试项_" + index;
+    }
+
+    private static SingleCellMapping mapping(SourceRule... sources) {
+        SingleCellMapping mapping = new SingleCellMapping();
+        mapping.setSources(List.of(sources));
+        return mapping;
+    }
+
+    private static SourceRule source(String sourceKey, Integer decimals, String unit) {
+        SourceRule rule = new SourceRule();
+        rule.setSourceKey(sourceKey);
+        rule.setDecimals(decimals);
+        rule.setUnit(unit);
+        return rule;
+    }
+
+    /*
+     * 只计数不保存的输出流，避免把结果缓冲到内存中影响分配统计。
+     */
+    static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
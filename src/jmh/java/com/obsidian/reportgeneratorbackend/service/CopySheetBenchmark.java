@@ -0,0 +1,85 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/CopySheetBenchmark.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 描述: 多工作表模式中为每个 SN 生成模板工作表的两种方式：
+ *       - copySheetContent：把模板快照逐单元格"盖章"到一个新工作表上，
+ *         样式映射和图片登记在同一输出工作簿内复用（与实际导出一致）；
+ *       - cloneTemplateSheet：TemplateSheetCloner 在包级别克隆模板工作表。
+ *       每次调用结束后删除新工作表，使工作簿大小保持稳定。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopySheetBenchmark {
+
+    @Param({"SIMPLE", "COMPLEX"})
+    BenchmarkFixtures.TemplateComplexity complexity;
+
+    private ReportGenerationService service;
+    private TemplateSnapshot template;
+    private XSSFWorkbook outputWorkbook;
+    private TemplateStyleMapper styleMapper;
+    private SharedPictureRegistry pictures;
+    private XSSFWorkbook clonedWorkbook;
+    private TemplateSheetCloner cloner;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new ReportGenerationService(new ReportProperties(), null, ReportMetrics.standalone());
+        template = TemplateSnapshot.parse(BenchmarkFixtures.template(complexity));
+    }
+
+    @Setup(Level.Iteration)
+    public void newWorkbook() throws IOException {
+        outputWorkbook = new XSSFWorkbook();
+        styleMapper = new TemplateStyleMapper(template.getStyles(), outputWorkbook);
+        pictures = new SharedPictureRegistry(outputWorkbook);
+        clonedWorkbook = PoiHelper.createWorkbookFromTemplate(template.getBytes());
+        cloner = new TemplateSheetCloner(clonedWorkbook);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWorkbook() throws IOException {
+        outputWorkbook.close();
+        clonedWorkbook.close();
+    }
+
+    @Benchmark
+    public Sheet copySheetContent() {
+        Sheet sheet = outputWorkbook.createSheet("SN");
+        service.copySheetContent(template.getFirstSheet(), sheet, styleMapper, pictures);
+        outputWorkbook.removeSheetAt(outputWorkbook.getSheetIndex(sheet));
+        return sheet;
+    }
+
+    @Benchmark
+    public Sheet cloneTemplateSheet() {
+        Sheet sheet = cloner.cloneFirstSheet("SN");
+        clonedWorkbook.removeSheetAt(clonedWorkbook.getSheetIndex(sheet));
+        return sheet;
+    }
+}
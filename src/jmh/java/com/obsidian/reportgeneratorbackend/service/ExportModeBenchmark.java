@@ -0,0 +1,91 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/ExportModeBenchmark.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportExecutorConfig;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 描述: 三种导出模式的端到端生成（映射编译、分组、填充、序列化），输出写入只计数的流。
+ *       使用默认的 ReportProperties，与未做额外配置的生产实例一致。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExportModeBenchmark {
+
+    @Param({"SINGLE_SHEET", "MULTI_SHEET", "ZIP_FILES"})
+    ExportMode exportMode;
+
+    @Param({"50", "500"})
+    int recordCount;
+
+    @Param({"50"})
+    int itemCount;
+
+    @Param({"20"})
+    int mappingSize;
+
+    @Param({"SIMPLE", "COMPLEX"})
+    BenchmarkFixtures.TemplateComplexity complexity;
+
+    /*
+     * 只影响 ZIP_FILES：是否使用 TemplateSheetPatcher。
+     */
+    @Param({"true", "false"})
+    boolean zipPatch;
+
+    /*
+     * 只影响 MULTI_SHEET：是否在工作线程池中并行渲染各工作表的单元格值。
+     */
+    @Param({"true", "false"})
+    boolean parallelFill;
+
+    private ExecutorService workerExecutor;
+    private ReportGenerationService service;
+    private TemplateSnapshot template;
+    private ReportGenerationRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        ReportProperties properties = new ReportProperties();
+        properties.getZip().setPatchEnabled(zipPatch);
+        properties.getMultiSheet().setParallelFillEnabled(parallelFill);
+        workerExecutor = new ReportExecutorConfig().reportWorkerExecutor(properties);
+        service = new ReportGenerationService(properties, workerExecutor, ReportMetrics.standalone());
+        template = TemplateSnapshot.parse(BenchmarkFixtures.template(complexity));
+        request = BenchmarkFixtures.request(exportMode, recordCount, itemCount, mappingSize, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        workerExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public long generateReport() throws IOException {
+        BenchmarkFixtures.CountingOutputStream out = new BenchmarkFixtures.CountingOutputStream();
+        service.generateReport(request, template, out);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,77 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/FillDataBenchmark.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 描述: fillDataForRecord：把一条记录的已解析源值渲染并写入工作表。
+ *       recordIndex 在 0..255 之间循环，前 256 次调用新建单元格，之后覆盖已有单元格，
+ *       与单表模式（每条记录一列）和 ZIP / 多工作表模式（写入模板中已有的单元格）都接近。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FillDataBenchmark {
+
+    @Param({"50"})
+    int itemCount;
+
+    @Param({"10", "100"})
+    int mappingSize;
+
+    private ReportGenerationService service;
+    private MappingPlan plan;
+    private String[] slotValues;
+    private XSSFWorkbook workbook;
+    private Sheet sheet;
+    private MappedCellWriter cells;
+    private int recordIndex;
+
+    @Setup
+    public void setUp() {
+        // fillDataForRecord 不使用线程池
+        service = new ReportGenerationService(new ReportProperties(), null, ReportMetrics.standalone());
+        plan = MappingPlan.compile(BenchmarkFixtures.mappingRules(mappingSize, itemCount));
+        slotValues = plan.resolve(BenchmarkFixtures.records(1, itemCount, 1).get(0));
+    }
+
+    @Setup(Level.Iteration)
+    public void newWorkbook() {
+        workbook = new XSSFWorkbook();
+        sheet = workbook.createSheet("Report");
+        cells = service.newCellWriter(workbook, plan);
+        recordIndex = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWorkbook() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public Sheet fillDataForRecord() {
+        service.fillDataForRecord(sheet, cells, slotValues, recordIndex++ & 255);
+        return sheet;
+    }
+}
@@ -0,0 +1,53 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/FormatValueBenchmark.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 描述: PoiHelper.formatValue 的典型输入：需要舍入的小数、整数、不需要舍入的值和非数值文本。
+ *       输入放在 @State 字段中，避免被 JIT 当作常量折叠。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatValueBenchmark {
+
+    @Param({"3.14159", "12", "-0.005", "1.5E3", "PASS"})
+    String actualValue;
+
+    private Integer decimals = 2;
+    private String unit = "V";
+    private final ValueFormatter formatter = new ValueFormatter(2, "V");
+
+    @Benchmark
+    public String withDecimalsAndUnit() {
+        return PoiHelper.formatValue(actualValue, decimals, unit);
+    }
+
+    /*
+     * 映射计划中的用法：每个源一个带缓存的 ValueFormatter。
+     */
+    @Benchmark
+    public String memoized() {
+        return formatter.format(actualValue);
+    }
+
+    @Benchmark
+    public String plain() {
+        return PoiHelper.formatValue(actualValue, null, null);
+    }
+}
@@ -0,0 +1,121 @@
+// src/jmh/java/com/obsidian/reportgeneratorbackend/service/MappingPlanBenchmark.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 描述: 源键查找（原 findValueForKey，现由 MappingPlan 的槽位解析承担）和单元格文本渲染，
+ *       以及从请求 JSON 流式读取记录的两种方式（绑定 LogRecord 后解析 / 直接从 JSON 记号解析）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingPlanBenchmark {
+
+    @Param({"20", "200"})
+    int itemCount;
+
+    @Param({"10", "100"})
+    int mappingSize;
+
+    private Map<String, SingleCellMapping> mappingRules;
+    private MappingPlan plan;
+    private List<LogRecord> records;
+    private String[] slotValues;
+    private int next;
+
+    private ObjectMapper objectMapper;
+    private byte[] requestJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mappingRules = BenchmarkFixtures.mappingRules(mappingSize, itemCount);
+        plan = MappingPlan.compile(mappingRules);
+        records = BenchmarkFixtures.records(64, itemCount, 1);
+        slotValues = plan.resolve(records.get(0));
+
+        objectMapper = new ObjectMapper();
+        ReportGenerationRequest request = new ReportGenerationRequest();
+        request.setExportMode(ExportMode.ZIP_FILES);
+        request.setMappingRules(mappingRules);
+        request.setLogData(records);
+        requestJson = objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public MappingPlan compile() {
+        return MappingPlan.compile(mappingRules);
+    }
+
+    /*
+     * 一条记录的所有源值：对 detailedItems 只遍历一次。
+     */
+    @Benchmark
+    public String[] resolveRecord() {
+        LogRecord record = records.get(next++ & 63);
+        return plan.resolve(record);
+    }
+
+    /*
+     * 从请求 JSON 读取 64 条记录：每条先绑定为 LogRecord，再解析槽位。
+     */
+    @Benchmark
+    public void streamBoundRecords(Blackhole blackhole) throws IOException {
+        try (StreamingReportRequest request = openRequest()) {
+            for (LogRecord record = request.next(); record != null; record = request.next()) {
+                blackhole.consume(plan.resolve(record));
+            }
+        }
+    }
+
+    /*
+     * 从请求 JSON 读取 64 条记录：直接从 JSON 记号解析槽位，不构建 LogRecord / DetailedItem。
+     */
+    @Benchmark
+    public void streamResolvedRecords(Blackhole blackhole) throws IOException {
+        try (StreamingReportRequest request = openRequest()) {
+            for (ResolvedRecord record = request.nextResolved(plan); record != null; record = request.nextResolved(plan)) {
+                blackhole.consume(record);
+            }
+        }
+    }
+
+    private StreamingReportRequest openRequest() throws IOException {
+        return StreamingReportRequest.open(() -> new ByteArrayInputStream(requestJson), objectMapper);
+    }
+
+    /*
+     * 按映射计划渲染一条记录的所有目标单元格文本（含 formatValue）。
+     */
+    @Benchmark
+    public void renderAllCells(Blackhole blackhole) {
+        for (MappingPlan.CellTarget target : plan.getTargets()) {
+            blackhole.consume(plan.renderCell(target, slotValues));
+        }
+    }
+}
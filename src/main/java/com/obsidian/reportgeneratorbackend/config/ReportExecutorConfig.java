@@ -0,0 +1,38 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/config/ReportExecutorConfig.java
+package com.obsidian.reportgeneratorbackend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 描述: 报告生成使用的线程池配置。
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    public static final String REPORT_WORKER_EXECUTOR = "reportWorkerExecutor";
+
+    /*
+     * 用于并行填充、序列化工作簿的有界线程池。
+     * 池中的任务都是叶子任务（不会再向同一个池提交并等待子任务），因此多个请求共享也不会死锁。
+     */
+    @Bean(name = REPORT_WORKER_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService reportWorkerExecutor(ReportProperties properties) {
+        return Executors.newFixedThreadPool(properties.getWorker().effectiveParallelism(),
+                namedDaemonThreads("report-worker-"));
+    }
+
+    static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
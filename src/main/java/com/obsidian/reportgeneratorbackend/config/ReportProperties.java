@@ -0,0 +1,297 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/config/ReportProperties.java
+package com.obsidian.reportgeneratorbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.zip.Deflater;
+
+/*
+ * 描述: 报告生成相关的可配置参数，对应 application.properties 中 "report." 前缀的配置项。
+ */
+@Data
+@ConfigurationProperties(prefix = "report")
+public class ReportProperties {
+
+    private SingleSheet singleSheet = new SingleSheet();
+
+    private Worker worker = new Worker();
+
+    private Zip zip = new Zip();
+
+    private TemplateCache templateCache = new TemplateCache();
+
+    private Jobs jobs = new Jobs();
+
+    private Grouping grouping = new Grouping();
+
+    private CellOutput cellOutput = new CellOutput();
+
+    private Batch batch = new Batch();
+
+    private Metrics metrics = new Metrics();
+
+    private Admission admission = new Admission();
+
+    private MultiSheet multiSheet = new MultiSheet();
+
+    private ResultCache resultCache = new ResultCache();
+
+    /*
+     * 单表模式 (SINGLE_SHEET) 的输出参数。
+     */
+    @Data
+    public static class SingleSheet {
+        /*
+         * 是否允许使用基于 SXSSF 的流式输出。
+         */
+        private boolean streamingEnabled = true;
+
+        /*
+         * 记录数达到该值时改用流式输出；小报告仍走完整的 XSSF 路径。
+         */
+        private int streamingThreshold = 200;
+
+        /*
+         * 流式输出时内存中保留的行数，超出的行会被刷写到临时文件。
+         */
+        private int rowAccessWindow = 100;
+    }
+
+    /*
+     * 多工作表模式 (MULTI_SHEET) 的输出参数。
+     */
+    @Data
+    public static class MultiSheet {
+        /*
+         * 是否在 OOXML 包级别克隆模板工作表（保留条件格式、数据验证、形状等）。
+         * 关闭时，或模板含有表格、数据透视表、批注、图表时，改用逐单元格复制模板快照。
+         */
+        private boolean packageCloneEnabled = true;
+
+        /*
+         * 是否在工作线程池中并行渲染每个 SN 工作表的单元格值，由当前线程按 SN 顺序创建工作表并写入。
+         */
+        private boolean parallelFillEnabled = true;
+
+        /*
+         * 已渲染但尚未写入输出工作簿的工作表内容所占内存上限（字节）。
+         */
+        private long maxInFlightBytes = 64L * 1024 * 1024;
+    }
+
+    /*
+     * 并行生成使用的工作线程池参数。
+     */
+    @Data
+    public static class Worker {
+        /*
+         * 工作线程数，<= 0 表示使用 CPU 核数。
+         */
+        private int parallelism = 0;
+
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /*
+     * ZIP 模式 (ZIP_FILES) 的输出参数。
+     */
+    @Data
+    public static class Zip {
+        /*
+         * 是否在工作线程池中并行生成每个 SN 的工作簿。
+         */
+        private boolean parallelEnabled = true;
+
+        /*
+         * 已生成但尚未写入 zip 的工作簿所占内存上限（字节）。
+         */
+        private long maxInFlightBytes = 256L * 1024 * 1024;
+
+        /*
+         * 是否使用 TemplateSheetPatcher 直接修补模板的工作表 XML，而不是为每个 SN 加载完整的工作簿。
+         * 模板中的目标单元格含有公式、或工作表结构不受支持时，自动改用 POI 加载工作簿。
+         */
+        private boolean patchEnabled = true;
+
+        /*
+         * 本身已是压缩格式的条目（.xlsx、.zip）是否以 STORED 方式写入，不再重复 deflate。
+         * 本设置同时用于 ZIP 模式的输出和批量生成的结果。
+         */
+        private boolean storeCompressedEntries = true;
+
+        /*
+         * 需要压缩的条目的 deflate 级别，0-9，-1 表示默认级别（6）。
+         */
+        private int deflateLevel = Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /*
+     * 预解析模板快照缓存的参数。
+     */
+    @Data
+    public static class TemplateCache {
+        private boolean enabled = true;
+
+        /*
+         * 缓存中所有模板快照的估算内存占用上限（字节），超出时按 LRU 淘汰。
+         */
+        private long maxWeightBytes = 256L * 1024 * 1024;
+    }
+
+    /*
+     * 异步报告任务的参数。
+     */
+    @Data
+    public static class Jobs {
+        /*
+         * 执行任务的专用线程数。
+         */
+        private int workerThreads = 2;
+
+        /*
+         * 最多排队（尚未开始）的任务数，超出时拒绝提交并返回 429。
+         */
+        private int queueCapacity = 100;
+
+        /*
+         * 结果文件的暂存目录，默认位于系统临时目录下。
+         */
+        private String spoolDir = System.getProperty("java.io.tmpdir") + "/report-jobs";
+
+        /*
+         * 任务结束后结果保留的时间，过期后任务和结果文件一并清理。
+         */
+        private Duration resultTtl = Duration.ofHours(1);
+
+        /*
+         * 排队任务拒绝时建议客户端等待的秒数（Retry-After）。
+         */
+        private long retryAfterSeconds = 30;
+    }
+
+    /*
+     * ZIP / 多工作表模式按 SN 分组的参数。
+     */
+    @Data
+    public static class Grouping {
+        /*
+         * 分组数据在内存中的估算占用上限（字节），超出时把已有分组按 SN 排序写入临时文件。
+         */
+        private long memoryBudgetBytes = 64L * 1024 * 1024;
+
+        /*
+         * 溢出文件所在目录，默认位于系统临时目录下。
+         */
+        private String spillDir = System.getProperty("java.io.tmpdir") + "/report-spill";
+    }
+
+    /*
+     * 映射单元格的写入方式。
+     */
+    @Data
+    public static class CellOutput {
+        /*
+         * 单源且指定了小数位数的数值映射是否写为数值单元格（带 0.00"V" 之类的数字格式），
+         * 关闭时与多源映射一样写为文本。默认关闭：打开后原本为文本的单元格会变成数值单元格，需要下游确认后再启用。
+         */
+        private boolean numericEnabled = false;
+    }
+
+    /*
+     * 批量生成接口 (/api/reports/batch) 的参数。
+     */
+    @Data
+    public static class Batch {
+        /*
+         * 单个批量请求最多包含的报告数，超出时返回 400。
+         */
+        private int maxItems = 100;
+
+        /*
+         * 已生成但尚未写入响应的报告所占内存上限（字节）。
+         */
+        private long maxInFlightBytes = 256L * 1024 * 1024;
+    }
+
+    /*
+     * 报告生成指标的参数。
+     */
+    @Data
+    public static class Metrics {
+        /*
+         * report.generation 是否按模板（templateId 前 12 位）区分，便于找出慢模板。
+         * 模板种类很多时会产生大量时间序列，可以关闭。
+         */
+        private boolean templateTagEnabled = true;
+    }
+
+    /*
+     * 报告生成的准入控制（按估算堆内存占用限流）。
+     */
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+
+        /*
+         * 所有正在生成的报告的估算堆内存占用上限（字节），<= 0 表示使用最大堆的 60%。
+         */
+        private long heapBudgetBytes = 0;
+
+        /*
+         * 额度不足时同步请求的最长等待时间，超时返回 429。
+         */
+        private Duration queueTimeout = Duration.ofSeconds(30);
+
+        /*
+         * 最多同时等待准入的同步请求数，超出时立即返回 429。
+         */
+        private int maxWaiting = 20;
+
+        /*
+         * 拒绝时建议客户端等待的秒数（Retry-After）。
+         */
+        private long retryAfterSeconds = 10;
+
+        public long effectiveHeapBudgetBytes() {
+            return heapBudgetBytes > 0 ? heapBudgetBytes : Runtime.getRuntime().maxMemory() / 10 * 6;
+        }
+    }
+
+    /*
+     * 同步生成接口的结果缓存：相同的模板、导出模式、映射规则和日志数据直接返回上次生成的文件。
+     */
+    @Data
+    public static class ResultCache {
+        private boolean enabled = false;
+
+        /*
+         * 缓存结果的保留时间，从生成完成时算起。
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /*
+         * 内存层所有结果的总大小上限（字节），超出时按 LRU 淘汰。
+         */
+        private long memoryMaxBytes = 64L * 1024 * 1024;
+
+        /*
+         * 放入内存层的单个结果的大小上限（字节），更大的结果只保存在磁盘层。
+         */
+        private long memoryMaxEntryBytes = 4L * 1024 * 1024;
+
+        /*
+         * 磁盘层所有结果的总大小上限（字节），超出时按 LRU 淘汰，0 表示不使用磁盘层。
+         */
+        private long diskMaxBytes = 1024L * 1024 * 1024;
+
+        /*
+         * 磁盘层的目录，默认位于系统临时目录下。结果保存在其中的 results 子目录，
+         * 启动时只删除该子目录中遗留的缓存文件。
+         */
+        private String diskDir = System.getProperty("java.io.tmpdir") + "/report-result-cache";
+    }
+}
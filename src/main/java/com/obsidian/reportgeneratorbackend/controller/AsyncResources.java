@@ -0,0 +1,83 @@
+package com.obsidian.reportgeneratorbackend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 描述: 在请求线程中获得、交给 StreamingResponseBody 使用的资源（准入额度、已打开的请求、缓存结果等）。
+ *       响应体不一定会执行：异步请求超时时它可能仍在 MVC 执行器的队列中，执行器也可能拒绝任务，
+ *       客户端还可能在它开始之前断开。资源若只在响应体中释放，就会永久泄漏（准入额度泄漏后只能重启服务）。
+ *       因此同时登记异步处理结束的回调：
+ *       - 响应体开始执行时先 claim()，之后由响应体自己在 try-with-resources 中释放；
+ *       - 异步处理结束时响应体还没有开始，则由回调释放，之后即使响应体再执行也会直接返回。
+ */
+final class AsyncResources implements CallableProcessingInterceptor, Closeable {
+
+    private static final String INTERCEPTOR_KEY = AsyncResources.class.getName();
+
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int RELEASED = 2;
+
+    private final Closeable[] resources;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    private AsyncResources(Closeable[] resources) {
+        this.resources = resources;
+    }
+
+    /*
+     * 为当前请求登记资源；为 null 的资源被忽略。应在控制器方法返回响应体之前最后一步调用。
+     */
+    static AsyncResources register(HttpServletRequest request, Closeable... resources) {
+        AsyncResources asyncResources = new AsyncResources(resources);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(INTERCEPTOR_KEY, asyncResources);
+        return asyncResources;
+    }
+
+    /*
+     * 响应体开始执行时调用。资源已被回调释放时返回 false，响应体应直接返回。
+     */
+    boolean claim() {
+        return state.compareAndSet(PENDING, CLAIMED);
+    }
+
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) throws Exception {
+        if (state.compareAndSet(PENDING, RELEASED)) {
+            close();
+        }
+    }
+
+    /*
+     * 依次关闭所有资源；某个资源关闭失败时仍会关闭其余资源，第一个异常在最后抛出。
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Closeable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -1,20 +1,35 @@
 // com/obsidian/reportgeneratorbackend/controller/ReportController.java
 package com.obsidian.reportgeneratorbackend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
 import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.TemplateCacheStats;
+import com.obsidian.reportgeneratorbackend.dto.TemplateUploadResponse;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.service.AdmissionLimiter;
+import com.obsidian.reportgeneratorbackend.service.BatchReportService;
 import com.obsidian.reportgeneratorbackend.service.ReportGenerationService;
+import com.obsidian.reportgeneratorbackend.service.ReportProgressListener;
+import com.obsidian.reportgeneratorbackend.service.ReportResultCache;
+import com.obsidian.reportgeneratorbackend.service.ReportZipWriter;
+import com.obsidian.reportgeneratorbackend.service.StreamingReportRequest;
+import com.obsidian.reportgeneratorbackend.service.TabularReportRequest;
+import com.obsidian.reportgeneratorbackend.service.TemplateRegistry;
+import com.obsidian.reportgeneratorbackend.service.TemplateSnapshot;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.List;
 
 /*
  * 描述: API 控制器，定义了报告生成的端点(endpoint)。
@@ -23,82 +38,277 @@ import java.util.Date;
 @RestController
 @RequestMapping("/api/reports") // 所有请求都以 /api/reports 为前缀
 // 【核心修改】在 @CrossOrigin 注解中添加 exposedHeaders 属性
-@CrossOrigin(origins = "*", exposedHeaders = {"Content-Disposition"})
+@CrossOrigin(origins = "*", exposedHeaders = {"Content-Disposition", "ETag", ReportResponses.ZIP_COMPRESSION_HEADER})
 public class ReportController {
 
     private final ReportGenerationService reportService;
 
+    private final BatchReportService batchService;
+
+    private final TemplateRegistry templateRegistry;
+
+    private final AdmissionLimiter admission;
+
+    private final ReportResultCache resultCache;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReportProperties properties;
+
     // 使用构造函数注入服务，这是Spring推荐的方式
-    public ReportController(ReportGenerationService reportService) {
+    public ReportController(ReportGenerationService reportService, BatchReportService batchService,
+                            TemplateRegistry templateRegistry, AdmissionLimiter admission,
+                            ReportResultCache resultCache, ObjectMapper objectMapper,
+                            ReportProperties properties) {
         this.reportService = reportService;
+        this.batchService = batchService;
+        this.templateRegistry = templateRegistry;
+        this.admission = admission;
+        this.resultCache = resultCache;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /*
+     * 上传模板并返回其 templateId（内容的 SHA-256）。
+     * 模板会被预解析并缓存，之后的生成请求只需传 templateId，无需再次上传。
+     */
+    @PostMapping(value = "/templates", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TemplateUploadResponse> uploadTemplate(@RequestPart("template") MultipartFile templateFile) throws IOException {
+        TemplateSnapshot snapshot = templateRegistry.register(templateFile.getBytes());
+
+        TemplateUploadResponse response = new TemplateUploadResponse();
+        response.setTemplateId(snapshot.getId());
+        response.setSize(snapshot.getBytes().length);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    /*
+     * 返回模板缓存的命中/未命中等统计信息。
+     */
+    @GetMapping("/templates/stats")
+    public TemplateCacheStats templateCacheStats() {
+        return templateRegistry.stats();
     }
 
     /*
      * 定义报告生成的POST接口。
      * 使用 @RequestPart 来分别接收文件和JSON数据。
-     * @param templateFile  上传的Excel模板文件
-     * @param request       包含映射规则和日志数据的JSON对象
-     * @return 返回一个包含文件内容的HTTP响应
+     * JSON 数据不绑定为完整的 DTO：先读取 exportMode 和 mappingRules，logData 中的记录在生成过程中逐条解析。
+     * 报告内容通过 StreamingResponseBody 直接写入响应流，而不是先生成完整的 byte[]。
+     * 模板可以直接上传（template），也可以引用已上传模板的 templateId，二者取其一。
+     * 开始生成之前先按估算的内存占用申请准入额度，额度不足时排队，排队超时或排队过多返回 429。
+     * 额度和已打开的请求交给 AsyncResources，响应体没有执行时（异步超时、客户端断开）也会释放。
+     * 启用结果缓存时，相同的请求直接返回缓存的文件（不占用准入额度），响应带 ETag 标识结果的内容。
+     * POST 不按 If-None-Match 返回 304（RFC 9110 只允许 GET / HEAD 这样做），命中时总是返回 200 和文件。
+     * @param templateFile 上传的Excel模板文件
+     * @param templateId   已通过 /templates 上传的模板ID
+     * @param requestPart  包含映射规则和日志数据的JSON对象（ReportGenerationRequest 结构）
+     * @return 返回一个以流方式输出文件内容的HTTP响应
      */
     @PostMapping(value = "/generate", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<byte[]> generateReport(
-            @RequestPart("template") MultipartFile templateFile,
-            @RequestPart("request") ReportGenerationRequest request) {
+    public ResponseEntity<StreamingResponseBody> generateReport(
+            @RequestPart(value = "template", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestPart("request") Part requestPart,
+            HttpServletRequest servletRequest) throws IOException {
 
+        // 开始写响应之前先读取请求头部、校验并解析模板，无效请求仍然可以得到 400
+        StreamingReportRequest request = StreamingReportRequest.open(requestPart::getInputStream, objectMapper);
+        TemplateSnapshot template;
+        String cacheKey = null;
+        ReportResultCache.CachedResult cached = null;
+        AdmissionLimiter.Ticket ticket = null;
+        HttpHeaders headers;
+        AsyncResources resources;
         try {
-            // 调用服务层生成报告
-            byte[] reportBytes = reportService.generateReport(request, templateFile.getBytes());
-
-            // 准备HTTP响应头
-            HttpHeaders headers = new HttpHeaders();
-            String filename = generateFilename(request);
+            reportService.validate(request);
+            template = templateRegistry.resolve(uploadedBytes(templateFile), templateId);
 
-            // 【重要】设置响应头，告知浏览器这是一个文件下载
-            // 注意：这里需要对文件名进行URL编码，以支持中文等特殊字符
-            headers.setContentDispositionFormData("attachment", URLEncoder.encode(filename, StandardCharsets.UTF_8.name()));
+            if (resultCache.isEnabled()) {
+                cacheKey = resultCache.key(requestPart::getInputStream, request, template);
+                cached = resultCache.get(cacheKey);
+            }
+            ticket = cached != null ? null : admission.admit(admission.estimate(request.getExportMode(), template,
+                    requestPart.getSize(), request.getMappingRules().size()));
 
-            // 根据导出模式设置不同的MIME类型
-            if (request.getExportMode() == com.obsidian.reportgeneratorbackend.model.ExportMode.ZIP_FILES) {
-                headers.setContentType(MediaType.valueOf("application/zip"));
+            // 准备HTTP响应头：文件名与MIME类型取决于导出模式
+            headers = reportHeaders(request.getExportMode());
+            if (cacheKey != null) {
+                headers.setETag("\"" + cacheKey + "\"");
+            }
+            if (cached != null) {
+                // 命中缓存：不再读取 logData，也不占用准入额度
+                request.close();
+                headers.setContentLength(cached.getSize());
+                resources = AsyncResources.register(servletRequest, cached);
             } else {
-                headers.setContentType(MediaType.valueOf("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+                resources = AsyncResources.register(servletRequest, ticket, request);
             }
+        } catch (IOException | RuntimeException e) {
+            closeOnFailure(e, request, ticket, cached);
+            throw e;
+        }
 
-            return new ResponseEntity<>(reportBytes, headers, HttpStatus.OK);
-
-        } catch (IOException e) {
-            // 处理文件读写错误
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        } catch (Exception e) {
-            // 处理其他未知错误
-            e.printStackTrace();
-            // 建议将此处的 BAD_REQUEST 改为更具体的错误码或返回错误信息
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        if (cached != null) {
+            ReportResultCache.CachedResult hit = cached;
+            StreamingResponseBody body = outputStream -> {
+                if (!resources.claim()) {
+                    return;
+                }
+                try (resources) {
+                    hit.transferTo(outputStream);
+                }
+            };
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
         }
+
+        // 调用服务层生成报告，工作簿和zip条目直接写入Servlet输出流
+        String key = cacheKey;
+        StreamingResponseBody body = outputStream -> {
+            if (!resources.claim()) {
+                return; // 异步处理已经结束（超时或客户端断开），资源已由回调释放
+            }
+            try (resources) {
+                if (key == null) {
+                    reportService.generateReport(request, template, outputStream, ReportProgressListener.NONE);
+                    return;
+                }
+                // 输出同时记录到结果缓存，生成成功后登记
+                try (ReportResultCache.Capture capture = resultCache.capture(key)) {
+                    reportService.generateReport(request, template, capture.wrap(outputStream),
+                            ReportProgressListener.NONE);
+                    capture.commit();
+                }
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     /*
-     * 根据请求动态生成一个友好的文件名。
+     * 以紧凑的表格格式上传日志数据的报告生成接口，响应与 /generate 相同。
+     * request 部分只需 exportMode 和 mappingRules；日志数据在单独的 logData 部分中，
+     * 格式为 CSV 或 TSV（第一行为表头：SN 和各测试项名称，之后每行一条记录），可以是 gzip 压缩的，
+     * 详见 TabularReportRequest。记录在生成过程中逐行解析，不构建 LogRecord / DetailedItem。
+     * 结果缓存只用于 /generate。
+     * @param templateFile 上传的Excel模板文件
+     * @param templateId   已通过 /templates 上传的模板ID
+     * @param requestPart  包含导出模式和映射规则的JSON对象
+     * @param logDataPart  CSV / TSV 日志数据
      */
-    private String generateFilename(ReportGenerationRequest request) {
-        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        String baseName = "Generated_Report";
-        String extension = ".xlsx"; // 默认扩展名
-
-        // 【优化】使用 switch 表达式（Java 14+）或保持原样
-        switch (request.getExportMode()) {
-            case SINGLE_SHEET:
-                baseName = "Report_Single_Sheet";
-                break;
-            case MULTI_SHEET:
-                baseName = "Report_Multi_Sheet";
-                break;
-            case ZIP_FILES:
-                baseName = "Report_Archive";
-                extension = ".zip"; // ZIP模式下，扩展名是.zip
-                break;
+    @PostMapping(value = "/generate/tabular", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateTabularReport(
+            @RequestPart(value = "template", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestPart("request") Part requestPart,
+            @RequestPart("logData") Part logDataPart,
+            HttpServletRequest servletRequest) throws IOException {
+
+        // 开始写响应之前先读取请求头部和表头、校验并解析模板，无效请求仍然可以得到 400
+        TabularReportRequest request = TabularReportRequest.open(requestPart::getInputStream,
+                logDataPart::getInputStream, objectMapper);
+        TemplateSnapshot template;
+        AdmissionLimiter.Ticket ticket = null;
+        HttpHeaders headers;
+        AsyncResources resources;
+        try {
+            reportService.validate(request);
+            template = templateRegistry.resolve(uploadedBytes(templateFile), templateId);
+            ticket = admission.admit(admission.estimate(request.getExportMode(), template,
+                    request.estimatedJsonBytes(logDataPart.getSize()), request.getMappingRules().size()));
+
+            headers = reportHeaders(request.getExportMode());
+            resources = AsyncResources.register(servletRequest, ticket, request);
+        } catch (IOException | RuntimeException e) {
+            closeOnFailure(e, request, ticket);
+            throw e;
         }
-        return baseName + "_" + timestamp + extension;
+
+        StreamingResponseBody body = outputStream -> {
+            if (!resources.claim()) {
+                return;
+            }
+            try (resources) {
+                reportService.generateReport(request, template, outputStream, ReportProgressListener.NONE);
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /*
+     * 批量生成：一个模板 + 多个报告请求，结果打包为一个 ZIP 返回。
+     * 模板只上传、解析一次；各报告在工作线程池中并行生成，按请求顺序写入 ZIP，
+     * 最后一个条目 batch-summary.json 记录每个报告的结果，单个报告失败不会使整个请求失败。
+     * @param templateFile 上传的Excel模板文件
+     * @param templateId   已通过 /templates 上传的模板ID
+     * @param requestsPart ReportGenerationRequest 的 JSON 数组
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateBatch(
+            @RequestPart(value = "template", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestPart("requests") Part requestsPart,
+            HttpServletRequest servletRequest) throws IOException {
+
+        List<ReportGenerationRequest> requests = batchService.readRequests(requestsPart::getInputStream);
+        TemplateSnapshot template = templateRegistry.resolve(uploadedBytes(templateFile), templateId);
+        AdmissionLimiter.Ticket ticket = admission.admit(admission.estimateBatch(template, requestsPart.getSize()));
+
+        HttpHeaders headers;
+        AsyncResources resources;
+        try {
+            headers = ReportResponses.attachmentHeaders(ReportResponses.generateBatchFilename(), ReportResponses.ZIP);
+            headers.set(ReportResponses.ZIP_COMPRESSION_HEADER, ReportZipWriter.describe(properties.getZip()));
+            resources = AsyncResources.register(servletRequest, ticket);
+        } catch (RuntimeException e) {
+            closeOnFailure(e, ticket);
+            throw e;
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            if (!resources.claim()) {
+                return;
+            }
+            try (resources) {
+                batchService.generateBatch(requests, template, outputStream);
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /*
+     * 文件名与MIME类型取决于导出模式；ZIP 模式另外通过 X-Zip-Compression 给出条目的压缩方式。
+     */
+    private HttpHeaders reportHeaders(ExportMode exportMode) {
+        HttpHeaders headers = ReportResponses.attachmentHeaders(
+                ReportResponses.generateFilename(exportMode), ReportResponses.contentType(exportMode));
+        if (exportMode == ExportMode.ZIP_FILES) {
+            headers.set(ReportResponses.ZIP_COMPRESSION_HEADER, ReportZipWriter.describe(properties.getZip()));
+        }
+        return headers;
+    }
+
+    /*
+     * 资源交给 AsyncResources 之前请求失败时关闭它们：准入额度不归还，只能重启服务才能恢复。
+     * 为 null 的资源被忽略；关闭时的异常附加到原来的异常上。
+     */
+    private static void closeOnFailure(Exception failure, Closeable... resources) {
+        for (Closeable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (IOException | RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /*
+     * 未上传模板文件（或文件为空）时返回 null。
+     */
+    static byte[] uploadedBytes(MultipartFile templateFile) throws IOException {
+        return templateFile == null || templateFile.isEmpty() ? null : templateFile.getBytes();
     }
-}
\ No newline at end of file
+}
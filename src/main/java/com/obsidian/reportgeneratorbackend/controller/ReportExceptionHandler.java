@@ -0,0 +1,69 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/controller/ReportExceptionHandler.java
+package com.obsidian.reportgeneratorbackend.controller;
+
+import com.obsidian.reportgeneratorbackend.exception.JobNotFoundException;
+import com.obsidian.reportgeneratorbackend.exception.ServiceBusyException;
+import com.obsidian.reportgeneratorbackend.exception.TemplateNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.io.IOException;
+
+/*
+ * 描述: 报告相关控制器共用的异常处理，把服务层异常转换为对应的 HTTP 状态码。
+ */
+@RestControllerAdvice(basePackageClasses = ReportExceptionHandler.class)
+@Slf4j
+public class ReportExceptionHandler {
+
+    /*
+     * 处理请求数据无效的情况（在响应开始写出之前抛出）。
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler({TemplateNotFoundException.class, JobNotFoundException.class})
+    public ResponseEntity<String> handleNotFound(RuntimeException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    /*
+     * 负载已满：返回 429，并附带 Retry-After。
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handleBusy(ServiceBusyException e) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(e.getMessage(), headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /*
+     * 处理文件读写错误（例如模板文件无法读取）。
+     */
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<String> handleIoError(IOException e) {
+        log.error("处理报告请求时发生读写错误", e);
+        return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /*
+     * 处理其他未知错误。Spring 自身带状态码的异常（如 415、405、ResponseStatusException）保留其状态码。
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> handleUnknownError(Exception e) {
+        if (e instanceof ErrorResponse) {
+            ErrorResponse errorResponse = (ErrorResponse) e;
+            return new ResponseEntity<>(errorResponse.getBody().getDetail(), errorResponse.getStatusCode());
+        }
+        log.error("处理报告请求时发生未知错误", e);
+        // 建议将此处的 BAD_REQUEST 改为更具体的错误码或返回错误信息
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+}
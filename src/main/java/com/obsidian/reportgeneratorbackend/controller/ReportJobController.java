@@ -0,0 +1,97 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/controller/ReportJobController.java
+package com.obsidian.reportgeneratorbackend.controller;
+
+import com.obsidian.reportgeneratorbackend.dto.ReportJobStatus;
+import com.obsidian.reportgeneratorbackend.model.JobState;
+import com.obsidian.reportgeneratorbackend.service.ReportJob;
+import com.obsidian.reportgeneratorbackend.service.ReportJobService;
+import com.obsidian.reportgeneratorbackend.service.TemplateRegistry;
+import com.obsidian.reportgeneratorbackend.service.TemplateSnapshot;
+import jakarta.servlet.http.Part;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+
+/*
+ * 描述: 异步报告任务的 API。
+ *       大报告提交为后台任务，客户端轮询进度，完成后下载结果（支持 Range 断点续传）。
+ *       小报告仍可直接使用同步的 /api/reports/generate。
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+@CrossOrigin(origins = "*", exposedHeaders = {"Content-Disposition", "Location", "Retry-After"})
+public class ReportJobController {
+
+    private final ReportJobService jobService;
+
+    private final TemplateRegistry templateRegistry;
+
+    public ReportJobController(ReportJobService jobService, TemplateRegistry templateRegistry) {
+        this.jobService = jobService;
+        this.templateRegistry = templateRegistry;
+    }
+
+    /*
+     * 提交报告任务，参数与 /api/reports/generate 相同。
+     * JSON 数据原样暂存到本地，任务执行时再流式读取，不在排队期间占用堆内存。
+     * @param priority 可选的优先级，数值越大越先执行
+     * @return 202 Accepted，Location 指向任务状态地址
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ReportJobStatus> submitJob(
+            @RequestPart(value = "template", required = false) MultipartFile templateFile,
+            @RequestParam(value = "templateId", required = false) String templateId,
+            @RequestParam(value = "priority", defaultValue = "0") int priority,
+            @RequestPart("request") Part requestPart) throws IOException {
+
+        TemplateSnapshot template = templateRegistry.resolve(ReportController.uploadedBytes(templateFile), templateId);
+        ReportJob job = jobService.submit(requestPart::getInputStream, template, priority);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/jobs/" + job.getId()))
+                .body(job.toStatus());
+    }
+
+    /*
+     * 查询任务状态与进度。
+     */
+    @GetMapping("/{jobId}")
+    public ReportJobStatus getJob(@PathVariable String jobId) {
+        return jobService.get(jobId).toStatus();
+    }
+
+    /*
+     * 下载任务结果。返回文件资源，Spring 会自动处理 Range 请求 (206 Partial Content)。
+     * 任务尚未成功完成时返回 409。
+     */
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<Resource> downloadResult(@PathVariable String jobId) {
+        ReportJob job = jobService.get(jobId);
+        if (job.getState() != JobState.SUCCEEDED || job.getResultFile() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        HttpHeaders headers = ReportResponses.attachmentHeaders(
+                ReportResponses.generateFilename(job.getExportMode()),
+                ReportResponses.contentType(job.getExportMode()));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        return new ResponseEntity<>(new FileSystemResource(job.getResultFile()), headers, HttpStatus.OK);
+    }
+
+    /*
+     * 取消任务并删除其结果。
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> deleteJob(@PathVariable String jobId) {
+        jobService.delete(jobId);
+        return ResponseEntity.noContent().build();
+    }
+}
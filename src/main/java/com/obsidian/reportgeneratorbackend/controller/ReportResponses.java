@@ -0,0 +1,78 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/controller/ReportResponses.java
+package com.obsidian.reportgeneratorbackend.controller;
+
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/*
+ * 描述: 报告文件下载响应的公共部分（文件名、MIME类型、响应头），同步接口和任务下载接口共用。
+ */
+final class ReportResponses {
+
+    static final MediaType XLSX = MediaType.valueOf("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    static final MediaType ZIP = MediaType.valueOf("application/zip");
+
+    /*
+     * ZIP 输出中报告条目的实际压缩方式（见 ReportZipWriter.describe）。
+     */
+    static final String ZIP_COMPRESSION_HEADER = "X-Zip-Compression";
+
+    private ReportResponses() {
+    }
+
+    /*
+     * 构建文件下载的响应头。
+     */
+    static HttpHeaders attachmentHeaders(String filename, MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        // 【重要】设置响应头，告知浏览器这是一个文件下载
+        // 注意：这里需要对文件名进行URL编码，以支持中文等特殊字符
+        headers.setContentDispositionFormData("attachment", URLEncoder.encode(filename, StandardCharsets.UTF_8));
+        headers.setContentType(contentType);
+        return headers;
+    }
+
+    /*
+     * 根据导出模式设置不同的MIME类型。
+     */
+    static MediaType contentType(ExportMode exportMode) {
+        return exportMode == ExportMode.ZIP_FILES ? ZIP : XLSX;
+    }
+
+    /*
+     * 根据请求动态生成一个友好的文件名。
+     */
+    static String generateFilename(ExportMode exportMode) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        String baseName = "Generated_Report";
+        String extension = ".xlsx"; // 默认扩展名
+
+        // 【优化】使用 switch 表达式（Java 14+）或保持原样
+        switch (exportMode) {
+            case SINGLE_SHEET:
+                baseName = "Report_Single_Sheet";
+                break;
+            case MULTI_SHEET:
+                baseName = "Report_Multi_Sheet";
+                break;
+            case ZIP_FILES:
+                baseName = "Report_Archive";
+                extension = ".zip"; // ZIP模式下，扩展名是.zip
+                break;
+        }
+        return baseName + "_" + timestamp + extension;
+    }
+
+    /*
+     * 批量生成结果的文件名。
+     */
+    static String generateBatchFilename() {
+        return "Report_Batch_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".zip";
+    }
+}
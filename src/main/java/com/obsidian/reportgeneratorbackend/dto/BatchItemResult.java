@@ -0,0 +1,28 @@
+package com.obsidian.reportgeneratorbackend.dto;
+
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import lombok.Data;
+
+/*
+ * 描述: 批量生成中单个报告的结果，写入批量结果 ZIP 的 batch-summary.json。
+ */
+@Data
+public class BatchItemResult {
+    /*
+     * 该报告在请求列表中的位置（从 0 开始）。
+     */
+    private int index;
+    private ExportMode exportMode;
+    private boolean succeeded;
+
+    /*
+     * ZIP 中对应条目的名称和大小（字节），仅在成功时有值。
+     */
+    private String fileName;
+    private Long size;
+
+    /*
+     * 失败原因，仅在失败时有值。
+     */
+    private String error;
+}
@@ -0,0 +1,32 @@
+package com.obsidian.reportgeneratorbackend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 描述: 批量生成的汇总，作为最后一个条目 (batch-summary.json) 写入结果 ZIP。
+ *       单个报告失败不会中断整个批量请求，失败原因记录在对应的 BatchItemResult 中。
+ */
+@Data
+public class BatchReportSummary {
+    private int total;
+    private int succeeded;
+    private int failed;
+
+    /*
+     * 按请求顺序排列的每个报告的结果。
+     */
+    private List<BatchItemResult> items = new ArrayList<>();
+
+    public void add(BatchItemResult item) {
+        items.add(item);
+        total++;
+        if (item.isSucceeded()) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+}
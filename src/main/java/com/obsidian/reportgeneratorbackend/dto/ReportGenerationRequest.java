@@ -26,6 +26,12 @@ public class ReportGenerationRequest {
      */
     private Map<String, SingleCellMapping> mappingRules;
 
+    /*
+     * 可选的汇总表布局，省略时不输出汇总表。见 SummaryMapping。
+     * 流式读取请求时需位于 logData 之前，因此声明在 logData 之前（序列化时按声明顺序输出）。
+     */
+    private SummaryMapping summary;
+
     /*
      * 从前端选中的、需要填充到报告中的日志数据记录列表。
      */
@@ -0,0 +1,39 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/dto/ReportJobStatus.java
+package com.obsidian.reportgeneratorbackend.dto;
+
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.model.JobState;
+import lombok.Data;
+
+import java.time.Instant;
+
+/*
+ * 描述: 异步报告任务的状态与进度，作为任务查询接口的返回值。
+ */
+@Data
+public class ReportJobStatus {
+    private String jobId;
+    private JobState state;
+    private ExportMode exportMode;
+
+    /*
+     * 进度：单表模式下为记录数，ZIP / 多工作表模式下为 SN 数。
+     * 任务开始运行之前 totalUnits 为 -1。
+     */
+    private long processedUnits;
+    private long totalUnits;
+
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    /*
+     * 结果文件大小（字节），仅在 SUCCEEDED 时有值。
+     */
+    private Long resultSize;
+
+    /*
+     * 失败原因，仅在 FAILED 时有值。
+     */
+    private String error;
+}
@@ -0,0 +1,44 @@
+package com.obsidian.reportgeneratorbackend.dto;
+
+import com.obsidian.reportgeneratorbackend.model.SummaryColumn;
+import lombok.Data;
+
+import java.util.List;
+
+/*
+ * 描述: 汇总表的布局：对哪些测试项做统计，以及统计结果写在哪里。
+ *       统计在读取 logData 的同一遍中完成，结果写入报告中额外的汇总工作表（ZIP 模式下为单独的汇总条目）。
+ */
+@Data
+public class SummaryMapping {
+
+    /*
+     * 参与统计的测试项名称 (DetailedItem.itemName)，每项输出一行，按此顺序排列。
+     */
+    private List<String> items;
+
+    /*
+     * 输出的列，按此顺序排列；省略时输出全部列。
+     */
+    private List<SummaryColumn> columns;
+
+    /*
+     * 汇总工作表的名称；ZIP 模式下条目名为 "<sheetName>.xlsx"。
+     */
+    private String sheetName = "Summary";
+
+    /*
+     * 表格左上角的单元格地址，格式与映射规则的键相同 (例如 "0_0")。
+     */
+    private String origin = "0_0";
+
+    /*
+     * 是否在第一行输出列标题。
+     */
+    private boolean header = true;
+
+    /*
+     * 计为"通过"的值（忽略大小写）；省略时为 "PASS"。
+     */
+    private List<String> passValues;
+}
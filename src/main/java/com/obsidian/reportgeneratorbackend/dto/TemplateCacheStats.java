@@ -0,0 +1,17 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/dto/TemplateCacheStats.java
+package com.obsidian.reportgeneratorbackend.dto;
+
+import lombok.Data;
+
+/*
+ * 描述: 模板缓存的统计信息。
+ */
+@Data
+public class TemplateCacheStats {
+    private int entries;
+    private long weightBytes;
+    private long maxWeightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+}
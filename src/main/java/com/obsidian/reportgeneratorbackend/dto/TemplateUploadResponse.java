@@ -0,0 +1,20 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/dto/TemplateUploadResponse.java
+package com.obsidian.reportgeneratorbackend.dto;
+
+import lombok.Data;
+
+/*
+ * 描述: 模板上传接口的返回值。
+ */
+@Data
+public class TemplateUploadResponse {
+    /*
+     * 模板内容的 SHA-256（十六进制），后续生成请求可用它代替上传模板文件。
+     */
+    private String templateId;
+
+    /*
+     * 模板文件大小（字节）。
+     */
+    private long size;
+}
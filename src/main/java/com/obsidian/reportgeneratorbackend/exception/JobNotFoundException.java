@@ -0,0 +1,12 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/exception/JobNotFoundException.java
+package com.obsidian.reportgeneratorbackend.exception;
+
+/*
+ * 描述: 报告任务不存在（id 无效，或结果已过期被清理）。
+ */
+public class JobNotFoundException extends RuntimeException {
+
+    public JobNotFoundException(String jobId) {
+        super("报告任务不存在或已过期: " + jobId);
+    }
+}
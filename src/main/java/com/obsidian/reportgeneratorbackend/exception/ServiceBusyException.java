@@ -0,0 +1,19 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/exception/ServiceBusyException.java
+package com.obsidian.reportgeneratorbackend.exception;
+
+import lombok.Getter;
+
+/*
+ * 描述: 服务当前负载已满、暂时无法接受新的报告请求。
+ *       对应 HTTP 429，并通过 Retry-After 告知客户端建议的重试间隔。
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,12 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/exception/TemplateNotFoundException.java
+package com.obsidian.reportgeneratorbackend.exception;
+
+/*
+ * 描述: 请求引用的 templateId 不在模板缓存中（从未上传或已被淘汰），客户端应重新上传模板。
+ */
+public class TemplateNotFoundException extends RuntimeException {
+
+    public TemplateNotFoundException(String templateId) {
+        super("模板不存在或已过期，请重新上传: " + templateId);
+    }
+}
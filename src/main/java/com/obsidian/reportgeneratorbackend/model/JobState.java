@@ -0,0 +1,12 @@
+package com.obsidian.reportgeneratorbackend.model;
+
+/*
+ * 描述: 异步报告任务的状态。
+ */
+public enum JobState {
+    QUEUED,     // 已提交，等待工作线程
+    RUNNING,    // 正在生成
+    SUCCEEDED,  // 已完成，结果可下载
+    FAILED,     // 生成失败
+    CANCELLED   // 已被取消
+}
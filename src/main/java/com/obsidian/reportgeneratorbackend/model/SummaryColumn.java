@@ -0,0 +1,44 @@
+package com.obsidian.reportgeneratorbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/*
+ * 描述: 汇总表中的一列。统计只针对有值的记录；最小值、最大值、平均值和标准差只针对能解析为数字的值。
+ */
+@Getter
+public enum SummaryColumn {
+
+    @JsonProperty("item")
+    ITEM("测试项"),
+
+    @JsonProperty("count")
+    COUNT("数量"), // 有值的记录数
+
+    @JsonProperty("numericCount")
+    NUMERIC_COUNT("数值个数"),
+
+    @JsonProperty("min")
+    MIN("最小值"),
+
+    @JsonProperty("max")
+    MAX("最大值"),
+
+    @JsonProperty("mean")
+    MEAN("平均值"),
+
+    @JsonProperty("stddev")
+    STDDEV("标准差"), // 样本标准差，与 Excel 的 STDEV 相同
+
+    @JsonProperty("passCount")
+    PASS_COUNT("通过数"),
+
+    @JsonProperty("passRate")
+    PASS_RATE("通过率"); // 通过数 / 数量
+
+    private final String label;
+
+    SummaryColumn(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,197 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.exception.ServiceBusyException;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 描述: 报告生成的准入控制：按估算的堆内存占用做加权限流。
+ *       - 每个请求在开始生成之前，根据导出模式、模板大小、请求体大小和映射规模估算内存占用；
+ *       - 估算值从一个公平的加权信号量（总量为 report.admission.heap-budget-bytes，单位 KB）中扣除，
+ *         生成结束后归还；
+ *       - 额度不足时在队列中最多等待 queue-timeout，等待者过多或超时则以 429 + Retry-After 快速拒绝。
+ *       单个请求的估算值超过总额度时按总额度计，即它只能独占运行，而不会永远无法执行。
+ *       估算只是粗略的上界，目的是在负载高峰时排队或拒绝，而不是让 JVM 内存溢出。
+ */
+@Service
+public class AdmissionLimiter {
+
+    /*
+     * 请求 JSON 中平均每条记录的字节数，用于在记录数未知（流式读取）时估算多工作表模式的工作表数。
+     */
+    private static final long ESTIMATED_RECORD_JSON_BYTES = 1024;
+
+    /*
+     * 多工作表模式下输出工作簿中每个单元格的估算占用（XSSF 对象 + XML Bean）。
+     */
+    private static final long ESTIMATED_CELL_BYTES = 160;
+
+    private static final int PERMIT_UNIT_BYTES = 1024;
+
+    private final ReportProperties properties;
+    private final ReportProperties.Admission config;
+    private final int totalPermits;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public AdmissionLimiter(ReportProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.config = properties.getAdmission();
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, config.effectiveHeapBudgetBytes() / PERMIT_UNIT_BYTES));
+        this.permits = new Semaphore(totalPermits, true);
+
+        Gauge.builder("report.admission.used", this, limiter -> (double) limiter.usedBytes())
+                .description("已准入的报告占用的估算堆内存")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("report.admission.waiting", waiting, AtomicInteger::get)
+                .description("等待准入的请求数")
+                .register(registry);
+        this.rejected = Counter.builder("report.admission.rejected")
+                .description("因额度不足被拒绝的请求数")
+                .register(registry);
+    }
+
+    /*
+     * 估算一次生成的堆内存占用（字节）。
+     * @param template     模板快照（其 workbookWeight 约等于一个已解析的模板工作簿）
+     * @param requestBytes 请求 JSON 的大小，作为记录数据量的上界；未知时传 0
+     * @param mappingSize  映射规则中的目标单元格数
+     */
+    public long estimate(ExportMode exportMode, TemplateSnapshot template, long requestBytes, int mappingSize) {
+        long templateWeight = template.getWorkbookWeight();
+        long groupingBytes = Math.min(requestBytes, properties.getGrouping().getMemoryBudgetBytes());
+        switch (exportMode) {
+            case SINGLE_SHEET:
+                // 模板工作簿 + 已解析的槽位数组（不超过请求体）
+                return templateWeight + requestBytes;
+            case ZIP_FILES:
+                // 分组数据 + 每个工作线程各持有一个模板工作簿及其序列化结果
+                long workers = properties.getZip().isParallelEnabled()
+                        ? properties.getWorker().effectiveParallelism() * 2L
+                        : 1;
+                return groupingBytes + workers * (templateWeight + template.getBytes().length);
+            case MULTI_SHEET:
+                // 分组数据 + 输出工作簿：每个 SN 一个模板工作表的副本
+                long sheets = Math.max(1, requestBytes / ESTIMATED_RECORD_JSON_BYTES);
+                long sheetBytes = (template.getFirstSheet().cellCount() + mappingSize) * ESTIMATED_CELL_BYTES;
+                return templateWeight + groupingBytes + sheets * sheetBytes;
+            default:
+                return templateWeight + requestBytes;
+        }
+    }
+
+    /*
+     * 估算一次批量生成的堆内存占用（字节）：已绑定的请求对象（约为 JSON 大小的 3 倍）
+     * 加上每个并行任务各持有的一个模板工作簿。
+     */
+    public long estimateBatch(TemplateSnapshot template, long requestBytes) {
+        long workers = properties.getWorker().effectiveParallelism() * 2L;
+        return requestBytes * 3 + workers * (template.getWorkbookWeight() + template.getBytes().length);
+    }
+
+    /*
+     * 为同步请求申请额度：额度不足时最多等待 queue-timeout。
+     * @throws ServiceBusyException 等待者过多、等待超时或被中断
+     */
+    public Ticket admit(long estimatedBytes) {
+        if (!config.isEnabled()) {
+            return Ticket.NONE;
+        }
+        int required = permitsFor(estimatedBytes);
+        try {
+            // 带超时的 tryAcquire 遵守公平顺序，不会插队到正在等待的大请求之前
+            if (permits.tryAcquire(required, 0, TimeUnit.MILLISECONDS)) {
+                return new Ticket(this, required);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        }
+
+        if (waiting.incrementAndGet() > config.getMaxWaiting()) {
+            waiting.decrementAndGet();
+            throw reject();
+        }
+        try {
+            if (permits.tryAcquire(required, config.getQueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return new Ticket(this, required);
+            }
+            throw reject();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /*
+     * 为后台任务申请额度：一直等待到有足够的额度为止（任务本身已在队列中，不需要拒绝）。
+     */
+    public Ticket admitBlocking(long estimatedBytes) throws InterruptedException {
+        if (!config.isEnabled()) {
+            return Ticket.NONE;
+        }
+        int required = permitsFor(estimatedBytes);
+        waiting.incrementAndGet();
+        try {
+            permits.acquire(required);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        return new Ticket(this, required);
+    }
+
+    /*
+     * 当前已准入的估算占用（字节）。
+     */
+    public long usedBytes() {
+        return (long) (totalPermits - permits.availablePermits()) * PERMIT_UNIT_BYTES;
+    }
+
+    private int permitsFor(long estimatedBytes) {
+        long required = (Math.max(0, estimatedBytes) + PERMIT_UNIT_BYTES - 1) / PERMIT_UNIT_BYTES;
+        return (int) Math.max(1, Math.min(totalPermits, required));
+    }
+
+    private ServiceBusyException reject() {
+        rejected.increment();
+        return new ServiceBusyException("报告生成服务繁忙，请稍后重试。", config.getRetryAfterSeconds());
+    }
+
+    /*
+     * 描述: 已准入请求持有的额度，生成结束后关闭以归还。重复关闭是安全的。
+     */
+    public static final class Ticket implements Closeable {
+
+        static final Ticket NONE = new Ticket(null, 0);
+
+        private final AdmissionLimiter limiter;
+        private final int permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Ticket(AdmissionLimiter limiter, int permits) {
+            this.limiter = limiter;
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.permits.release(permits);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportExecutorConfig;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.BatchItemResult;
+import com.obsidian.reportgeneratorbackend.dto.BatchReportSummary;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/*
+ * 描述: 批量报告生成：一个模板 + 多个 ReportGenerationRequest，在一次 HTTP 请求中全部生成。
+ *       - 模板只解析一次（来自 TemplateRegistry 的快照），所有报告共用；
+ *       - 每个报告作为一个叶子任务在共享的工作线程池中生成，结果按请求顺序写入同一个 ZIP；
+ *       - 单个报告失败只记录在最后的 batch-summary.json 中，不影响其他报告。
+ */
+@Slf4j
+@Service
+public class BatchReportService {
+
+    public static final String SUMMARY_ENTRY_NAME = "batch-summary.json";
+
+    private static final TypeReference<List<ReportGenerationRequest>> REQUESTS_TYPE = new TypeReference<>() {
+    };
+
+    private final ReportGenerationService reportService;
+    private final ObjectMapper objectMapper;
+    private final ReportProperties properties;
+    private final ExecutorService workerExecutor;
+
+    public BatchReportService(ReportGenerationService reportService, ObjectMapper objectMapper,
+                              ReportProperties properties,
+                              @Qualifier(ReportExecutorConfig.REPORT_WORKER_EXECUTOR) ExecutorService workerExecutor) {
+        this.reportService = reportService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.workerExecutor = workerExecutor;
+    }
+
+    /*
+     * 读取批量请求（ReportGenerationRequest 的 JSON 数组）。控制器在开始写响应之前调用，
+     * 格式错误、为空或超出 report.batch.max-items 时抛出 IllegalArgumentException，以便仍能返回 400。
+     * 单个请求的内容在生成时才校验，无效的请求只会让该项失败。
+     */
+    public List<ReportGenerationRequest> readRequests(InputStreamSource source) throws IOException {
+        List<ReportGenerationRequest> requests;
+        try (InputStream in = source.getInputStream()) {
+            requests = objectMapper.readValue(in, REQUESTS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("批量报告请求数据无效: " + e.getOriginalMessage(), e);
+        }
+
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("批量报告请求为空。");
+        }
+        int maxItems = properties.getBatch().getMaxItems();
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException("批量报告最多包含 " + maxItems + " 项，实际为 " + requests.size() + " 项。");
+        }
+        return requests;
+    }
+
+    /*
+     * 生成所有报告并以 ZIP 写入给定的输出流，输出流由调用方负责关闭。
+     * 条目按请求顺序命名为 "001_single_sheet.xlsx"、"002_zip_files.zip" 等，最后一个条目是 batch-summary.json。
+     */
+    public void generateBatch(List<ReportGenerationRequest> requests, TemplateSnapshot template,
+                              OutputStream out) throws IOException {
+        BatchReportSummary summary = new BatchReportSummary();
+
+        // 不关闭底层输出流；finish() 会写出中央目录
+        ReportZipWriter zip = new ReportZipWriter(out, properties.getZip());
+
+        int[] nextIndex = {0};
+        OrderedTaskPipeline.TaskSource<BatchItemOutput> tasks = () -> {
+            if (nextIndex[0] >= requests.size()) {
+                return null;
+            }
+            int index = nextIndex[0]++;
+            ReportGenerationRequest request = requests.get(index);
+            return () -> generateItem(index, request, template, zip);
+        };
+
+        int parallelism = properties.getWorker().effectiveParallelism();
+        OrderedTaskPipeline<BatchItemOutput> pipeline = new OrderedTaskPipeline<>(
+                workerExecutor, parallelism * 2, properties.getBatch().getMaxInFlightBytes(),
+                output -> output.getEntry() == null ? 0 : output.getEntry().getCompressedSize());
+        pipeline.run(tasks, template.getBytes().length, output -> {
+            if (output.getEntry() != null) {
+                zip.write(output.getEntry());
+            }
+            summary.add(output.getResult());
+        });
+
+        zip.write(SUMMARY_ENTRY_NAME,
+                entryOut -> objectMapper.writerWithDefaultPrettyPrinter().writeValue(entryOut, summary));
+        zip.finish();
+    }
+
+    /*
+     * 在工作线程中生成一个报告，并准备好它的 zip 条目（CRC、按需压缩）。失败不抛出，而是作为该项的结果返回。
+     */
+    private BatchItemOutput generateItem(int index, ReportGenerationRequest request, TemplateSnapshot template,
+                                         ReportZipWriter zip) {
+        BatchItemResult result = new BatchItemResult();
+        result.setIndex(index);
+        if (request != null) {
+            result.setExportMode(request.getExportMode());
+        }
+
+        try (ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
+            reportService.generateReportInWorker(request, template, buffer);
+            result.setSucceeded(true);
+            result.setFileName(entryName(index, request.getExportMode()));
+            result.setSize((long) buffer.size());
+            return new BatchItemOutput(result, zip.prepare(result.getFileName(), buffer.toByteArray()));
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("批量报告第 {} 项生成失败: {}", index + 1, message);
+            result.setError(message);
+            return new BatchItemOutput(result, null);
+        }
+    }
+
+    private static String entryName(int index, ExportMode exportMode) {
+        String extension = exportMode == ExportMode.ZIP_FILES ? ".zip" : ".xlsx";
+        return String.format("%03d_%s%s", index + 1, exportMode.name().toLowerCase(Locale.ROOT), extension);
+    }
+
+    /*
+     * 描述: 已生成、等待写入 ZIP 的单个报告；失败时 entry 为 null。
+     */
+    @Getter
+    private static final class BatchItemOutput {
+        private final BatchItemResult result;
+        private final ReportZipWriter.PreparedEntry entry;
+
+        BatchItemOutput(BatchItemResult result, ReportZipWriter.PreparedEntry entry) {
+            this.result = result;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/LogRecordCursor.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * 描述: 按请求中的顺序逐条读取日志记录。
+ *       生成逻辑只通过游标读取记录，因此记录既可以来自已绑定的 List，也可以从请求体中流式解析，
+ *       不要求所有记录同时存在于内存中。
+ */
+public interface LogRecordCursor {
+
+    /*
+     * 读取下一条记录，没有更多记录时返回 null。数组中的 null 元素被跳过。
+     */
+    LogRecord next() throws IOException;
+
+    /*
+     * 读取下一条记录并直接按映射计划解析，没有更多记录时返回 null。
+     * 默认实现基于 next()；流式实现可以直接从 JSON 记号解析，不构建 LogRecord 和 DetailedItem。
+     */
+    default ResolvedRecord nextResolved(MappingPlan plan) throws IOException {
+        LogRecord record = next();
+        return record == null ? null : new ResolvedRecord(record.getSn(), plan.resolve(record));
+    }
+
+    /*
+     * 记录总数，事先未知（例如流式解析）时返回 -1。
+     */
+    default long size() {
+        return -1;
+    }
+
+    static LogRecordCursor of(List<LogRecord> records) {
+        Iterator<LogRecord> iterator = records.iterator();
+        return new LogRecordCursor() {
+            @Override
+            public LogRecord next() {
+                while (iterator.hasNext()) {
+                    LogRecord record = iterator.next();
+                    if (record != null) {
+                        return record;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public long size() {
+                return records.size();
+            }
+        };
+    }
+}
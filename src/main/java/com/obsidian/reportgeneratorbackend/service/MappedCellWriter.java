@@ -0,0 +1,133 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 描述: 把映射计划中目标单元格的值写入单个输出工作簿。
+ *       启用数值输出时，单源且指定了小数位数的数值映射写为 double，
+ *       并换用带数字格式（如 0.00"V"）的样式，显示效果与原先的文本相同，
+ *       但不再占用 sharedStrings.xml，下游公式也可以直接引用。
+ *       带格式的样式按 (单元格原有样式, 数字格式) 只创建一次；其余单元格仍按文本写入。
+ *       与输出工作簿一样，本类只能在单个线程中使用。
+ */
+public class MappedCellWriter {
+
+    private final Workbook workbook;
+    private final MappingPlan plan;
+    private final boolean numericOutput;
+
+    /*
+     * 数字格式 -> (原有样式索引 -> 带该格式的样式)。
+     */
+    private final Map<String, Map<Integer, CellStyle>> numericStyles = new HashMap<>();
+
+    private DataFormat dataFormat;
+
+    public MappedCellWriter(Workbook workbook, MappingPlan plan, boolean numericOutput) {
+        this.workbook = workbook;
+        this.plan = plan;
+        this.numericOutput = numericOutput;
+    }
+
+    public MappingPlan getPlan() {
+        return plan;
+    }
+
+    /*
+     * 把目标单元格的值写入工作表，行或单元格不存在时才创建；没有任何源取到值时不写入。
+     * @param colOffset 列偏移（单表模式下为记录序号）
+     * @return 是否写入了单元格
+     */
+    public boolean write(Sheet sheet, MappingPlan.CellTarget target, String[] slotValues, int colOffset) {
+        Double number = numericOutput ? plan.renderNumber(target, slotValues) : null;
+        if (number != null) {
+            writeNumber(PoiHelper.getOrCreateCell(sheet, target.getRow(), target.getCol() + colOffset),
+                    number, target.getNumericFormat());
+            return true;
+        }
+        String text = plan.renderCell(target, slotValues);
+        if (text == null) {
+            return false;
+        }
+        PoiHelper.getOrCreateCell(sheet, target.getRow(), target.getCol() + colOffset).setCellValue(text);
+        return true;
+    }
+
+    /*
+     * 同上，写入已定位的行（流式输出时使用）。
+     */
+    public boolean write(Row row, MappingPlan.CellTarget target, String[] slotValues, int colOffset) {
+        Double number = numericOutput ? plan.renderNumber(target, slotValues) : null;
+        if (number != null) {
+            writeNumber(PoiHelper.getOrCreateCell(row, target.getCol() + colOffset),
+                    number, target.getNumericFormat());
+            return true;
+        }
+        String text = plan.renderCell(target, slotValues);
+        if (text == null) {
+            return false;
+        }
+        PoiHelper.getOrCreateCell(row, target.getCol() + colOffset).setCellValue(text);
+        return true;
+    }
+
+    /*
+     * 把已渲染的 SN 工作表（见 RenderedSheet）写入工作表，渲染结果必须由同一个映射计划生成。
+     * @return 实际写入的单元格数
+     */
+    public int write(Sheet sheet, RenderedSheet rendered) {
+        List<MappingPlan.CellTarget> targets = plan.getTargets();
+        int written = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            Object value = rendered.valueAt(i);
+            if (value == null) {
+                continue;
+            }
+            MappingPlan.CellTarget target = targets.get(i);
+            Cell cell = PoiHelper.getOrCreateCell(sheet, target.getRow(), target.getCol());
+            if (value instanceof Double) {
+                writeNumber(cell, (Double) value, target.getNumericFormat());
+            } else {
+                cell.setCellValue((String) value);
+            }
+            written++;
+        }
+        return written;
+    }
+
+    private void writeNumber(Cell cell, double number, String format) {
+        cell.setCellValue(number);
+        cell.setCellStyle(numericStyle(cell.getCellStyle(), format));
+    }
+
+    /*
+     * 在原有样式（字体、边框、填充等）的基础上只替换数字格式。
+     */
+    private CellStyle numericStyle(CellStyle baseStyle, String format) {
+        Map<Integer, CellStyle> byBaseStyle = numericStyles.computeIfAbsent(format, key -> new HashMap<>());
+        // 样式索引是 short，超过 32767 个样式时直接转换为 int 会变成负数
+        int baseIndex = Short.toUnsignedInt(baseStyle.getIndex());
+        CellStyle style = byBaseStyle.get(baseIndex);
+        if (style == null) {
+            if (dataFormat == null) {
+                dataFormat = workbook.createDataFormat();
+            }
+            style = workbook.createCellStyle();
+            style.cloneStyleFrom(baseStyle);
+            style.setDataFormat(dataFormat.getFormat(format));
+            byBaseStyle.put(baseIndex, style);
+            // 同一单元格再次写入同样格式的数值时直接复用
+            byBaseStyle.put(Short.toUnsignedInt(style.getIndex()), style);
+        }
+        return style;
+    }
+}
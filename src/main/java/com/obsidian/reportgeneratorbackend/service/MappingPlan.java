@@ -0,0 +1,325 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/MappingPlan.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SourceRule;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 描述: 映射规则编译后的"映射计划"，每个请求只构建一次，所有导出模式共用。
+ *       - "row_col" 地址预先解析为整数行列坐标；
+ *       - 所有源键(sourceKey)去重后分配一个槽位(slot)；
+ *       - 每条记录只需遍历一次 detailedItems，即可得到按槽位排列的源值数组，
+ *         之后每个目标单元格按槽位直接取值，不再对 detailedItems 做线性查找；
+ *       - 源键另有一个以字符数组为键的开放寻址表（slotOf），流式解析 JSON 时可以直接用解析器的字符缓冲区查找槽位，
+ *         不必为每个测试项名称创建 String。
+ */
+@Slf4j
+public class MappingPlan {
+
+    public static final String SN_MAPPING_KEY = "[SN] (序列号)";
+
+    /*
+     * 按 mappingRules 原有顺序排列的目标单元格列表。
+     */
+    @Getter
+    private final List<CellTarget> targets;
+
+    /*
+     * 源键 -> 槽位。SN 映射键不在此表中，单独使用 snSlot。
+     */
+    private final Map<String, Integer> slotByKey;
+
+    /*
+     * SN 映射键所在的槽位，未被任何规则引用时为 -1。
+     */
+    private final int snSlot;
+
+    @Getter
+    private final int slotCount;
+
+    /*
+     * 被映射规则引用的槽位数。之后的槽位只被额外的源键（如汇总统计的测试项）引用，不对应任何目标单元格。
+     */
+    @Getter
+    private final int mappedSlotCount;
+
+    /*
+     * slotByKey 的开放寻址副本：容量为 2 的幂，空位的 keyChars 为 null。
+     */
+    private final char[][] keyChars;
+    private final int[] keySlots;
+
+    private MappingPlan(List<CellTarget> targets, Map<String, Integer> slotByKey, int snSlot, int slotCount,
+                        int mappedSlotCount) {
+        this.targets = targets;
+        this.slotByKey = slotByKey;
+        this.snSlot = snSlot;
+        this.slotCount = slotCount;
+        this.mappedSlotCount = mappedSlotCount;
+
+        int capacity = Integer.highestOneBit(Math.max(1, slotByKey.size()) * 2 + 1) << 1;
+        this.keyChars = new char[capacity][];
+        this.keySlots = new int[capacity];
+        for (Map.Entry<String, Integer> entry : slotByKey.entrySet()) {
+            char[] key = entry.getKey().toCharArray();
+            int index = hash(key, 0, key.length) & (capacity - 1);
+            while (keyChars[index] != null) {
+                index = (index + 1) & (capacity - 1);
+            }
+            keyChars[index] = key;
+            keySlots[index] = entry.getValue();
+        }
+    }
+
+    /*
+     * 将前端传来的映射规则编译为映射计划。
+     * 无效的地址在这里只警告一次，而不是每条记录都重复解析、重复警告。
+     */
+    public static MappingPlan compile(Map<String, SingleCellMapping> mappingRules) {
+        return compile(mappingRules, Collections.emptyList());
+    }
+
+    /*
+     * 同上，并为 extraSourceKeys 中尚未被映射规则引用的源键追加槽位（排在所有映射槽位之后），
+     * 使读取记录时也能取到这些测试项的值。
+     */
+    public static MappingPlan compile(Map<String, SingleCellMapping> mappingRules,
+                                      Collection<String> extraSourceKeys) {
+        List<CellTarget> targets = new ArrayList<>(mappingRules.size());
+        Map<String, Integer> slotByKey = new HashMap<>();
+        int snSlot = -1;
+        int slotCount = 0;
+
+        for (Map.Entry<String, SingleCellMapping> entry : mappingRules.entrySet()) {
+            String address = entry.getKey();
+            String[] addressParts = address.split("_");
+            if (addressParts.length != 2) {
+                log.warn("无效的映射地址格式 '{}'。", address);
+                continue;
+            }
+
+            int row, col;
+            try {
+                row = Integer.parseInt(addressParts[0]);
+                col = Integer.parseInt(addressParts[1]);
+            } catch (NumberFormatException e) {
+                log.warn("映射地址中的行列索引不是有效的数字 '{}'。", address);
+                continue;
+            }
+
+            List<CompiledSource> sources = new ArrayList<>();
+            SingleCellMapping cellMapping = entry.getValue();
+            if (cellMapping != null && cellMapping.getSources() != null) {
+                for (SourceRule sourceRule : cellMapping.getSources()) {
+                    String sourceKey = sourceRule == null ? null : sourceRule.getSourceKey();
+                    if (sourceKey == null) {
+                        continue;
+                    }
+                    int slot;
+                    if (SN_MAPPING_KEY.equals(sourceKey)) {
+                        if (snSlot < 0) {
+                            snSlot = slotCount++;
+                        }
+                        slot = snSlot;
+                    } else {
+                        Integer existing = slotByKey.get(sourceKey);
+                        if (existing == null) {
+                            existing = slotCount++;
+                            slotByKey.put(sourceKey, existing);
+                        }
+                        slot = existing;
+                    }
+                    sources.add(new CompiledSource(slot, sourceRule.getDecimals(), sourceRule.getUnit()));
+                }
+            }
+            targets.add(new CellTarget(row, col, sources.toArray(new CompiledSource[0])));
+        }
+
+        int mappedSlotCount = slotCount;
+        for (String sourceKey : extraSourceKeys) {
+            if (sourceKey != null && !SN_MAPPING_KEY.equals(sourceKey) && !slotByKey.containsKey(sourceKey)) {
+                slotByKey.put(sourceKey, slotCount++);
+            }
+        }
+
+        return new MappingPlan(Collections.unmodifiableList(targets), slotByKey, snSlot, slotCount, mappedSlotCount);
+    }
+
+    /*
+     * 为单条记录构建按槽位排列的源值数组（一次遍历）。
+     */
+    public String[] resolve(LogRecord record) {
+        String[] slotValues = new String[slotCount];
+        resolveInto(slotValues, record);
+        return slotValues;
+    }
+
+    /*
+     * 把一条记录的值合并进已有的槽位数组，已有值的槽位保持不变（先到先得）。
+     * 同一个 SN 的多条记录依次合并，与原先"先拼接所有 detailedItems 再查找第一个匹配项"的语义一致。
+     */
+    public void resolveInto(String[] slotValues, LogRecord record) {
+        resolveSn(slotValues, record.getSn());
+        List<DetailedItem> items = record.getDetailedItems();
+        if (items == null || slotByKey.isEmpty()) {
+            return;
+        }
+        for (DetailedItem item : items) {
+            if (item == null || item.getItemName() == null) {
+                continue;
+            }
+            Integer slot = slotByKey.get(item.getItemName());
+            if (slot != null && slotValues[slot] == null) {
+                slotValues[slot] = item.getActualValue();
+            }
+        }
+    }
+
+    /*
+     * 按字符区间查找源键的槽位，不是任何规则的源键时返回 -1。不分配对象。
+     */
+    public int slotOf(char[] chars, int offset, int length) {
+        int mask = keyChars.length - 1;
+        int index = hash(chars, offset, length) & mask;
+        for (char[] key = keyChars[index]; key != null; key = keyChars[index]) {
+            if (key.length == length && Arrays.equals(key, 0, length, chars, offset, offset + length)) {
+                return keySlots[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /*
+     * 同上，按字符串查找；key 为 null 时返回 -1。
+     */
+    public int slotOf(String key) {
+        Integer slot = key == null ? null : slotByKey.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    /*
+     * 填入 SN 映射键所在的槽位（若被引用且仍为空）。
+     */
+    public void resolveSn(String[] slotValues, String sn) {
+        if (snSlot >= 0 && slotValues[snSlot] == null) {
+            slotValues[snSlot] = sn;
+        }
+    }
+
+    /*
+     * 与 String.hashCode 相同的多项式哈希，再混合高位。
+     */
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * 计算目标单元格的最终文本：收集所有源的格式化值并用 "/" 连接。
+     * 若没有任何源取到值，返回 null，表示该单元格不需要写入。
+     */
+    public String renderCell(CellTarget target, String[] slotValues) {
+        CompiledSource[] sources = target.getSources();
+        if (sources.length == 1) {
+            String rawValue = slotValues[sources[0].getSlot()];
+            return rawValue == null ? null : sources[0].format(rawValue);
+        }
+
+        StringBuilder builder = null;
+        for (CompiledSource source : sources) {
+            String rawValue = slotValues[source.getSlot()];
+            if (rawValue == null) {
+                continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            } else {
+                builder.append('/');
+            }
+            builder.append(source.format(rawValue));
+        }
+        return builder == null ? null : builder.toString();
+    }
+
+    /*
+     * 单源且指定了小数位数的目标单元格可以写为数值：返回舍入后的数值，格式见 getNumericFormat。
+     * 多源、源值缺失、或源值不是数字时返回 null，此时应按 renderCell 的文本写入。
+     */
+    public Double renderNumber(CellTarget target, String[] slotValues) {
+        CompiledSource[] sources = target.getSources();
+        if (sources.length != 1 || sources[0].getDataFormat() == null) {
+            return null;
+        }
+        String rawValue = slotValues[sources[0].getSlot()];
+        return rawValue == null ? null : sources[0].toNumber(rawValue);
+    }
+
+    /*
+     * 描述: 一个已解析坐标的目标单元格及其所有源。
+     */
+    @Getter
+    public static final class CellTarget {
+        private final int row;
+        private final int col;
+        private final CompiledSource[] sources;
+
+        CellTarget(int row, int col, CompiledSource[] sources) {
+            this.row = row;
+            this.col = col;
+            this.sources = sources;
+        }
+
+        /*
+         * 写为数值时使用的 Excel 数字格式；目标单元格不能写为数值时返回 null。
+         */
+        public String getNumericFormat() {
+            return sources.length == 1 ? sources[0].getDataFormat() : null;
+        }
+    }
+
+    /*
+     * 描述: 一个源规则的编译形式：槽位 + 格式化参数。
+     *       每个源持有自己的 ValueFormatter，同一请求内重复出现的值（如 "PASS"）只格式化一次。
+     *       dataFormat 是与文本显示一致的 Excel 数字格式，不能写为数值时为 null。
+     */
+    @Getter
+    public static final class CompiledSource {
+        private final int slot;
+        private final Integer decimals;
+        private final String unit;
+        private final String dataFormat;
+        private final ValueFormatter formatter;
+
+        CompiledSource(int slot, Integer decimals, String unit) {
+            this.slot = slot;
+            this.decimals = decimals;
+            this.unit = unit;
+            this.dataFormat = ValueFormatter.dataFormat(decimals, unit);
+            this.formatter = new ValueFormatter(decimals, unit);
+        }
+
+        public String format(String rawValue) {
+            return formatter.format(rawValue);
+        }
+
+        public Double toNumber(String rawValue) {
+            return formatter.toNumber(rawValue);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/OrderedTaskPipeline.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/*
+ * 描述: 有序的并行任务管道。
+ *       任务在线程池中并行执行，结果按任务提交顺序逐个交给单线程的消费者（例如 zip 写入器），
+ *       因此输出顺序是确定的。同时在途的任务数和已完成但尚未消费的结果大小都受预算限制：
+ *       每个任务按"已完成结果的平均大小"估算占用，预算用尽时暂停提交，
+ *       队首任务始终允许提交，保证预算小于单个结果时也不会死锁。
+ *       任务失败或消费者抛出异常时，尚未开始的任务不再执行，run() 等待正在执行的任务结束后才返回，
+ *       因此调用方在 run() 返回后可以安全地关闭任务共用的资源（如 SnGrouper、指标）。
+ */
+public class OrderedTaskPipeline<R> {
+
+    /*
+     * 描述: 按顺序消费结果的回调，在调用 run() 的线程上执行。
+     */
+    @FunctionalInterface
+    public interface ResultSink<R> {
+        void accept(R result) throws IOException;
+    }
+
+    /*
+     * 描述: 按需产生任务的来源，返回 null 表示没有更多任务。在调用 run() 的线程上调用，
+     *       因此任务可以按预算逐个创建（例如从磁盘逐个读取 SN 分组），而不必事先全部构建出来。
+     */
+    @FunctionalInterface
+    public interface TaskSource<R> {
+        Callable<R> next() throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final int maxInFlightTasks;
+    private final long maxInFlightBytes;
+    private final ToLongFunction<R> weigher;
+
+    /*
+     * @param executor         执行任务的线程池
+     * @param maxInFlightTasks 同时提交（执行中或等待消费）的最大任务数
+     * @param maxInFlightBytes 在途结果的内存预算（字节）
+     * @param weigher          计算单个结果占用字节数的函数
+     */
+    public OrderedTaskPipeline(ExecutorService executor, int maxInFlightTasks, long maxInFlightBytes,
+                               ToLongFunction<R> weigher) {
+        this.executor = executor;
+        this.maxInFlightTasks = Math.max(1, maxInFlightTasks);
+        this.maxInFlightBytes = Math.max(1, maxInFlightBytes);
+        this.weigher = weigher;
+    }
+
+    /*
+     * 执行所有任务，并按顺序把结果交给 sink。任何任务失败时取消剩余任务，等待正在执行的任务结束后抛出异常。
+     * @param initialEstimate 在没有任何结果完成之前，单个结果的估算大小
+     */
+    public void run(TaskSource<R> tasks, long initialEstimate, ResultSink<R> sink) throws IOException {
+        RunningTasks running = new RunningTasks();
+        Deque<TrackedTask<R>> inFlightTasks = new ArrayDeque<>();
+        Deque<Future<R>> inFlight = new ArrayDeque<>();
+        Deque<Long> reserved = new ArrayDeque<>();
+        long reservedBytes = 0;
+        long completedBytes = 0;
+        int completedCount = 0;
+        Callable<R> next = tasks.next();
+
+        try {
+            while (next != null || !inFlight.isEmpty()) {
+                long estimate = completedCount == 0 ? Math.max(1, initialEstimate) : Math.max(1, completedBytes / completedCount);
+                while (next != null && inFlight.size() < maxInFlightTasks
+                        && (inFlight.isEmpty() || reservedBytes + estimate <= maxInFlightBytes)) {
+                    TrackedTask<R> task = new TrackedTask<>(next, running);
+                    inFlight.addLast(executor.submit(task));
+                    inFlightTasks.addLast(task);
+                    reserved.addLast(estimate);
+                    reservedBytes += estimate;
+                    next = tasks.next();
+                }
+
+                R result = await(inFlight.peekFirst());
+                inFlight.removeFirst();
+                inFlightTasks.removeFirst();
+                reservedBytes -= reserved.removeFirst();
+                completedBytes += weigher.applyAsLong(result);
+                completedCount++;
+
+                sink.accept(result);
+            }
+        } finally {
+            // 正常结束时队列为空；异常时放弃尚未开始的任务，中断并等待正在执行的任务
+            if (!inFlight.isEmpty()) {
+                running.abandon(inFlightTasks);
+                for (Future<R> future : inFlight) {
+                    future.cancel(true);
+                }
+                running.awaitNone();
+            }
+        }
+    }
+
+    private R await(Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("报告生成任务被中断。");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("报告生成任务失败。", cause);
+        }
+    }
+
+    /*
+     * 描述: 一次 run() 中正在执行的任务数。任务的开始和放弃在同一把锁下判定，
+     *       放弃之后不会再有任务开始，awaitNone() 返回时所有已开始的任务都已结束。
+     */
+    private static final class RunningTasks {
+        private int count;
+
+        synchronized boolean start(TrackedTask<?> task) {
+            if (!task.state.compareAndSet(TrackedTask.PENDING, TrackedTask.RUNNING)) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        synchronized void finish(TrackedTask<?> task) {
+            task.state.set(TrackedTask.DONE);
+            count--;
+            notifyAll();
+        }
+
+        synchronized void abandon(Iterable<? extends TrackedTask<?>> tasks) {
+            for (TrackedTask<?> task : tasks) {
+                task.state.compareAndSet(TrackedTask.PENDING, TrackedTask.DONE);
+            }
+        }
+
+        /*
+         * 等待所有已开始的任务结束。等待期间的中断被推迟到返回之后，避免任务仍在使用调用方即将关闭的资源。
+         */
+        synchronized void awaitNone() {
+            // 先清除中断标志（例如 await 被中断时已重新设置），否则 wait() 会立即抛出
+            boolean interrupted = Thread.interrupted();
+            while (count > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * 描述: 提交到线程池的任务包装：记录任务是否已开始，已被放弃的任务即使被线程池执行也直接返回。
+     */
+    private static final class TrackedTask<R> implements Callable<R> {
+        static final int PENDING = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        private final Callable<R> task;
+        private final RunningTasks running;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        TrackedTask(Callable<R> task, RunningTasks running) {
+            this.task = task;
+            this.running = running;
+        }
+
+        @Override
+        public R call() throws Exception {
+            if (!running.start(this)) {
+                return null;
+            }
+            try {
+                return task.call();
+            } finally {
+                running.finish(this);
+            }
+        }
+    }
+}
@@ -9,20 +9,11 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 public class PoiHelper {
 
     public static void setCellValue(Sheet sheet, int rowIndex, int colIndex, Object value) {
-        Row row = sheet.getRow(rowIndex);
-        if (row == null) {
-            row = sheet.createRow(rowIndex);
-        }
-        Cell cell = row.getCell(colIndex);
-        if (cell == null) {
-            cell = row.createCell(colIndex);
-        }
+        Cell cell = getOrCreateCell(sheet, rowIndex, colIndex);
 
         if (value instanceof String) {
             cell.setCellValue((String) value);
@@ -35,43 +26,33 @@ public class PoiHelper {
         }
     }
 
+    public static Cell getOrCreateCell(Sheet sheet, int rowIndex, int colIndex) {
+        Row row = sheet.getRow(rowIndex);
+        if (row == null) {
+            row = sheet.createRow(rowIndex);
+        }
+        return getOrCreateCell(row, colIndex);
+    }
+
+    public static Cell getOrCreateCell(Row row, int colIndex) {
+        Cell cell = row.getCell(colIndex);
+        if (cell == null) {
+            cell = row.createCell(colIndex);
+        }
+        return cell;
+    }
+
     /**
      * 根据规则格式化要输出的值。
      * 【已修正】移除了单位和数值之间的空格。
+     * 实际格式化由 ValueFormatter 完成：普通小数不再经过 BigDecimal，非数字文本也不再抛出异常。
      * @param actualValue 原始值
      * @param decimals    要保留的小数位数
      * @param unit        要附加的单位
      * @return 格式化后的字符串
      */
     public static String formatValue(String actualValue, Integer decimals, String unit) {
-        if (actualValue == null || actualValue.trim().isEmpty()) {
-            return "";
-        }
-
-        try {
-            BigDecimal numberValue = new BigDecimal(actualValue);
-
-            if (decimals != null && decimals >= 0) {
-                numberValue = numberValue.setScale(decimals, RoundingMode.HALF_UP);
-            }
-
-            String formattedString = numberValue.toPlainString();
-
-            if (unit != null && !unit.trim().isEmpty()) {
-                // 【核心修改点 #1】移除此处的空格
-                return formattedString + unit;
-            } else {
-                return formattedString;
-            }
-
-        } catch (NumberFormatException e) {
-            // 如果无法解析为数字，则直接返回原始值，并附加单位（如果存在）
-            if (unit != null && !unit.trim().isEmpty()) {
-                // 【核心修改点 #2】移除此处的空格
-                return actualValue + unit;
-            }
-            return actualValue;
-        }
+        return ValueFormatter.format(actualValue, decimals, unit);
     }
 
     public static XSSFWorkbook createWorkbookFromTemplate(byte[] templateBytes) throws IOException {
@@ -0,0 +1,66 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/*
+ * 描述: 多工作表模式 (MULTI_SHEET) 中一个 SN 工作表的渲染结果：工作表名，以及与映射计划目标单元格一一对应的最终值。
+ *       值为 Double（数值单元格，按目标的数字格式写入）、String（文本单元格）或 null（没有任何源取到值，不写入）。
+ *       渲染（源值格式化、数值解析、"/" 连接）只依赖映射计划，不访问任何工作簿，可以在工作线程中进行；
+ *       创建后不再修改，由持有输出工作簿的线程通过 MappedCellWriter 写入。
+ */
+public final class RenderedSheet {
+
+    /*
+     * 单个值的估算开销：数组引用 + 对象头。
+     */
+    private static final long ESTIMATED_VALUE_OVERHEAD_BYTES = 24;
+
+    @Getter
+    private final String sheetName;
+
+    private final Object[] values;
+
+    /*
+     * 渲染结果占用内存的粗略估算（字节），用于限制在途结果的总大小。
+     */
+    @Getter
+    private final long estimatedBytes;
+
+    private RenderedSheet(String sheetName, Object[] values, long estimatedBytes) {
+        this.sheetName = sheetName;
+        this.values = values;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /*
+     * 按映射计划渲染一个 SN 的所有目标单元格，规则与 MappedCellWriter.write 相同。
+     * @param numericOutput 是否把单源数值映射渲染为 Double
+     */
+    public static RenderedSheet render(MappingPlan plan, boolean numericOutput, String sheetName, String[] slotValues) {
+        List<MappingPlan.CellTarget> targets = plan.getTargets();
+        Object[] values = new Object[targets.size()];
+        long estimatedBytes = 64 + 2L * sheetName.length();
+        for (int i = 0; i < values.length; i++) {
+            MappingPlan.CellTarget target = targets.get(i);
+            Double number = numericOutput ? plan.renderNumber(target, slotValues) : null;
+            if (number != null) {
+                values[i] = number;
+                estimatedBytes += ESTIMATED_VALUE_OVERHEAD_BYTES;
+                continue;
+            }
+            String text = plan.renderCell(target, slotValues);
+            values[i] = text;
+            estimatedBytes += text == null ? 8 : ESTIMATED_VALUE_OVERHEAD_BYTES + 2L * text.length();
+        }
+        return new RenderedSheet(sheetName, values, estimatedBytes);
+    }
+
+    /*
+     * 第 index 个目标单元格的值，顺序与 MappingPlan.getTargets() 相同。
+     */
+    Object valueAt(int index) {
+        return values[index];
+    }
+}
@@ -1,324 +1,650 @@
 // src/main/java/com/obsidian/reportgeneratorbackend/service/ReportGenerationService.java
 package com.obsidian.reportgeneratorbackend.service;
 
-import com.obsidian.reportgeneratorbackend.dto.LogRecord;
-import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping; // <-- Import a nova classe
+import com.obsidian.reportgeneratorbackend.config.ReportExecutorConfig;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
 import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFDrawing;
-import org.apache.poi.xssf.usermodel.XSSFShape;
-import org.apache.poi.xssf.usermodel.XSSFPicture;
-import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
-import org.apache.poi.xssf.usermodel.XSSFPictureData;
 
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList; // <-- Adicionar import
-import java.util.HashSet;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutorService;
 
 /*
  * 描述: 报告生成的核心服务类。
  *       它作为“哑处理器”，严格按照前端提供的指令执行操作。
  */
+@Slf4j
 @Service
 public class ReportGenerationService {
 
-    private static final String SN_MAPPING_KEY = "[SN] (序列号)";
+    private final ReportProperties properties;
 
-    public byte[] generateReport(ReportGenerationRequest request, byte[] templateBytes) throws IOException {
-        if (request == null || request.getLogData() == null || request.getMappingRules() == null) {
+    private final ExecutorService workerExecutor;
+
+    private final ReportMetrics metrics;
+
+    public ReportGenerationService(ReportProperties properties,
+                                   @Qualifier(ReportExecutorConfig.REPORT_WORKER_EXECUTOR) ExecutorService workerExecutor,
+                                   ReportMetrics metrics) {
+        this.properties = properties;
+        this.workerExecutor = workerExecutor;
+        this.metrics = metrics;
+    }
+
+    /*
+     * 校验请求数据。控制器在开始写响应之前调用，以便仍能返回 400。
+     */
+    public void validate(ReportGenerationRequest request) {
+        if (request == null) {
             throw new IllegalArgumentException("报告生成请求数据无效。");
         }
-        if (templateBytes == null || templateBytes.length == 0) {
-            throw new IllegalArgumentException("Excel模板文件字节为空。");
-        }
+        validate(request.getExportMode(), request.getMappingRules(), request.getSummary(),
+                request.getLogData() != null);
+    }
 
-        switch (request.getExportMode()) {
-            case SINGLE_SHEET:
-                return generateSingleSheetReport(request, templateBytes);
-            case ZIP_FILES:
-                return generateZipFilesReport(request, templateBytes);
-            case MULTI_SHEET:
-                return generateMultiSheetReport(request, templateBytes);
-            default:
-                throw new IllegalArgumentException("未知的导出模式: " + request.getExportMode());
+    public void validate(StreamingReportRequest request) {
+        validate(request.getExportMode(), request.getMappingRules(), request.getSummary(),
+                request.isLogDataPresent());
+    }
+
+    public void validate(TabularReportRequest request) {
+        validate(request.getExportMode(), request.getMappingRules(), request.getSummary(), true);
+    }
+
+    private static void validate(ExportMode exportMode, Map<String, SingleCellMapping> mappingRules,
+                                 SummaryMapping summary, boolean logDataPresent) {
+        if (!logDataPresent || mappingRules == null) {
+            throw new IllegalArgumentException("报告生成请求数据无效。");
         }
+        if (exportMode == null) {
+            throw new IllegalArgumentException("未指定导出模式。");
+        }
+        SummaryStatistics.validate(summary);
     }
 
-    private byte[] generateSingleSheetReport(ReportGenerationRequest request, byte[] templateBytes) throws IOException {
-        try (XSSFWorkbook workbook = PoiHelper.createWorkbookFromTemplate(templateBytes);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    /*
+     * 使用未缓存的模板字节生成报告（模板在本次调用中解析一次）。
+     */
+    public void generateReport(ReportGenerationRequest request, byte[] templateBytes, OutputStream out) throws IOException {
+        validate(request);
+        long start = System.nanoTime();
+        TemplateSnapshot template = TemplateSnapshot.parse(templateBytes);
+        metrics.recordTemplateParse(start);
+        generateReport(request, template, out);
+    }
 
-            Sheet sheet = workbook.getSheetAt(0);
+    /*
+     * 生成报告并直接写入给定的输出流（例如 Servlet 响应流），不在内存中缓冲整个结果。
+     * 输出流由调用方负责关闭。
+     * @param template 预解析的模板快照，通常来自 TemplateRegistry
+     */
+    public void generateReport(ReportGenerationRequest request, TemplateSnapshot template, OutputStream out) throws IOException {
+        generateReport(request, template, out, ReportProgressListener.NONE);
+    }
 
-            for (int i = 0; i < request.getLogData().size(); i++) {
-                LogRecord record = request.getLogData().get(i);
-                fillDataForRecord(sheet, request.getMappingRules(), record, i);
-            }
+    /*
+     * 同上，并通过 progress 报告已处理的记录数（单表）或 SN 数（ZIP / 多工作表）。
+     */
+    public void generateReport(ReportGenerationRequest request, TemplateSnapshot template, OutputStream out,
+                               ReportProgressListener progress) throws IOException {
+        validate(request);
+        generateReport(request.getExportMode(), request.getMappingRules(), request.getSummary(),
+                LogRecordCursor.of(request.getLogData()), template, out, progress, true);
+    }
+
+    /*
+     * 在工作线程池的任务中生成报告（例如批量请求中的一项）。
+     * ZIP 模式不再向同一个线程池提交子任务，池中的任务始终是叶子任务，不会互相等待。
+     */
+    void generateReportInWorker(ReportGenerationRequest request, TemplateSnapshot template, OutputStream out) throws IOException {
+        validate(request);
+        generateReport(request.getExportMode(), request.getMappingRules(), request.getSummary(),
+                LogRecordCursor.of(request.getLogData()), template, out, ReportProgressListener.NONE, false);
+    }
+
+    /*
+     * 使用流式读取的请求生成报告，记录在生成过程中逐条从请求体中解析。请求由调用方负责关闭。
+     */
+    public void generateReport(StreamingReportRequest request, TemplateSnapshot template, OutputStream out,
+                               ReportProgressListener progress) throws IOException {
+        validate(request);
+        generateReport(request.getExportMode(), request.getMappingRules(), request.getSummary(), request, template,
+                out, progress, true);
+    }
 
-            workbook.write(baos);
-            return baos.toByteArray();
+    /*
+     * 使用 CSV / TSV 日志数据的请求生成报告，记录在生成过程中逐行解析。请求由调用方负责关闭。
+     */
+    public void generateReport(TabularReportRequest request, TemplateSnapshot template, OutputStream out,
+                               ReportProgressListener progress) throws IOException {
+        validate(request);
+        generateReport(request.getExportMode(), request.getMappingRules(), request.getSummary(), request, template,
+                out, progress, true);
+    }
+
+    /*
+     * @param summary         汇总表布局，不输出汇总表时为 null
+     * @param parallelAllowed 是否允许把工作分发到工作线程池（已在池中运行时为 false）
+     */
+    private void generateReport(ExportMode exportMode, Map<String, SingleCellMapping> mappingRules,
+                                SummaryMapping summary, LogRecordCursor records, TemplateSnapshot template,
+                                OutputStream out, ReportProgressListener progress,
+                                boolean parallelAllowed) throws IOException {
+        // 汇总的测试项也分配槽位，读取记录时一并取值
+        MappingPlan plan = MappingPlan.compile(mappingRules, SummaryStatistics.itemNames(summary));
+        SummaryStatistics statistics = SummaryStatistics.create(summary, plan);
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+
+        try (ReportMetrics.Generation generation = metrics.begin(exportMode, template)) {
+            try {
+                switch (exportMode) {
+                    case SINGLE_SHEET:
+                        generateSingleSheetReport(plan, statistics, records, template, countingOut, progress,
+                                generation);
+                        break;
+                    case ZIP_FILES:
+                        generateZipFilesReport(plan, statistics, records, template, countingOut, progress,
+                                generation, parallelAllowed);
+                        break;
+                    case MULTI_SHEET:
+                        generateMultiSheetReport(plan, statistics, records, template, countingOut, progress,
+                                generation, parallelAllowed);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的导出模式: " + exportMode);
+                }
+                generation.succeeded();
+            } catch (IOException | RuntimeException e) {
+                generation.failed(e);
+                // 各入口（同步接口、异步任务、批量）的生成失败都在这里记录一次，调用方只记录摘要
+                log.warn("报告生成失败（导出模式 {}）", exportMode, e);
+                throw e;
+            } finally {
+                generation.bytes(countingOut.getByteCount());
+            }
         }
     }
 
-    private byte[] generateZipFilesReport(ReportGenerationRequest request, byte[] templateBytes) throws IOException {
-        Map<String, List<LogRecord>> groupedBySn = request.getLogData().stream()
-                .filter(record -> record.getSn() != null && !record.getSn().isEmpty())
-                .collect(Collectors.groupingBy(LogRecord::getSn));
+    private void generateSingleSheetReport(MappingPlan plan, SummaryStatistics statistics, LogRecordCursor records,
+                                           TemplateSnapshot template, OutputStream out,
+                                           ReportProgressListener progress,
+                                           ReportMetrics.Generation generation) throws IOException {
+        progress.started(records.size());
+
+        // 每条记录占用一列（列偏移即记录序号），而输出按行写出，每一行都要用到所有记录的值，
+        // 因此记录的源值要全部读入后才能开始写出。列数受 Excel 上限约束，记录数和这里的内存也因此有界；
+        // 超出时在读取过程中立即失败，而不是读完所有记录后才在写单元格时失败
+        int maxRecords = maxSingleSheetRecords(plan);
+        if (records.size() > maxRecords) {
+            throw tooManySingleSheetRecords(maxRecords);
+        }
 
-        try (ByteArrayOutputStream zipBaos = new ByteArrayOutputStream();
-             ZipOutputStream zos = new ZipOutputStream(zipBaos)) {
+        // 逐条读取记录并只保留映射需要的源值，原始记录读完即可丢弃；汇总统计在同一遍中累加
+        List<String[]> recordSlots = new ArrayList<>(Math.max(0, (int) records.size()));
+        for (ResolvedRecord record = records.nextResolved(plan); record != null; record = records.nextResolved(plan)) {
+            if (recordSlots.size() == maxRecords) {
+                throw tooManySingleSheetRecords(maxRecords);
+            }
+            if (statistics != null) {
+                statistics.accept(record.getSlotValues());
+            }
+            recordSlots.add(record.getSlotValues());
+            progress.advanced(1);
+        }
+        generation.records(recordSlots.size());
+        // 每个槽位按一个引用加一个约 48 字节的短字符串估算
+        generation.addEstimatedHeap(recordSlots.size() * (16L + 56L * plan.getSlotCount()));
+
+        long start = System.nanoTime();
+        try (XSSFWorkbook workbook = PoiHelper.createWorkbookFromTemplate(template.getBytes())) {
+            generation.stage(ReportMetrics.Stage.TEMPLATE_PARSE, start);
+            // 汇总工作表排在模板工作表之后，流式写出时作为普通工作表原样输出
+            addSummarySheet(workbook, statistics, generation);
+
+            if (useStreamingSingleSheet(recordSlots.size())) {
+                // 大报告：按行优先顺序流式写出
+                start = System.nanoTime();
+                long written = new SingleSheetStreamingWriter(properties.getSingleSheet().getRowAccessWindow(),
+                        properties.getCellOutput().isNumericEnabled())
+                        .write(workbook, plan, recordSlots, out);
+                generation.stage(ReportMetrics.Stage.STREAMING_WRITE, start);
+                generation.cells(written);
+                return;
+            }
 
-            for (Map.Entry<String, List<LogRecord>> entry : groupedBySn.entrySet()) {
-                String sn = entry.getKey();
-                List<LogRecord> recordsForThisSn = entry.getValue();
+            Sheet sheet = workbook.getSheetAt(0);
+            MappedCellWriter cells = newCellWriter(workbook, plan);
 
-                LogRecord mergedRecord = new LogRecord();
-                mergedRecord.setSn(sn);
+            start = System.nanoTime();
+            long written = 0;
+            for (int i = 0; i < recordSlots.size(); i++) {
+                written += fillDataForRecord(sheet, cells, recordSlots.get(i), i);
+            }
+            generation.stage(ReportMetrics.Stage.FILL, start);
+            generation.cells(written);
 
-                List<com.obsidian.reportgeneratorbackend.dto.DetailedItem> allItems = recordsForThisSn.stream()
-                        .filter(r -> r.getDetailedItems() != null)
-                        .flatMap(r -> r.getDetailedItems().stream())
-                        .collect(Collectors.toList());
-                mergedRecord.setDetailedItems(allItems);
+            start = System.nanoTime();
+            workbook.write(out);
+            generation.stage(ReportMetrics.Stage.WORKBOOK_WRITE, start);
+        }
+    }
 
-                try (XSSFWorkbook singleRecordWorkbook = PoiHelper.createWorkbookFromTemplate(templateBytes);
-                     ByteArrayOutputStream singleExcelBaos = new ByteArrayOutputStream()) {
+    /*
+     * 在输出工作簿末尾添加汇总工作表（如果请求了汇总）。
+     */
+    private static void addSummarySheet(Workbook workbook, SummaryStatistics statistics,
+                                        ReportMetrics.Generation generation) {
+        if (statistics != null) {
+            long start = System.nanoTime();
+            generation.cells(statistics.addTo(workbook));
+            generation.stage(ReportMetrics.Stage.FILL, start);
+        }
+    }
 
-                    Sheet sheet = singleRecordWorkbook.getSheetAt(0);
-                    fillDataForRecord(sheet, request.getMappingRules(), mergedRecord, 0);
-                    singleRecordWorkbook.write(singleExcelBaos);
+    /*
+     * 单表模式最多能容纳的记录数：最右侧的目标列加上列偏移不能超过 Excel 的最后一列（XFD）。
+     */
+    static int maxSingleSheetRecords(MappingPlan plan) {
+        int maxCol = -1;
+        for (MappingPlan.CellTarget target : plan.getTargets()) {
+            maxCol = Math.max(maxCol, target.getCol());
+        }
+        if (maxCol < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, SpreadsheetVersion.EXCEL2007.getLastColumnIndex() - maxCol + 1);
+    }
+
+    private static IllegalArgumentException tooManySingleSheetRecords(int maxRecords) {
+        return new IllegalArgumentException("单表模式每条记录占用一列，按当前映射规则最多支持 " + maxRecords
+                + " 条记录（Excel 最多 " + SpreadsheetVersion.EXCEL2007.getMaxColumns() + " 列），请改用多工作表或 ZIP 模式。");
+    }
+
+    private boolean useStreamingSingleSheet(int recordCount) {
+        ReportProperties.SingleSheet config = properties.getSingleSheet();
+        return config.isStreamingEnabled() && recordCount >= config.getStreamingThreshold();
+    }
 
-                    String safeSn = sn.replaceAll("[\\\\/:*?\"<>|]", "_");
-                    ZipEntry zipEntry = new ZipEntry(safeSn + ".xlsx");
-                    zos.putNextEntry(zipEntry);
-                    zos.write(singleExcelBaos.toByteArray());
-                    zos.closeEntry();
+    private void generateZipFilesReport(MappingPlan plan, SummaryStatistics statistics, LogRecordCursor records,
+                                        TemplateSnapshot template, OutputStream out,
+                                        ReportProgressListener progress, ReportMetrics.Generation generation,
+                                        boolean parallelAllowed) throws IOException {
+        try (SnGrouper groupedBySn = groupBySn(plan, statistics, records, generation)) {
+            progress.started(groupedBySn.size());
+
+            // 模板和映射允许时直接修补工作表 XML，不再为每个 SN 加载完整的工作簿
+            TemplateSheetPatcher patcher = properties.getZip().isPatchEnabled()
+                    ? TemplateSheetPatcher.create(template, plan, properties.getCellOutput().isNumericEnabled())
+                    : null;
+
+            // 不关闭底层输出流；finish() 会写出中央目录
+            ReportZipWriter zip = new ReportZipWriter(out, properties.getZip());
+            if (parallelAllowed && useParallelZip(groupedBySn.size())) {
+                writeZipEntriesInParallel(zip, plan, groupedBySn, template, patcher, progress, generation);
+            } else {
+                for (SnGrouper.SnGroup group = groupedBySn.nextGroup(); group != null; group = groupedBySn.nextGroup()) {
+                    long start = System.nanoTime();
+                    if (patcher != null) {
+                        // 循环变量会被重新赋值，不能直接在 lambda 中使用
+                        SnGrouper.SnGroup current = group;
+                        zip.write(zipEntryName(current.getSn()),
+                                entryOut -> generation.cells(patcher.write(current.getSlotValues(), entryOut)));
+                        generation.stage(ReportMetrics.Stage.TEMPLATE_PATCH, start);
+                        progress.advanced(1);
+                        continue;
+                    }
+                    try (XSSFWorkbook singleRecordWorkbook = PoiHelper.createWorkbookFromTemplate(template.getBytes())) {
+                        generation.stage(ReportMetrics.Stage.TEMPLATE_PARSE, start);
+
+                        start = System.nanoTime();
+                        Sheet sheet = singleRecordWorkbook.getSheetAt(0);
+                        generation.cells(fillDataForRecord(sheet, newCellWriter(singleRecordWorkbook, plan),
+                                group.getSlotValues(), 0));
+                        generation.stage(ReportMetrics.Stage.FILL, start);
+
+                        start = System.nanoTime();
+                        // deflate 条目直接写入压缩包；STORED 条目需要事先知道 CRC，由写入器缓冲
+                        zip.write(zipEntryName(group.getSn()), singleRecordWorkbook::write);
+                        generation.stage(ReportMetrics.Stage.ZIP_ENTRY_WRITE, start);
+                    }
+                    progress.advanced(1);
                 }
             }
-            zos.finish();
-            zos.close();
-
-            return zipBaos.toByteArray();
+            if (statistics != null) {
+                // 汇总表作为最后一个条目，与各 SN 的报告放在同一个压缩包中
+                long start = System.nanoTime();
+                zip.write(zipEntryName(statistics.getSheetName()), statistics::writeWorkbook);
+                generation.stage(ReportMetrics.Stage.ZIP_ENTRY_WRITE, start);
+            }
+            zip.finish();
         }
     }
 
-    private byte[] generateMultiSheetReport(ReportGenerationRequest request, byte[] templateBytes) throws IOException {
-        Map<String, List<LogRecord>> groupedBySn = request.getLogData().stream()
-                .filter(record -> record.getSn() != null && !record.getSn().isEmpty())
-                .collect(Collectors.groupingBy(LogRecord::getSn));
-
-        try (XSSFWorkbook templateWorkbook = PoiHelper.createWorkbookFromTemplate(templateBytes);
-             XSSFWorkbook outputWorkbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    /*
+     * @param entryCount 条目数，未知时为 -1（分组发生过溢出，说明条目很多）
+     */
+    private boolean useParallelZip(long entryCount) {
+        return properties.getZip().isParallelEnabled()
+                && properties.getWorker().effectiveParallelism() > 1
+                && (entryCount < 0 || entryCount > 1);
+    }
 
-            Sheet templateSheet = templateWorkbook.getSheetAt(0);
-            if (templateSheet == null) {
-                throw new IOException("模板文件不包含任何工作表。");
+    /*
+     * 在工作线程池中并行填充并序列化每个 SN 的工作簿（连同条目的 CRC 和压缩），由当前线程按 SN 顺序依次写入 zip。
+     * 已序列化但尚未写出的条目总大小受 report.zip.max-in-flight-bytes 限制。
+     * 分组在提交任务时才逐个读取，不会为所有 SN 预先构建任务。
+     */
+    private void writeZipEntriesInParallel(ReportZipWriter zip, MappingPlan plan, SnGrouper groupedBySn,
+                                           TemplateSnapshot template, TemplateSheetPatcher patcher,
+                                           ReportProgressListener progress,
+                                           ReportMetrics.Generation generation) throws IOException {
+        OrderedTaskPipeline.TaskSource<ReportZipWriter.PreparedEntry> tasks = () -> {
+            SnGrouper.SnGroup group = groupedBySn.nextGroup();
+            if (group == null) {
+                return null;
             }
+            if (patcher != null) {
+                return () -> {
+                    long start = System.nanoTime();
+                    ByteArrayOutputStream singleExcelBaos = new ByteArrayOutputStream(template.getBytes().length + 4096);
+                    generation.cells(patcher.write(group.getSlotValues(), singleExcelBaos));
+                    generation.stage(ReportMetrics.Stage.TEMPLATE_PATCH, start);
+                    return prepareZipEntry(zip, zipEntryName(group.getSn()), singleExcelBaos.toByteArray(),
+                            generation);
+                };
+            }
+            return () -> {
+                long start = System.nanoTime();
+                try (XSSFWorkbook singleRecordWorkbook = PoiHelper.createWorkbookFromTemplate(template.getBytes());
+                     ByteArrayOutputStream singleExcelBaos = new ByteArrayOutputStream()) {
+                    generation.stage(ReportMetrics.Stage.TEMPLATE_PARSE, start);
 
-            for (Map.Entry<String, List<LogRecord>> entry : groupedBySn.entrySet()) {
-                String sn = entry.getKey();
-                List<LogRecord> recordsForThisSn = entry.getValue();
+                    start = System.nanoTime();
+                    Sheet sheet = singleRecordWorkbook.getSheetAt(0);
+                    generation.cells(fillDataForRecord(sheet, newCellWriter(singleRecordWorkbook, plan),
+                            group.getSlotValues(), 0));
+                    generation.stage(ReportMetrics.Stage.FILL, start);
 
-                String sheetName = sn.replaceAll("[\\\\/*?\\[\\]:]", "_");
-                if (sheetName.length() > 31) {
-                    sheetName = sheetName.substring(0, 31);
+                    start = System.nanoTime();
+                    singleRecordWorkbook.write(singleExcelBaos);
+                    generation.stage(ReportMetrics.Stage.WORKBOOK_WRITE, start);
+                    return prepareZipEntry(zip, zipEntryName(group.getSn()), singleExcelBaos.toByteArray(),
+                            generation);
                 }
-                Sheet newSheet = outputWorkbook.createSheet(sheetName);
-                copySheetContent(templateSheet, newSheet, outputWorkbook);
+            };
+        };
+
+        int parallelism = properties.getWorker().effectiveParallelism();
+        OrderedTaskPipeline<ReportZipWriter.PreparedEntry> pipeline = new OrderedTaskPipeline<>(
+                workerExecutor, parallelism * 2, properties.getZip().getMaxInFlightBytes(),
+                ReportZipWriter.PreparedEntry::getCompressedSize);
+        pipeline.run(tasks, template.getBytes().length, entry -> {
+            long start = System.nanoTime();
+            zip.write(entry);
+            generation.stage(ReportMetrics.Stage.ZIP_ENTRY_WRITE, start);
+            progress.advanced(1);
+        });
+    }
 
-                LogRecord mergedRecord = new LogRecord();
-                mergedRecord.setSn(sn);
+    /*
+     * 在工作线程中计算条目的 CRC 并按需压缩。
+     */
+    private static ReportZipWriter.PreparedEntry prepareZipEntry(ReportZipWriter zip, String name, byte[] data,
+                                                                ReportMetrics.Generation generation) {
+        long start = System.nanoTime();
+        ReportZipWriter.PreparedEntry entry = zip.prepare(name, data);
+        generation.stage(ReportMetrics.Stage.ZIP_ENTRY_WRITE, start);
+        return entry;
+    }
 
-                List<com.obsidian.reportgeneratorbackend.dto.DetailedItem> allItems = recordsForThisSn.stream()
-                        .filter(r -> r.getDetailedItems() != null)
-                        .flatMap(r -> r.getDetailedItems().stream())
-                        .collect(Collectors.toList());
-                mergedRecord.setDetailedItems(allItems);
+    private static String zipEntryName(String sn) {
+        String safeSn = sn.replaceAll("[\\\\/:*?\"<>|]", "_");
+        return safeSn + ".xlsx";
+    }
 
-                fillDataForRecord(newSheet, request.getMappingRules(), mergedRecord, 0);
+    /*
+     * 读入所有记录并按 SN 分组，忽略没有 SN 的记录。分组按 SN 排序输出，保证 zip 条目、工作表的顺序是确定的。
+     * 分组超出 report.grouping.memory-budget-bytes 时溢出到临时文件，返回的分组器由调用方关闭。
+     * 请求了汇总时，每条记录在加入分组之前累加到 statistics。
+     */
+    private SnGrouper groupBySn(MappingPlan plan, SummaryStatistics statistics, LogRecordCursor records,
+                                ReportMetrics.Generation generation) throws IOException {
+        ReportProperties.Grouping config = properties.getGrouping();
+        long start = System.nanoTime();
+        SnGrouper grouper = new SnGrouper(plan, config.getMemoryBudgetBytes(), Paths.get(config.getSpillDir()));
+        try {
+            long recordCount = 0;
+            for (ResolvedRecord record = records.nextResolved(plan); record != null; record = records.nextResolved(plan)) {
+                if (statistics != null) {
+                    statistics.accept(record.getSlotValues());
+                }
+                grouper.add(record);
+                recordCount++;
             }
+            generation.stage(ReportMetrics.Stage.SN_GROUPING, start);
+            generation.records(recordCount);
+            generation.addEstimatedHeap(grouper.getEstimatedBytes());
+            return grouper;
+        } catch (IOException | RuntimeException e) {
+            grouper.close();
+            throw e;
+        }
+    }
 
-            outputWorkbook.write(baos);
-            return baos.toByteArray();
+    private void generateMultiSheetReport(MappingPlan plan, SummaryStatistics statistics, LogRecordCursor records,
+                                          TemplateSnapshot template, OutputStream out,
+                                          ReportProgressListener progress, ReportMetrics.Generation generation,
+                                          boolean parallelAllowed) throws IOException {
+        try (SnGrouper groupedBySn = groupBySn(plan, statistics, records, generation)) {
+            progress.started(groupedBySn.size());
+            boolean parallel = parallelAllowed && useParallelFill(groupedBySn.size());
+            if (properties.getMultiSheet().isPackageCloneEnabled() && template.isFirstSheetCloneable()) {
+                writeClonedSheets(plan, statistics, groupedBySn, template, out, progress, generation, parallel);
+            } else {
+                writeCopiedSheets(plan, statistics, groupedBySn, template, out, progress, generation, parallel);
+            }
         }
     }
 
     /*
-     * 描述: 【V9.0 重写】核心数据填充逻辑，支持多源到一格。
-     *       它遍历每个目标单元格，收集所有映射到此单元格的源的值，然后用 " / " 连接并填充。
+     * @param sheetCount 工作表数，未知时为 -1（分组发生过溢出，说明工作表很多）
      */
-    private void fillDataForRecord(Sheet sheet, Map<String, SingleCellMapping> mappingRules, LogRecord record, int recordIndex) {
-        // 遍历每个映射的目标单元格地址
-        mappingRules.forEach((address, cellMapping) -> {
-            // 1. 解析地址
-            String[] addressParts = address.split("_");
-            if (addressParts.length != 2) {
-                System.err.println("警告: 无效的映射地址格式 '" + address + "'。");
-                return; // continue
-            }
-
-            int baseRow, baseCol;
-            try {
-                baseRow = Integer.parseInt(addressParts[0]);
-                baseCol = Integer.parseInt(addressParts[1]);
-            } catch (NumberFormatException e) {
-                System.err.println("警告: 映射地址中的行列索引不是有效的数字 '" + address + "'。");
-                return; // continue
-            }
+    private boolean useParallelFill(long sheetCount) {
+        return properties.getMultiSheet().isParallelFillEnabled()
+                && properties.getWorker().effectiveParallelism() > 1
+                && (sheetCount < 0 || sheetCount > 1);
+    }
 
-            // 2. 准备一个列表来收集该单元格所有源的格式化值
-            List<String> formattedValues = new ArrayList<>();
-
-            // 3. 遍历映射到此单元格的所有源规则
-            if (cellMapping != null && cellMapping.getSources() != null) {
-                cellMapping.getSources().forEach(sourceRule -> {
-                    // 4. 为每个源查找其值
-                    findValueForKey(sourceRule.getSourceKey(), record)
-                            .ifPresent(rawValue -> {
-                                // 5. 使用其独立的规则进行格式化
-                                String formattedValue = PoiHelper.formatValue(
-                                        rawValue,
-                                        sourceRule.getDecimals(),
-                                        sourceRule.getUnit()
-                                );
-                                formattedValues.add(formattedValue);
-                            });
-                });
-            }
+    /*
+     * 输出工作簿由模板字节加载，每个 SN 的工作表是模板第一个工作表在包级别的副本，
+     * 最后删除原有的模板工作表。
+     */
+    private void writeClonedSheets(MappingPlan plan, SummaryStatistics statistics, SnGrouper groupedBySn,
+                                   TemplateSnapshot template, OutputStream out, ReportProgressListener progress,
+                                   ReportMetrics.Generation generation, boolean parallel) throws IOException {
+        long start = System.nanoTime();
+        try (XSSFWorkbook outputWorkbook = PoiHelper.createWorkbookFromTemplate(template.getBytes())) {
+            generation.stage(ReportMetrics.Stage.TEMPLATE_PARSE, start);
+            TemplateSheetCloner cloner = new TemplateSheetCloner(outputWorkbook);
+            MappedCellWriter cells = newCellWriter(outputWorkbook, plan);
+
+            assembleSheets(plan, groupedBySn, parallel, progress, generation, rendered -> {
+                long copyStart = System.nanoTime();
+                Sheet newSheet = cloner.cloneFirstSheet(rendered.getSheetName());
+                generation.stage(ReportMetrics.Stage.COPY_SHEET, copyStart);
+
+                long fillStart = System.nanoTime();
+                generation.cells(cells.write(newSheet, rendered));
+                generation.stage(ReportMetrics.Stage.FILL, fillStart);
+            });
+            cloner.removeTemplateSheets();
+            addSummarySheet(outputWorkbook, statistics, generation);
+
+            start = System.nanoTime();
+            outputWorkbook.write(out);
+            generation.stage(ReportMetrics.Stage.WORKBOOK_WRITE, start);
+        }
+    }
 
-            // 6. 如果收集到了任何值，用 " / " 连接它们
-            if (!formattedValues.isEmpty()) {
-                String finalCellValue = String.join("/", formattedValues);
+    /*
+     * 逐单元格复制模板快照的第一个工作表，用于含有表格、数据透视表、批注、图表、定义的名称或工作表引用等
+     * 不能在包级别克隆的模板（见 TemplateSheetCloner.supports）。
+     */
+    private void writeCopiedSheets(MappingPlan plan, SummaryStatistics statistics, SnGrouper groupedBySn,
+                                   TemplateSnapshot template, OutputStream out, ReportProgressListener progress,
+                                   ReportMetrics.Generation generation, boolean parallel) throws IOException {
+        // 单元格内容取自快照，样式从快照缓存的样式表中克隆，不需要重新解析模板
+        try (XSSFWorkbook outputWorkbook = new XSSFWorkbook()) {
+            // 同一输出工作簿内的所有工作表共享克隆后的样式和图片数据
+            TemplateStyleMapper styleMapper = new TemplateStyleMapper(template.getStyles(), outputWorkbook);
+            SharedPictureRegistry pictures = new SharedPictureRegistry(outputWorkbook);
+            MappedCellWriter cells = newCellWriter(outputWorkbook, plan);
+
+            assembleSheets(plan, groupedBySn, parallel, progress, generation, rendered -> {
+                long copyStart = System.nanoTime();
+                Sheet newSheet = outputWorkbook.createSheet(rendered.getSheetName());
+                copySheetContent(template.getFirstSheet(), newSheet, styleMapper, pictures);
+                generation.stage(ReportMetrics.Stage.COPY_SHEET, copyStart);
+
+                long fillStart = System.nanoTime();
+                generation.cells(cells.write(newSheet, rendered));
+                generation.stage(ReportMetrics.Stage.FILL, fillStart);
+            });
+            addSummarySheet(outputWorkbook, statistics, generation);
+
+            long start = System.nanoTime();
+            outputWorkbook.write(out);
+            generation.stage(ReportMetrics.Stage.WORKBOOK_WRITE, start);
+        }
+    }
 
-                // 7. 计算最终的目标列（考虑单表模式的偏移）
-                int targetCol = baseCol + recordIndex;
+    /*
+     * 按 SN 顺序渲染每个工作表的内容（见 RenderedSheet），并交给 assembler 在当前线程中创建工作表、写入单元格。
+     * 并行时渲染在工作线程池中进行，与当前线程的工作表复制和写入重叠；结果仍按 SN 顺序交付，
+     * 输出工作簿只由当前线程访问，生成的文件与串行时完全相同。
+     * 已渲染但尚未写入的结果总大小受 report.multi-sheet.max-in-flight-bytes 限制。
+     */
+    private void assembleSheets(MappingPlan plan, SnGrouper groupedBySn, boolean parallel,
+                                ReportProgressListener progress, ReportMetrics.Generation generation,
+                                OrderedTaskPipeline.ResultSink<RenderedSheet> assembler) throws IOException {
+        boolean numericOutput = properties.getCellOutput().isNumericEnabled();
+        if (!parallel) {
+            for (SnGrouper.SnGroup group = groupedBySn.nextGroup(); group != null; group = groupedBySn.nextGroup()) {
+                long start = System.nanoTime();
+                RenderedSheet rendered = RenderedSheet.render(plan, numericOutput, sheetNameFor(group.getSn()),
+                        group.getSlotValues());
+                generation.stage(ReportMetrics.Stage.RENDER, start);
+                assembler.accept(rendered);
+                progress.advanced(1);
+            }
+            return;
+        }
 
-                // 8. 设置单元格的值
-                PoiHelper.setCellValue(sheet, baseRow, targetCol, finalCellValue);
+        OrderedTaskPipeline.TaskSource<RenderedSheet> tasks = () -> {
+            SnGrouper.SnGroup group = groupedBySn.nextGroup();
+            if (group == null) {
+                return null;
             }
+            return () -> {
+                long start = System.nanoTime();
+                RenderedSheet rendered = RenderedSheet.render(plan, numericOutput, sheetNameFor(group.getSn()),
+                        group.getSlotValues());
+                generation.stage(ReportMetrics.Stage.RENDER, start);
+                return rendered;
+            };
+        };
+
+        // 渲染远快于工作表复制，多留一些在途任务，让当前线程始终有已渲染的结果可用
+        int parallelism = properties.getWorker().effectiveParallelism();
+        OrderedTaskPipeline<RenderedSheet> pipeline = new OrderedTaskPipeline<>(
+                workerExecutor, parallelism * 4, properties.getMultiSheet().getMaxInFlightBytes(),
+                RenderedSheet::getEstimatedBytes);
+        pipeline.run(tasks, 64L * Math.max(1, plan.getTargets().size()), rendered -> {
+            assembler.accept(rendered);
+            progress.advanced(1);
         });
     }
 
-    private Optional<String> findValueForKey(String sourceKey, LogRecord record) {
-        if (SN_MAPPING_KEY.equals(sourceKey)) {
-            return Optional.ofNullable(record.getSn());
-        }
-        if (record.getDetailedItems() == null) {
-            return Optional.empty();
+    /*
+     * 把 SN 转换为合法的工作表名：替换 Excel 不允许的字符，并截断到 31 个字符。
+     */
+    private static String sheetNameFor(String sn) {
+        String sheetName = sn.replaceAll("[\\\\/*?\\[\\]:]", "_");
+        if (sheetName.length() > 31) {
+            sheetName = sheetName.substring(0, 31);
         }
-        return record.getDetailedItems().stream()
-                .filter(item -> sourceKey.equals(item.getItemName()))
-                .map(item -> item.getActualValue())
-                .findFirst();
-    }
-
-    private void copySheetContent(Sheet sourceSheet, Sheet targetSheet, Workbook targetWorkbook) {
-        int maxCol = 0;
-        for (int i = sourceSheet.getFirstRowNum(); i <= sourceSheet.getLastRowNum(); i++) {
-            Row sourceRow = sourceSheet.getRow(i);
-            if (sourceRow != null && sourceRow.getLastCellNum() > maxCol) {
-                maxCol = sourceRow.getLastCellNum();
+        return sheetName;
+    }
+
+    /*
+     * 为一个输出工作簿创建单元格写入器，同一工作簿内的所有工作表共用。
+     */
+    MappedCellWriter newCellWriter(Workbook workbook, MappingPlan plan) {
+        return new MappedCellWriter(workbook, plan, properties.getCellOutput().isNumericEnabled());
+    }
+
+    /*
+     * 描述: 【V9.0 重写】核心数据填充逻辑，支持多源到一格。
+     *       映射计划中的每个目标单元格按槽位取出该记录的源值，格式化后用 "/" 连接并填充；
+     *       单源数值映射可写为带数字格式的数值单元格，见 MappedCellWriter。
+     *       地址解析与源键查找都已在 MappingPlan 中预先完成。
+     * @return 实际写入的单元格数
+     */
+    int fillDataForRecord(Sheet sheet, MappedCellWriter cells, String[] slotValues, int recordIndex) {
+        int written = 0;
+        for (MappingPlan.CellTarget target : cells.getPlan().getTargets()) {
+            // 计算最终的目标列（考虑单表模式的偏移）
+            if (cells.write(sheet, target, slotValues, recordIndex)) {
+                written++;
             }
         }
+        return written;
+    }
 
-        for (int i = 0; i < maxCol; i++) {
-            targetSheet.setColumnWidth(i, sourceSheet.getColumnWidth(i));
+    /*
+     * 描述: 把模板快照中的第一个工作表（列宽、合并区域、行、单元格、样式、图片）复制到目标工作表。
+     */
+    void copySheetContent(SheetSnapshot source, Sheet targetSheet,
+                          TemplateStyleMapper styleMapper, SharedPictureRegistry pictures) {
+        int[] columnWidths = source.getColumnWidths();
+        for (int i = 0; i < columnWidths.length; i++) {
+            targetSheet.setColumnWidth(i, columnWidths[i]);
         }
-        targetSheet.setDefaultColumnWidth(sourceSheet.getDefaultColumnWidth());
+        targetSheet.setDefaultColumnWidth(source.getDefaultColumnWidth());
 
-        for (int i = 0; i < sourceSheet.getNumMergedRegions(); i++) {
-            targetSheet.addMergedRegion(sourceSheet.getMergedRegion(i));
+        for (CellRangeAddress mergedRegion : source.getMergedRegions()) {
+            targetSheet.addMergedRegion(mergedRegion.copy());
         }
 
-        for (int i = sourceSheet.getFirstRowNum(); i <= sourceSheet.getLastRowNum(); i++) {
-            Row sourceRow = sourceSheet.getRow(i);
-            if (sourceRow != null) {
-                Row targetRow = targetSheet.createRow(i);
-                targetRow.setHeight(sourceRow.getHeight());
-
-                for (int j = sourceRow.getFirstCellNum(); j < sourceRow.getLastCellNum(); j++) {
-                    Cell sourceCell = sourceRow.getCell(j);
-                    if (sourceCell != null) {
-                        Cell targetCell = targetRow.createCell(j, sourceCell.getCellType());
-
-                        switch (sourceCell.getCellType()) {
-                            case STRING:
-                                targetCell.setCellValue(sourceCell.getStringCellValue());
-                                break;
-                            case NUMERIC:
-                                targetCell.setCellValue(sourceCell.getNumericCellValue());
-                                break;
-                            case BOOLEAN:
-                                targetCell.setCellValue(sourceCell.getBooleanCellValue());
-                                break;
-                            case FORMULA:
-                                try {
-                                    targetCell.setCellFormula(sourceCell.getCellFormula());
-                                } catch (Exception e) {
-                                    try {
-                                        if (sourceCell.getCachedFormulaResultType() == CellType.NUMERIC) {
-                                            targetCell.setCellValue(sourceCell.getNumericCellValue());
-                                        } else if (sourceCell.getCachedFormulaResultType() == CellType.STRING) {
-                                            targetCell.setCellValue(sourceCell.getStringCellValue());
-                                        }
-                                    } catch (Exception ignore) {}
-                                }
-                                break;
-                            case BLANK:
-                                break;
-                            case ERROR:
-                                targetCell.setCellErrorValue(sourceCell.getErrorCellValue());
-                                break;
-                            default:
-                                break;
-                        }
-
-                        CellStyle sourceStyle = sourceCell.getCellStyle();
-                        CellStyle targetStyle = targetWorkbook.createCellStyle();
-                        targetStyle.cloneStyleFrom(sourceStyle);
-                        targetCell.setCellStyle(targetStyle);
-                    }
-                }
-            }
+        for (SheetSnapshot.RowData sourceRow : source.getRows()) {
+            sourceRow.restore(targetSheet, styleMapper::map);
         }
 
-        XSSFDrawing sourceDrawing = (XSSFDrawing) sourceSheet.getDrawingPatriarch();
-        if (sourceDrawing != null) {
+        if (!source.getPictures().isEmpty()) {
             XSSFDrawing targetDrawing = (XSSFDrawing) targetSheet.createDrawingPatriarch();
-            for (XSSFShape shape : sourceDrawing.getShapes()) {
-                if (shape instanceof XSSFPicture) {
-                    XSSFPicture sourcePicture = (XSSFPicture) shape;
-                    XSSFPictureData sourcePictureData = sourcePicture.getPictureData();
-                    if (sourcePicture.getAnchor() instanceof XSSFClientAnchor) {
-                        XSSFClientAnchor sourceClientAnchor = (XSSFClientAnchor) sourcePicture.getAnchor();
-                        XSSFClientAnchor targetClientAnchor = new XSSFClientAnchor(
-                                sourceClientAnchor.getDx1(), sourceClientAnchor.getDy1(),
-                                sourceClientAnchor.getDx2(), sourceClientAnchor.getDy2(),
-                                sourceClientAnchor.getCol1(), sourceClientAnchor.getRow1(),
-                                sourceClientAnchor.getCol2(), sourceClientAnchor.getRow2()
-                        );
-                        targetClientAnchor.setAnchorType(sourceClientAnchor.getAnchorType());
-                        int targetPictureIndex = targetWorkbook.addPicture(
-                                sourcePictureData.getData(),
-                                sourcePictureData.getPictureType()
-                        );
-                        targetDrawing.createPicture(targetClientAnchor, targetPictureIndex);
-                    }
-                }
+            for (SheetSnapshot.PictureData sourcePicture : source.getPictures()) {
+                // 图片数据按内容只登记一次，各工作表的绘图引用同一个图片部件
+                int targetPictureIndex = pictures.register(sourcePicture);
+                targetDrawing.createPicture(sourcePicture.newAnchor(), targetPictureIndex);
             }
         }
     }
-}
\ No newline at end of file
+}
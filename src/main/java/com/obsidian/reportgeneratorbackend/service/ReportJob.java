@@ -0,0 +1,153 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/ReportJob.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.ReportJobStatus;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.model.JobState;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 描述: 一个异步报告任务的运行时状态。
+ *       状态字段由工作线程更新、由查询接口读取，因此都声明为 volatile / 原子类型。
+ *       任务本身实现了进度回调，取消后下一次进度回调会抛出 CancellationException 中止生成。
+ */
+public class ReportJob implements ReportProgressListener {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final int priority;
+    @Getter
+    private final long sequence;
+    @Getter
+    private final Instant createdAt = Instant.now();
+
+    /*
+     * 暂存的请求 JSON 文件，任务执行时流式读取，由 ReportJobService 负责删除。
+     */
+    private final Path requestFile;
+    /*
+     * 模板只在任务执行前需要，完成后释放，避免已完成任务继续占用堆内存。
+     */
+    private volatile TemplateSnapshot template;
+    @Getter
+    private final ExportMode exportMode;
+
+    @Getter
+    private volatile JobState state = JobState.QUEUED;
+    private volatile Instant startedAt;
+    @Getter
+    private volatile Instant finishedAt;
+    private volatile String error;
+    @Getter
+    private volatile Path resultFile;
+    private volatile long resultSize = -1;
+
+    private final AtomicLong totalUnits = new AtomicLong(-1);
+    private final AtomicLong processedUnits = new AtomicLong();
+
+    ReportJob(String id, int priority, long sequence, Path requestFile, ExportMode exportMode,
+              TemplateSnapshot template) {
+        this.id = id;
+        this.priority = priority;
+        this.sequence = sequence;
+        this.requestFile = requestFile;
+        this.exportMode = exportMode;
+        this.template = template;
+    }
+
+    Path getRequestFile() {
+        return requestFile;
+    }
+
+    TemplateSnapshot getTemplate() {
+        return template;
+    }
+
+    @Override
+    public void started(long total) {
+        totalUnits.set(total);
+        checkCancelled();
+    }
+
+    @Override
+    public void advanced(long units) {
+        processedUnits.addAndGet(units);
+        checkCancelled();
+    }
+
+    private void checkCancelled() {
+        if (state == JobState.CANCELLED) {
+            throw new CancellationException("报告任务已取消: " + id);
+        }
+    }
+
+    synchronized boolean markRunning() {
+        if (state != JobState.QUEUED) {
+            return false;
+        }
+        state = JobState.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    synchronized void markSucceeded(Path file, long size) {
+        if (state == JobState.RUNNING) {
+            resultFile = file;
+            resultSize = size;
+            state = JobState.SUCCEEDED;
+        }
+        finish();
+    }
+
+    synchronized void markFailed(String message) {
+        if (state == JobState.RUNNING || state == JobState.QUEUED) {
+            error = message;
+            state = JobState.FAILED;
+        }
+        finish();
+    }
+
+    /*
+     * 取消任务。已结束的任务返回 false。
+     */
+    synchronized boolean cancel() {
+        if (state != JobState.QUEUED && state != JobState.RUNNING) {
+            return false;
+        }
+        state = JobState.CANCELLED;
+        finish();
+        return true;
+    }
+
+    private void finish() {
+        if (finishedAt == null) {
+            finishedAt = Instant.now();
+        }
+        template = null;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public ReportJobStatus toStatus() {
+        ReportJobStatus status = new ReportJobStatus();
+        status.setJobId(id);
+        status.setState(state);
+        status.setExportMode(exportMode);
+        status.setProcessedUnits(processedUnits.get());
+        status.setTotalUnits(totalUnits.get());
+        status.setCreatedAt(createdAt);
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setResultSize(resultSize >= 0 ? resultSize : null);
+        status.setError(error);
+        return status;
+    }
+}
@@ -0,0 +1,223 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/ReportJobService.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.exception.JobNotFoundException;
+import com.obsidian.reportgeneratorbackend.exception.ServiceBusyException;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.model.JobState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 描述: 进程内的异步报告任务子系统（单节点，不依赖外部消息队列）。
+ *       - 提交时做准入控制：排队任务数达到上限时直接拒绝 (429)；
+ *       - 请求 JSON 原样暂存到本地目录，执行时流式读取，排队中的任务不占用堆内存；
+ *       - 任务按优先级（高优先）+ 提交顺序排队，由专用线程池执行，不占用 Tomcat 工作线程；
+ *       - 结果写入本地暂存目录，下载时由控制器以文件资源返回（支持 Range）；
+ *       - 结束的任务在 result-ttl 之后连同结果文件一起清理。
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private final ReportGenerationService reportService;
+    private final AdmissionLimiter admission;
+    private final ObjectMapper objectMapper;
+    private final ReportProperties.Jobs config;
+    private final Path spoolDir;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor jobExecutor;
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ReportJobService(ReportGenerationService reportService, AdmissionLimiter admission,
+                            ObjectMapper objectMapper, ReportProperties properties) throws IOException {
+        this.reportService = reportService;
+        this.admission = admission;
+        this.objectMapper = objectMapper;
+        this.config = properties.getJobs();
+        this.spoolDir = Files.createDirectories(Paths.get(config.getSpoolDir()));
+
+        int threads = Math.max(1, config.getWorkerThreads());
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.jobExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /*
+     * 提交一个报告任务。请求 JSON 先暂存到本地，再读取其头部做校验，无效请求直接抛出 IllegalArgumentException。
+     * @param request  请求 JSON（ReportGenerationRequest 结构）
+     * @param priority 优先级，数值越大越先执行；相同优先级按提交顺序执行
+     */
+    public ReportJob submit(InputStreamSource request, TemplateSnapshot template, int priority) throws IOException {
+        // 准入控制：PriorityBlockingQueue 本身无界，用计数器限制排队任务数。在复制请求数据之前检查，队列满时尽早拒绝
+        if (queuedCount.incrementAndGet() > config.getQueueCapacity()) {
+            queuedCount.decrementAndGet();
+            throw new ServiceBusyException("报告任务队列已满，请稍后重试。", config.getRetryAfterSeconds());
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        Path requestFile = spoolDir.resolve(jobId + ".request.json");
+        ExportMode exportMode;
+        try {
+            try (InputStream in = request.getInputStream()) {
+                Files.copy(in, requestFile);
+            }
+            try (StreamingReportRequest header = openRequest(requestFile)) {
+                reportService.validate(header);
+                exportMode = header.getExportMode();
+            }
+        } catch (IOException | RuntimeException e) {
+            queuedCount.decrementAndGet();
+            deleteQuietly(requestFile);
+            throw e;
+        }
+
+        ReportJob job = new ReportJob(jobId, priority, sequence.incrementAndGet(), requestFile, exportMode, template);
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(new JobTask(job));
+        return job;
+    }
+
+    public ReportJob get(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new JobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    /*
+     * 取消并删除任务。排队中的任务不会再执行；运行中的任务在下一次进度回调时中止。
+     */
+    public void delete(String jobId) {
+        ReportJob job = get(jobId);
+        job.cancel();
+        jobs.remove(jobId);
+        deleteQuietly(job.getResultFile());
+    }
+
+    /*
+     * 定期清理已结束且超过保留时间的任务及其结果文件。
+     */
+    @Scheduled(fixedDelayString = "${report.jobs.cleanup-interval-ms:60000}")
+    public void cleanupExpiredJobs() {
+        Instant expiry = Instant.now().minus(config.getResultTtl());
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedAt().isBefore(expiry)) {
+                deleteQuietly(job.getResultFile());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private void run(ReportJob job) {
+        queuedCount.decrementAndGet();
+        if (!job.markRunning()) {
+            deleteQuietly(job.getRequestFile());
+            return; // 排队期间已被取消
+        }
+
+        Path partFile = spoolDir.resolve(job.getId() + ".part");
+        try {
+            // 与同步请求共用准入额度；后台任务不拒绝，而是等到额度足够时再开始生成
+            try (StreamingReportRequest request = openRequest(job.getRequestFile());
+                 AdmissionLimiter.Ticket ticket = admission.admitBlocking(admission.estimate(job.getExportMode(),
+                         job.getTemplate(), Files.size(job.getRequestFile()), request.getMappingRules().size()));
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                reportService.generateReport(request, job.getTemplate(), out, job);
+            }
+            String extension = job.getExportMode() == ExportMode.ZIP_FILES ? ".zip" : ".xlsx";
+            Path resultFile = Files.move(partFile, spoolDir.resolve(job.getId() + extension),
+                    StandardCopyOption.REPLACE_EXISTING);
+            job.markSucceeded(resultFile, Files.size(resultFile));
+            if (job.getState() != JobState.SUCCEEDED) {
+                deleteQuietly(resultFile); // 完成的同时被取消
+            }
+        } catch (CancellationException e) {
+            deleteQuietly(partFile);
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("报告任务 {} 失败: {}", job.getId(), message);
+            job.markFailed(message);
+            deleteQuietly(partFile);
+        } finally {
+            deleteQuietly(job.getRequestFile());
+        }
+    }
+
+    private StreamingReportRequest openRequest(Path requestFile) throws IOException {
+        return StreamingReportRequest.open(new FileSystemResource(requestFile), objectMapper);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("无法删除任务暂存文件 '{}': {}", file, e.getMessage());
+        }
+    }
+
+    /*
+     * 描述: 放入优先级队列的任务包装，按优先级降序、提交顺序升序排列。
+     *       必须通过 execute() 提交（submit() 会包装成不可比较的 FutureTask）。
+     */
+    private final class JobTask implements Runnable, Comparable<JobTask> {
+        private final ReportJob job;
+
+        JobTask(ReportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            ReportJobService.this.run(job);
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            int byPriority = Integer.compare(other.job.getPriority(), job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(job.getSequence(), other.job.getSequence());
+        }
+    }
+}
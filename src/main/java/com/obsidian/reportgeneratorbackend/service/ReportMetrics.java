@@ -0,0 +1,220 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 描述: 报告生成的 Micrometer 指标（通过 /actuator/prometheus 抓取）。
+ *       - report.stage：各阶段耗时（模板解析、SN 分组、填充、模板复制、工作簿写出、zip 条目写出、模板修补），
+ *         按 stage 和 exportMode 区分，带直方图；
+ *       - report.generation：整个报告的耗时，按 exportMode、outcome 以及模板（templateId 前 12 位）区分；
+ *       - report.records / report.cells / report.output.bytes：处理的记录数、写入的单元格数、输出的字节数；
+ *       - report.requests.in-flight / report.requests.in-flight.heap：正在生成的报告数及其估算堆内存占用。
+ *       所有方法都可以被多个线程同时调用。
+ */
+@Component
+public class ReportMetrics {
+
+    /*
+     * 描述: 被计时的生成阶段。
+     */
+    public enum Stage {
+        TEMPLATE_PARSE,
+        SN_GROUPING,
+        FILL,
+        COPY_SHEET,
+        WORKBOOK_WRITE,
+        ZIP_ENTRY_WRITE,
+        /*
+         * 单表模式的 SXSSF 流式输出：填充与写出交替进行，无法分开计时。
+         */
+        STREAMING_WRITE,
+        /*
+         * ZIP 模式的模板修补（TemplateSheetPatcher）：填充与写出在一次拷贝中完成。
+         */
+        TEMPLATE_PATCH,
+        /*
+         * 多工作表模式中单元格值的渲染（RenderedSheet），并行时在工作线程中进行，与工作表复制重叠。
+         */
+        RENDER;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String NO_EXPORT_MODE = "none";
+    private static final int NO_EXPORT_MODE_INDEX = ExportMode.values().length;
+
+    private final MeterRegistry registry;
+    private final boolean templateTagEnabled;
+
+    /*
+     * [stage][exportMode 序号，最后一个为 "none"]
+     */
+    private final Timer[][] stageTimers;
+    private final Counter[] recordCounters;
+    private final Counter[] cellCounters;
+    private final Counter[] byteCounters;
+
+    private final Set<Generation> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ReportMetrics(MeterRegistry registry, ReportProperties properties) {
+        this.registry = registry;
+        this.templateTagEnabled = properties.getMetrics().isTemplateTagEnabled();
+
+        ExportMode[] modes = ExportMode.values();
+        stageTimers = new Timer[Stage.values().length][modes.length + 1];
+        for (Stage stage : Stage.values()) {
+            for (int i = 0; i <= modes.length; i++) {
+                stageTimers[stage.ordinal()][i] = Timer.builder("report.stage")
+                        .description("报告生成各阶段的耗时")
+                        .tag("stage", stage.tag)
+                        .tag("exportMode", i < modes.length ? modeTag(modes[i]) : NO_EXPORT_MODE)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofMinutes(10))
+                        .register(registry);
+            }
+        }
+
+        recordCounters = new Counter[modes.length];
+        cellCounters = new Counter[modes.length];
+        byteCounters = new Counter[modes.length];
+        for (ExportMode mode : modes) {
+            recordCounters[mode.ordinal()] = Counter.builder("report.records")
+                    .description("读入的日志记录数").tag("exportMode", modeTag(mode)).register(registry);
+            cellCounters[mode.ordinal()] = Counter.builder("report.cells")
+                    .description("写入的映射单元格数").tag("exportMode", modeTag(mode)).register(registry);
+            byteCounters[mode.ordinal()] = Counter.builder("report.output.bytes")
+                    .description("输出的报告字节数").baseUnit("bytes").tag("exportMode", modeTag(mode)).register(registry);
+        }
+
+        Gauge.builder("report.requests.in-flight", inFlight, Set::size)
+                .description("正在生成的报告数")
+                .register(registry);
+        Gauge.builder("report.requests.in-flight.heap", this, ReportMetrics::inFlightHeapBytes)
+                .description("正在生成的报告的估算堆内存占用")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /*
+     * 不经过 Spring 使用（例如基准测试）时的实例，指标只记录在内存中。
+     */
+    public static ReportMetrics standalone() {
+        return new ReportMetrics(new SimpleMeterRegistry(), new ReportProperties());
+    }
+
+    /*
+     * 开始生成一个报告，返回的对象在生成结束时关闭。
+     */
+    public Generation begin(ExportMode exportMode, TemplateSnapshot template) {
+        Generation generation = new Generation(exportMode, template);
+        inFlight.add(generation);
+        return generation;
+    }
+
+    /*
+     * 记录与具体导出模式无关的模板解析（例如模板上传）。
+     */
+    public void recordTemplateParse(long startNanos) {
+        stageTimers[Stage.TEMPLATE_PARSE.ordinal()][NO_EXPORT_MODE_INDEX]
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private double inFlightHeapBytes() {
+        long total = 0;
+        for (Generation generation : inFlight) {
+            total += generation.estimatedHeapBytes.get();
+        }
+        return total;
+    }
+
+    private static String modeTag(ExportMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * 描述: 一次报告生成的指标记录。阶段计时用法：
+     *           long start = System.nanoTime(); ...; generation.stage(Stage.FILL, start);
+     *       ZIP 模式的并行任务会在工作线程中同时调用。
+     */
+    public final class Generation implements AutoCloseable {
+
+        private final ExportMode exportMode;
+        private final String templateTag;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong estimatedHeapBytes = new AtomicLong();
+        private volatile Throwable failure;
+        private volatile boolean succeeded;
+
+        private Generation(ExportMode exportMode, TemplateSnapshot template) {
+            this.exportMode = exportMode;
+            this.templateTag = !templateTagEnabled || template == null
+                    ? "all"
+                    : template.getId().substring(0, Math.min(12, template.getId().length()));
+            if (template != null) {
+                estimatedHeapBytes.set(template.getWorkbookWeight());
+            }
+        }
+
+        public void stage(Stage stage, long stageStartNanos) {
+            stageTimers[stage.ordinal()][exportMode.ordinal()]
+                    .record(System.nanoTime() - stageStartNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void records(long count) {
+            recordCounters[exportMode.ordinal()].increment(count);
+        }
+
+        public void cells(long count) {
+            cellCounters[exportMode.ordinal()].increment(count);
+        }
+
+        public void bytes(long count) {
+            byteCounters[exportMode.ordinal()].increment(count);
+        }
+
+        /*
+         * 调整估算的堆内存占用（可为负数）。
+         */
+        public void addEstimatedHeap(long bytes) {
+            estimatedHeapBytes.addAndGet(bytes);
+        }
+
+        public void succeeded() {
+            succeeded = true;
+        }
+
+        public void failed(Throwable cause) {
+            failure = cause;
+        }
+
+        @Override
+        public void close() {
+            inFlight.remove(this);
+            String outcome = succeeded ? "success" : "failure";
+            String exception = failure == null ? "none" : failure.getClass().getSimpleName();
+            Timer.builder("report.generation")
+                    .description("整个报告的生成耗时")
+                    .tag("exportMode", modeTag(exportMode))
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .tag("template", templateTag)
+                    .register(registry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
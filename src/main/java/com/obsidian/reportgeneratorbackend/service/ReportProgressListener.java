@@ -0,0 +1,24 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/ReportProgressListener.java
+package com.obsidian.reportgeneratorbackend.service;
+
+/*
+ * 描述: 报告生成进度回调。进度单位在单表模式下是记录数，在 ZIP / 多工作表模式下是 SN 数。
+ *       回调在生成线程（写出结果的线程）上调用；抛出运行时异常可以中止生成（例如任务被取消）。
+ */
+public interface ReportProgressListener {
+
+    ReportProgressListener NONE = new ReportProgressListener() {
+    };
+
+    /*
+     * 开始生成，totalUnits 为本次需要处理的总单位数。
+     */
+    default void started(long totalUnits) {
+    }
+
+    /*
+     * 又完成了 units 个单位。
+     */
+    default void advanced(long units) {
+    }
+}
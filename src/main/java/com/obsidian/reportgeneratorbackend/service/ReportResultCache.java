@@ -0,0 +1,416 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * 描述: 同步生成接口的结果缓存（report.result-cache.enabled，默认关闭）。
+ *       - 键是模板 ID、导出模式、规范化的映射规则（键排序后序列化）和 logData（逐个 JSON 记号重新序列化，
+ *         忽略空白和字段位置）的 SHA-256，同时用作响应的 ETag；
+ *       - 生成时输出同时写入磁盘层的临时文件，成功后登记；不超过 memory-max-entry-bytes 的结果另在内存层保存一份；
+ *       - 两层各自按总大小做 LRU 淘汰，条目在 ttl 之后过期，由定时任务清理；
+ *       - 同一请求并发未命中时会各自生成，后完成的覆盖先完成的，结果等价。
+ *       磁盘层使用 disk-dir 下的 results 子目录，启动时删除其中遗留的结果文件和临时文件，缓存内容不跨进程重启保留；
+ *       disk-dir 中的其他文件不会被改动。
+ */
+@Slf4j
+@Service
+public class ReportResultCache {
+
+    /*
+     * 磁盘层在 disk-dir 下使用的子目录。
+     */
+    static final String DISK_SUBDIR = "results";
+
+    private static final String RESULT_SUFFIX = ".result";
+
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final ReportProperties.ResultCache config;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
+    private final Path diskDir;
+
+    /*
+     * accessOrder = true 的 LinkedHashMap，迭代顺序即 LRU 顺序。两层的所有访问都在 this 上同步。
+     */
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ReportResultCache(ReportProperties properties, ObjectMapper objectMapper, MeterRegistry registry) throws IOException {
+        this.config = properties.getResultCache();
+        this.objectMapper = objectMapper;
+        this.canonicalMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.diskDir = config.isEnabled() && config.getDiskMaxBytes() > 0 ? prepareDiskDir(config.getDiskDir()) : null;
+
+        this.memoryHits = Counter.builder("report.result-cache.requests")
+                .description("结果缓存的查询次数").tag("result", "hit_memory").register(registry);
+        this.diskHits = Counter.builder("report.result-cache.requests")
+                .description("结果缓存的查询次数").tag("result", "hit_disk").register(registry);
+        this.misses = Counter.builder("report.result-cache.requests")
+                .description("结果缓存的查询次数").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("report.result-cache.evictions")
+                .description("因超出容量或过期被移除的缓存结果数").register(registry);
+        Gauge.builder("report.result-cache.size", this, cache -> cache.tierBytes(true))
+                .description("缓存结果占用的字节数").tag("tier", "memory").baseUnit("bytes").register(registry);
+        Gauge.builder("report.result-cache.size", this, cache -> cache.tierBytes(false))
+                .description("缓存结果占用的字节数").tag("tier", "disk").baseUnit("bytes").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /*
+     * 计算请求的缓存键（十六进制 SHA-256）。会把请求体中的 logData 完整地再读一遍，但不构建对象。
+     * @param source 请求 JSON，可以重复打开
+     * @param header 已读取头部的请求
+     */
+    public String key(InputStreamSource source, StreamingReportRequest header, TemplateSnapshot template) throws IOException {
+        MessageDigest digest = newDigest();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            out.write(template.getId().getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            out.write(header.getExportMode().name().getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            canonicalMapper.writeValue(CloseShieldOutputStream.wrap(out), header.getMappingRules());
+            out.write(0);
+            if (header.getSummary() != null) {
+                canonicalMapper.writeValue(CloseShieldOutputStream.wrap(out), header.getSummary());
+            }
+            out.write(0);
+            writeLogData(source, out);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /*
+     * 查找缓存结果，未命中或已过期时返回 null。返回的结果在使用后关闭。
+     */
+    public CachedResult get(String key) throws IOException {
+        Instant now = Instant.now();
+        synchronized (this) {
+            MemoryEntry inMemory = memory.get(key);
+            if (inMemory != null && inMemory.expiresAt.isAfter(now)) {
+                memoryHits.increment();
+                return new CachedResult(inMemory.data.length, new ByteArrayInputStream(inMemory.data));
+            }
+            DiskEntry onDisk = disk.get(key);
+            if (onDisk != null && onDisk.expiresAt.isAfter(now)) {
+                try {
+                    // 在锁内打开文件，之后即使条目被淘汰、文件被删除，已打开的流仍可读完
+                    InputStream in = Files.newInputStream(onDisk.file);
+                    diskHits.increment();
+                    return new CachedResult(onDisk.size, in);
+                } catch (NoSuchFileException e) {
+                    removeDiskEntry(key);
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /*
+     * 开始记录一次生成的输出。生成成功后调用 commit() 登记到缓存；未提交就关闭时丢弃。
+     */
+    public Capture capture(String key) throws IOException {
+        return new Capture(key);
+    }
+
+    /*
+     * 定期清理过期的缓存结果。
+     */
+    @Scheduled(fixedDelayString = "${report.result-cache.cleanup-interval-ms:60000}")
+    public void cleanupExpired() {
+        Instant now = Instant.now();
+        List<Path> deleted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<MemoryEntry> memoryEntries = memory.values().iterator();
+            while (memoryEntries.hasNext()) {
+                MemoryEntry entry = memoryEntries.next();
+                if (!entry.expiresAt.isAfter(now)) {
+                    memoryEntries.remove();
+                    memoryBytes -= entry.data.length;
+                    evictions.increment();
+                }
+            }
+            Iterator<DiskEntry> diskEntries = disk.values().iterator();
+            while (diskEntries.hasNext()) {
+                DiskEntry entry = diskEntries.next();
+                if (!entry.expiresAt.isAfter(now)) {
+                    diskEntries.remove();
+                    diskBytes -= entry.size;
+                    deleted.add(entry.file);
+                    evictions.increment();
+                }
+            }
+        }
+        deleted.forEach(ReportResultCache::deleteQuietly);
+    }
+
+    private synchronized double tierBytes(boolean inMemory) {
+        return inMemory ? memoryBytes : diskBytes;
+    }
+
+    /*
+     * 把 logData 数组按记号重新序列化到输出流中；请求中没有 logData 时写入 null。
+     */
+    private void writeLogData(InputStreamSource source, OutputStream out) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(source.getInputStream());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(CloseShieldOutputStream.wrap(out))) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("logData".equals(field)) {
+                    generator.copyCurrentStructure(parser);
+                    return;
+                }
+                parser.skipChildren();
+            }
+            generator.writeNull();
+        }
+    }
+
+    private void commit(String key, Path tempFile, long size) throws IOException {
+        byte[] data = size <= config.getMemoryMaxEntryBytes() && size <= config.getMemoryMaxBytes()
+                ? Files.readAllBytes(tempFile)
+                : null;
+        Instant expiresAt = Instant.now().plus(config.getTtl());
+
+        Path file = null;
+        if (diskDir != null && size <= config.getDiskMaxBytes()) {
+            file = Files.move(tempFile, diskDir.resolve(key + RESULT_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            deleteQuietly(tempFile);
+        }
+
+        List<Path> deleted = new ArrayList<>();
+        synchronized (this) {
+            if (data != null) {
+                MemoryEntry previous = memory.put(key, new MemoryEntry(data, expiresAt));
+                if (previous != null) {
+                    memoryBytes -= previous.data.length;
+                }
+                memoryBytes += data.length;
+                Iterator<MemoryEntry> eldest = memory.values().iterator();
+                while (memoryBytes > config.getMemoryMaxBytes() && eldest.hasNext()) {
+                    memoryBytes -= eldest.next().data.length;
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+            if (file != null) {
+                DiskEntry previous = disk.put(key, new DiskEntry(file, size, expiresAt));
+                if (previous != null) {
+                    // 同名文件已被覆盖，只需扣除大小
+                    diskBytes -= previous.size;
+                }
+                diskBytes += size;
+                Iterator<DiskEntry> eldest = disk.values().iterator();
+                while (diskBytes > config.getDiskMaxBytes() && eldest.hasNext()) {
+                    DiskEntry evicted = eldest.next();
+                    eldest.remove();
+                    diskBytes -= evicted.size;
+                    deleted.add(evicted.file);
+                    evictions.increment();
+                }
+            }
+        }
+        deleted.forEach(ReportResultCache::deleteQuietly);
+    }
+
+    private void removeDiskEntry(String key) {
+        DiskEntry removed = disk.remove(key);
+        if (removed != null) {
+            diskBytes -= removed.size;
+        }
+    }
+
+    /*
+     * 创建磁盘层的子目录，并删除上次运行遗留的结果文件和临时文件。只删除缓存自己命名的普通文件。
+     */
+    private static Path prepareDiskDir(String dir) throws IOException {
+        Path path = Files.createDirectories(Paths.get(dir).resolve(DISK_SUBDIR));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*{" + RESULT_SUFFIX + "," + TEMP_SUFFIX + "}")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+        return path;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256。", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("无法删除缓存文件 '{}': {}", file, e.getMessage());
+        }
+    }
+
+    private static final class MemoryEntry {
+        private final byte[] data;
+        private final Instant expiresAt;
+
+        MemoryEntry(byte[] data, Instant expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class DiskEntry {
+        private final Path file;
+        private final long size;
+        private final Instant expiresAt;
+
+        DiskEntry(Path file, long size, Instant expiresAt) {
+            this.file = file;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /*
+     * 描述: 一个命中的缓存结果。
+     */
+    public static final class CachedResult implements Closeable {
+        private final long size;
+        private final InputStream in;
+
+        CachedResult(long size, InputStream in) {
+            this.size = size;
+            this.in = in;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void transferTo(OutputStream out) throws IOException {
+            in.transferTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /*
+     * 描述: 正在记录的生成输出：wrap() 返回的输出流同时写入调用方的输出流和一个临时文件。
+     *       输出超过两层都能容纳的大小后停止记录，commit() 不再登记。
+     */
+    public final class Capture implements Closeable {
+        private final String key;
+        private final Path tempFile;
+        private final OutputStream fileOut;
+        private final long limit;
+        private long size;
+        private boolean committed;
+
+        private Capture(String key) throws IOException {
+            this.key = key;
+            this.tempFile = diskDir != null
+                    ? diskDir.resolve(UUID.randomUUID() + TEMP_SUFFIX)
+                    : Files.createTempFile("report-result-", TEMP_SUFFIX);
+            this.fileOut = new BufferedOutputStream(Files.newOutputStream(tempFile));
+            this.limit = Math.max(diskDir != null ? config.getDiskMaxBytes() : 0,
+                    Math.min(config.getMemoryMaxEntryBytes(), config.getMemoryMaxBytes()));
+        }
+
+        public OutputStream wrap(OutputStream out) {
+            OutputStream recording = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    size += len;
+                    if (size <= limit) {
+                        fileOut.write(b, off, len);
+                    }
+                }
+            };
+            return new TeeOutputStream(out, recording);
+        }
+
+        /*
+         * 生成成功后调用，把记录的输出登记到缓存。
+         */
+        public void commit() throws IOException {
+            fileOut.close();
+            committed = true;
+            if (size <= limit) {
+                ReportResultCache.this.commit(key, tempFile, size);
+            } else {
+                deleteQuietly(tempFile);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                fileOut.close();
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+}
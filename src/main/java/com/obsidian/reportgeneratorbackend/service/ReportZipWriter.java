@@ -0,0 +1,185 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import lombok.Getter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/*
+ * 描述: 报告压缩包（ZIP 模式的输出、批量生成的结果）的条目写入器。
+ *       - 本身已是压缩格式的条目（.xlsx、.zip）默认以 STORED 方式写入：xlsx 本身就是 zip，
+ *         再次 deflate 几乎不能减小体积，却要消耗可观的 CPU；
+ *       - 其余条目（以及关闭 report.zip.store-compressed-entries 时的所有条目）按 report.zip.deflate-level 压缩；
+ *       - prepare() 只依赖配置，可以在工作线程中预先计算 CRC 并完成 deflate，写入线程只需原样复制压缩后的数据，
+ *         因此并行生成时压缩也是并行的；
+ *       - 条目名重复时（不区分大小写）在扩展名之前追加 _2、_3 …，例如两个 SN 替换非法字符后同名，
+ *         或 SN 与汇总表同名。ZipArchiveOutputStream 不检查重名，重复的条目在解压时会相互覆盖。
+ *       不关闭底层输出流，finish() 写出中央目录。除 prepare() 外只能在单个线程中使用。
+ */
+public class ReportZipWriter {
+
+    /*
+     * 以流方式写出条目内容的回调。
+     */
+    @FunctionalInterface
+    public interface EntryContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final ZipArchiveOutputStream zip;
+    private final boolean storeCompressedEntries;
+    private final int deflateLevel;
+
+    /*
+     * 已写出的条目名（小写）。
+     */
+    private final Set<String> usedNames = new HashSet<>();
+
+    public ReportZipWriter(OutputStream out, ReportProperties.Zip config) {
+        this.zip = new ZipArchiveOutputStream(out);
+        this.storeCompressedEntries = config.isStoreCompressedEntries();
+        this.deflateLevel = config.getDeflateLevel();
+        zip.setLevel(deflateLevel);
+    }
+
+    /*
+     * 报告条目（.xlsx / .zip）的实际压缩方式，例如 "stored" 或 "deflate;level=6"，用于响应头。
+     */
+    public static String describe(ReportProperties.Zip config) {
+        if (config.isStoreCompressedEntries()) {
+            return "stored";
+        }
+        int level = config.getDeflateLevel() == Deflater.DEFAULT_COMPRESSION ? 6 : config.getDeflateLevel();
+        return "deflate;level=" + level;
+    }
+
+    /*
+     * 在任意线程中准备一个完整的条目：计算 CRC，需要时完成 deflate。
+     */
+    public PreparedEntry prepare(String name, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (isStored(name)) {
+            return new PreparedEntry(name, ZipArchiveEntry.STORED, crc.getValue(), data.length, data, data.length);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        Deflater deflater = new Deflater(deflateLevel, true);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, 8192)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("压缩 zip 条目失败: " + name, e);
+        } finally {
+            deflater.end();
+        }
+        return new PreparedEntry(name, ZipArchiveEntry.DEFLATED, crc.getValue(), data.length,
+                compressed.toByteArray(), compressed.size());
+    }
+
+    /*
+     * 写出已准备好的条目，压缩后的数据原样复制。
+     */
+    public void write(PreparedEntry prepared) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(uniqueName(prepared.getName()));
+        entry.setMethod(prepared.method);
+        entry.setCrc(prepared.crc);
+        entry.setSize(prepared.size);
+        entry.setCompressedSize(prepared.getCompressedSize());
+        zip.addRawArchiveEntry(entry, new ByteArrayInputStream(prepared.data, 0, prepared.getCompressedSize()));
+    }
+
+    /*
+     * 写出完整的条目。
+     */
+    public void write(String name, byte[] data) throws IOException {
+        write(prepare(name, data));
+    }
+
+    /*
+     * 以流方式写出条目（例如直接序列化工作簿）。
+     * STORED 条目必须在本地文件头中给出 CRC 和大小，因此先缓冲到内存；deflate 条目直接写入压缩包。
+     */
+    public void write(String name, EntryContent content) throws IOException {
+        if (isStored(name)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            content.writeTo(buffer);
+            write(name, buffer.toByteArray());
+            return;
+        }
+        ZipArchiveEntry entry = new ZipArchiveEntry(uniqueName(name));
+        entry.setMethod(ZipArchiveEntry.DEFLATED);
+        zip.putArchiveEntry(entry);
+        content.writeTo(CloseShieldOutputStream.wrap(zip));
+        zip.closeArchiveEntry();
+    }
+
+    /*
+     * 写出中央目录，不关闭底层输出流。
+     */
+    public void finish() throws IOException {
+        zip.finish();
+        zip.flush();
+    }
+
+    /*
+     * 返回压缩包中尚未使用的条目名，并登记为已使用。
+     * Windows 等文件系统不区分大小写，解压时只差大小写的条目同样会冲突，因此按小写比较。
+     */
+    private String uniqueName(String name) {
+        if (usedNames.add(name.toLowerCase(Locale.ROOT))) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int suffix = 2; ; suffix++) {
+            String candidate = base + "_" + suffix + extension;
+            if (usedNames.add(candidate.toLowerCase(Locale.ROOT))) {
+                return candidate;
+            }
+        }
+    }
+
+    private boolean isStored(String name) {
+        if (!storeCompressedEntries) {
+            return false;
+        }
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".xlsx") || lowerCase.endsWith(".zip");
+    }
+
+    /*
+     * 描述: 已计算 CRC（并按需压缩）、等待写入压缩包的条目。
+     */
+    public static final class PreparedEntry {
+        @Getter
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+        @Getter
+        private final int compressedSize;
+
+        private PreparedEntry(String name, int method, long crc, long size, byte[] data, int compressedSize) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.compressedSize = compressedSize;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import lombok.Getter;
+
+/*
+ * 描述: 已按映射计划解析的一条日志记录：SN 和按槽位排列的源值数组（见 MappingPlan.resolve）。
+ *       生成流程只需要这两项，不再保留 LogRecord 及其 detailedItems。
+ */
+@Getter
+public final class ResolvedRecord {
+    private final String sn;
+    private final String[] slotValues;
+
+    public ResolvedRecord(String sn, String[] slotValues) {
+        this.sn = sn;
+        this.slotValues = slotValues;
+    }
+}
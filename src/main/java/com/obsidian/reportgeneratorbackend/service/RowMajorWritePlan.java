@@ -0,0 +1,64 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/RowMajorWritePlan.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * 描述: 行优先的写入计划。
+ *       将映射计划中的目标单元格按行号升序分组，流式输出时可以逐行写完后立即刷写，
+ *       不需要回头修改已经写出的行。同一行内保持映射计划的原有顺序，
+ *       因此多个目标落在同一单元格时，覆盖结果与逐条记录写入时一致。
+ */
+public class RowMajorWritePlan {
+
+    private final int[] rows;
+    private final List<List<MappingPlan.CellTarget>> targetsByRow;
+
+    private RowMajorWritePlan(int[] rows, List<List<MappingPlan.CellTarget>> targetsByRow) {
+        this.rows = rows;
+        this.targetsByRow = targetsByRow;
+    }
+
+    public static RowMajorWritePlan of(MappingPlan plan) {
+        TreeMap<Integer, List<MappingPlan.CellTarget>> grouped = new TreeMap<>();
+        for (MappingPlan.CellTarget target : plan.getTargets()) {
+            grouped.computeIfAbsent(target.getRow(), row -> new ArrayList<>()).add(target);
+        }
+
+        int[] rows = new int[grouped.size()];
+        List<List<MappingPlan.CellTarget>> targetsByRow = new ArrayList<>(grouped.size());
+        int i = 0;
+        for (Map.Entry<Integer, List<MappingPlan.CellTarget>> entry : grouped.entrySet()) {
+            rows[i++] = entry.getKey();
+            targetsByRow.add(Collections.unmodifiableList(entry.getValue()));
+        }
+        return new RowMajorWritePlan(rows, targetsByRow);
+    }
+
+    public boolean isEmpty() {
+        return rows.length == 0;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public int rowAt(int position) {
+        return rows[position];
+    }
+
+    public List<MappingPlan.CellTarget> targetsAt(int position) {
+        return targetsByRow.get(position);
+    }
+
+    /*
+     * 第一个被映射的行号；计划为空时返回 -1。
+     */
+    public int firstRow() {
+        return rows.length == 0 ? -1 : rows[0];
+    }
+}
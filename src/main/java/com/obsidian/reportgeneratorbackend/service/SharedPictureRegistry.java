@@ -0,0 +1,35 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/SharedPictureRegistry.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * 描述: 单个输出工作簿内的图片登记表：图片内容的 SHA-256 -> 工作簿中的图片索引。
+ *       相同内容的图片只作为一个包部件(/xl/media/imageN)写入一次，
+ *       各工作表的绘图只添加指向该部件的关系，输出文件大小不再随工作表数量成倍增长。
+ *       与输出工作簿一样，本类只能在单个线程中使用。
+ */
+public class SharedPictureRegistry {
+
+    private final Workbook targetWorkbook;
+    private final Map<String, Integer> pictureIndexByHash = new HashMap<>();
+
+    public SharedPictureRegistry(Workbook targetWorkbook) {
+        this.targetWorkbook = targetWorkbook;
+    }
+
+    /*
+     * 返回图片在输出工作簿中的索引，首次出现时才真正添加图片数据。
+     */
+    public int register(SheetSnapshot.PictureData picture) {
+        Integer index = pictureIndexByHash.get(picture.getContentHash());
+        if (index == null) {
+            index = targetWorkbook.addPicture(picture.getData(), picture.getPictureType());
+            pictureIndexByHash.put(picture.getContentHash(), index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,350 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/SheetSnapshot.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFPicture;
+import org.apache.poi.xssf.usermodel.XSSFPictureData;
+import org.apache.poi.xssf.usermodel.XSSFShape;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/*
+ * 描述: 模板工作表内容的只读快照（行、行高、单元格值与样式索引、列宽、合并区域、图片）。
+ *       快照与 POI 对象解耦：可以在源行被删除后重新写入，也可以被多个请求同时读取。
+ *       样式以索引保存，写回时由调用方把索引解析为目标工作簿中的样式。
+ */
+public class SheetSnapshot {
+
+    @Getter
+    private final List<RowData> rows;
+
+    /*
+     * 以下字段只有通过 captureSheet() 捕获整张工作表时才有内容。
+     */
+    @Getter
+    private final int[] columnWidths;
+    @Getter
+    private final int defaultColumnWidth;
+    @Getter
+    private final List<CellRangeAddress> mergedRegions;
+    @Getter
+    private final List<PictureData> pictures;
+
+    private SheetSnapshot(List<RowData> rows, int[] columnWidths, int defaultColumnWidth,
+                          List<CellRangeAddress> mergedRegions, List<PictureData> pictures) {
+        this.rows = rows;
+        this.columnWidths = columnWidths;
+        this.defaultColumnWidth = defaultColumnWidth;
+        this.mergedRegions = mergedRegions;
+        this.pictures = pictures;
+    }
+
+    /*
+     * 捕获工作表中行号 >= fromRow 的所有行。
+     */
+    public static SheetSnapshot captureRows(Sheet sheet, int fromRow) {
+        return new SheetSnapshot(captureRowList(sheet, fromRow), new int[0], sheet.getDefaultColumnWidth(),
+                Collections.emptyList(), Collections.emptyList());
+    }
+
+    /*
+     * 捕获整张工作表，供多工作表模式把模板"盖章"到新的工作表上。
+     */
+    public static SheetSnapshot captureSheet(XSSFSheet sheet) {
+        List<RowData> rows = captureRowList(sheet, sheet.getFirstRowNum());
+
+        int maxCol = 0;
+        for (RowData row : rows) {
+            if (row.getLastCellNum() > maxCol) {
+                maxCol = row.getLastCellNum();
+            }
+        }
+        int[] columnWidths = new int[maxCol];
+        for (int i = 0; i < maxCol; i++) {
+            columnWidths[i] = sheet.getColumnWidth(i);
+        }
+
+        List<CellRangeAddress> mergedRegions = new ArrayList<>(sheet.getNumMergedRegions());
+        for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
+            mergedRegions.add(sheet.getMergedRegion(i));
+        }
+
+        List<PictureData> pictures = new ArrayList<>();
+        XSSFDrawing drawing = sheet.getDrawingPatriarch();
+        if (drawing != null) {
+            for (XSSFShape shape : drawing.getShapes()) {
+                if (shape instanceof XSSFPicture) {
+                    XSSFPicture picture = (XSSFPicture) shape;
+                    if (picture.getAnchor() instanceof XSSFClientAnchor) {
+                        pictures.add(PictureData.capture(picture, (XSSFClientAnchor) picture.getAnchor()));
+                    }
+                }
+            }
+        }
+
+        return new SheetSnapshot(rows, columnWidths, sheet.getDefaultColumnWidth(),
+                Collections.unmodifiableList(mergedRegions), Collections.unmodifiableList(pictures));
+    }
+
+    private static List<RowData> captureRowList(Sheet sheet, int fromRow) {
+        List<RowData> rows = new ArrayList<>();
+        for (int i = Math.max(fromRow, sheet.getFirstRowNum()); i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row != null) {
+                rows.add(RowData.capture(row));
+            }
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    /*
+     * 快照中单元格的总数，用于估算缓存占用。
+     */
+    public int cellCount() {
+        int count = 0;
+        for (RowData row : rows) {
+            count += row.getCells().size();
+        }
+        return count;
+    }
+
+    /*
+     * 描述: 单行快照。
+     */
+    @Getter
+    public static final class RowData {
+        private final int index;
+        private final short height;
+        private final boolean zeroHeight;
+        private final int rowStyleIndex;
+        private final int lastCellNum;
+        private final List<CellData> cells;
+
+        private RowData(int index, short height, boolean zeroHeight, int rowStyleIndex, int lastCellNum,
+                        List<CellData> cells) {
+            this.index = index;
+            this.height = height;
+            this.zeroHeight = zeroHeight;
+            this.rowStyleIndex = rowStyleIndex;
+            this.lastCellNum = lastCellNum;
+            this.cells = cells;
+        }
+
+        static RowData capture(Row row) {
+            List<CellData> cells = new ArrayList<>(Math.max(row.getPhysicalNumberOfCells(), 0));
+            for (Cell cell : row) {
+                cells.add(CellData.capture(cell));
+            }
+            CellStyle rowStyle = row.isFormatted() ? row.getRowStyle() : null;
+            return new RowData(row.getRowNum(), row.getHeight(), row.getZeroHeight(),
+                    rowStyle == null ? -1 : Short.toUnsignedInt(rowStyle.getIndex()), row.getLastCellNum(),
+                    Collections.unmodifiableList(cells));
+        }
+
+        /*
+         * 在目标工作表中重建该行，样式索引直接在目标工作簿中查找。
+         * 仅适用于目标工作簿与快照来源共享同一个样式表的情况。
+         */
+        public Row restore(Sheet targetSheet) {
+            return restore(targetSheet, targetSheet.getWorkbook()::getCellStyleAt, true);
+        }
+
+        /*
+         * 在另一个工作簿的目标工作表中重建该行，返回新建的行对象。
+         * 模板的其他工作表不在目标工作簿中，引用工作表的公式写为模板中的缓存结果。
+         * @param styles 把快照中的样式索引解析为目标工作簿中的样式
+         */
+        public Row restore(Sheet targetSheet, IntFunction<CellStyle> styles) {
+            return restore(targetSheet, styles, false);
+        }
+
+        private Row restore(Sheet targetSheet, IntFunction<CellStyle> styles, boolean sheetReferencesValid) {
+            Row targetRow = targetSheet.createRow(index);
+            targetRow.setHeight(height);
+            if (zeroHeight) {
+                targetRow.setZeroHeight(true);
+            }
+            if (rowStyleIndex >= 0) {
+                targetRow.setRowStyle(styles.apply(rowStyleIndex));
+            }
+            for (CellData cellData : cells) {
+                cellData.restore(targetRow, styles, sheetReferencesValid);
+            }
+            return targetRow;
+        }
+    }
+
+    /*
+     * 描述: 单元格快照，只保留写回所需的值、公式（及其缓存结果）和样式索引。
+     */
+    @Getter
+    public static final class CellData {
+        private final int col;
+        private final CellType type;
+        private final String stringValue;
+        private final double numericValue;
+        private final boolean booleanValue;
+        private final byte errorValue;
+        private final int styleIndex;
+        /*
+         * 公式单元格的缓存结果，公式无法在目标工作簿中重建时使用。
+         */
+        private final CellType cachedResultType;
+        private final String cachedStringValue;
+
+        private CellData(int col, CellType type, String stringValue, double numericValue, boolean booleanValue,
+                         byte errorValue, int styleIndex, CellType cachedResultType, String cachedStringValue) {
+            this.col = col;
+            this.type = type;
+            this.stringValue = stringValue;
+            this.numericValue = numericValue;
+            this.booleanValue = booleanValue;
+            this.errorValue = errorValue;
+            this.styleIndex = styleIndex;
+            this.cachedResultType = cachedResultType;
+            this.cachedStringValue = cachedStringValue;
+        }
+
+        static CellData capture(Cell cell) {
+            CellType type = cell.getCellType();
+            String stringValue = null;
+            double numericValue = 0;
+            boolean booleanValue = false;
+            byte errorValue = 0;
+            CellType cachedResultType = null;
+            String cachedStringValue = null;
+            switch (type) {
+                case STRING:
+                    stringValue = cell.getStringCellValue();
+                    break;
+                case NUMERIC:
+                    numericValue = cell.getNumericCellValue();
+                    break;
+                case BOOLEAN:
+                    booleanValue = cell.getBooleanCellValue();
+                    break;
+                case FORMULA:
+                    stringValue = cell.getCellFormula();
+                    try {
+                        cachedResultType = cell.getCachedFormulaResultType();
+                        if (cachedResultType == CellType.NUMERIC) {
+                            numericValue = cell.getNumericCellValue();
+                        } else if (cachedResultType == CellType.STRING) {
+                            cachedStringValue = cell.getStringCellValue();
+                        }
+                    } catch (Exception ignore) {
+                        cachedResultType = null;
+                    }
+                    break;
+                case ERROR:
+                    errorValue = cell.getErrorCellValue();
+                    break;
+                default:
+                    break;
+            }
+            return new CellData(cell.getColumnIndex(), type, stringValue, numericValue, booleanValue, errorValue,
+                    Short.toUnsignedInt(cell.getCellStyle().getIndex()), cachedResultType, cachedStringValue);
+        }
+
+        /*
+         * @param sheetReferencesValid 公式中的工作表引用在目标工作簿中是否仍然有效
+         */
+        void restore(Row targetRow, IntFunction<CellStyle> styles, boolean sheetReferencesValid) {
+            Cell targetCell = targetRow.createCell(col, type == CellType.FORMULA ? CellType.BLANK : type);
+            switch (type) {
+                case STRING:
+                    targetCell.setCellValue(stringValue);
+                    break;
+                case NUMERIC:
+                    targetCell.setCellValue(numericValue);
+                    break;
+                case BOOLEAN:
+                    targetCell.setCellValue(booleanValue);
+                    break;
+                case FORMULA:
+                    // 引用不存在的工作表时 POI 不会报错，但 Excel 打开后显示 #REF!，因此同样退回到缓存结果
+                    if (sheetReferencesValid || stringValue.indexOf('!') < 0) {
+                        try {
+                            targetCell.setCellFormula(stringValue);
+                            break;
+                        } catch (Exception e) {
+                            // 公式无法在目标工作簿中解析时（例如引用了不存在的名称），退回到缓存结果
+                        }
+                    }
+                    if (cachedResultType == CellType.NUMERIC) {
+                        targetCell.setCellValue(numericValue);
+                    } else if (cachedResultType == CellType.STRING) {
+                        targetCell.setCellValue(cachedStringValue);
+                    }
+                    break;
+                case ERROR:
+                    targetCell.setCellErrorValue(errorValue);
+                    break;
+                default:
+                    break;
+            }
+            targetCell.setCellStyle(styles.apply(styleIndex));
+        }
+    }
+
+    /*
+     * 描述: 使用 XSSFClientAnchor 定位的图片快照。
+     */
+    @Getter
+    public static final class PictureData {
+        private final byte[] data;
+        /*
+         * 图片内容的 SHA-256，用于在输出工作簿中共享相同的图片数据。
+         */
+        private final String contentHash;
+        private final int pictureType;
+        private final int dx1;
+        private final int dy1;
+        private final int dx2;
+        private final int dy2;
+        private final int col1;
+        private final int row1;
+        private final int col2;
+        private final int row2;
+        private final ClientAnchor.AnchorType anchorType;
+
+        private PictureData(byte[] data, int pictureType, XSSFClientAnchor anchor) {
+            this.data = data;
+            this.contentHash = TemplateSnapshot.sha256Hex(data);
+            this.pictureType = pictureType;
+            this.dx1 = anchor.getDx1();
+            this.dy1 = anchor.getDy1();
+            this.dx2 = anchor.getDx2();
+            this.dy2 = anchor.getDy2();
+            this.col1 = anchor.getCol1();
+            this.row1 = anchor.getRow1();
+            this.col2 = anchor.getCol2();
+            this.row2 = anchor.getRow2();
+            this.anchorType = anchor.getAnchorType();
+        }
+
+        static PictureData capture(XSSFPicture picture, XSSFClientAnchor anchor) {
+            XSSFPictureData pictureData = picture.getPictureData();
+            return new PictureData(pictureData.getData(), pictureData.getPictureType(), anchor);
+        }
+
+        public XSSFClientAnchor newAnchor() {
+            XSSFClientAnchor anchor = new XSSFClientAnchor(dx1, dy1, dx2, dy2, col1, row1, col2, row2);
+            anchor.setAnchorType(anchorType);
+            return anchor;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/SingleSheetStreamingWriter.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/*
+ * 描述: 单表模式 (SINGLE_SHEET) 的 SXSSF 流式输出引擎。
+ *       - 第一个映射行之前的模板行（表头）原样保留在 XSSF 模板中；
+ *       - 从第一个映射行开始的模板行先做快照并从模板中移除，
+ *         再按行号升序由 SXSSF 重新写出，并在同一行内填入所有记录的值；
+ *       - 每一行写完后不会再被修改，超出窗口的行即可刷写到临时文件，
+ *         因此 POI 的行对象占用的堆内存只与窗口大小有关，与记录数无关。
+ *       每一行都要用到所有记录的值，recordSlots 由调用方事先全部读入；每条记录占用一列，
+ *       记录数受 Excel 的列数上限约束（见 ReportGenerationService.maxSingleSheetRecords）。
+ *       样式、合并单元格、列宽、图片等都保留在模板中，由 SXSSF 在输出时合并。
+ */
+public class SingleSheetStreamingWriter {
+
+    private final int rowAccessWindow;
+
+    private final boolean numericOutput;
+
+    /*
+     * @param numericOutput 是否把单源数值映射写为数值单元格，见 MappedCellWriter
+     */
+    public SingleSheetStreamingWriter(int rowAccessWindow, boolean numericOutput) {
+        this.rowAccessWindow = rowAccessWindow;
+        this.numericOutput = numericOutput;
+    }
+
+    /*
+     * @param templateWorkbook 已加载的模板工作簿，写出后由调用方关闭
+     * @param plan             编译好的映射计划
+     * @param recordSlots      每条记录按槽位解析好的源值，顺序即列偏移
+     * @param out              输出流
+     * @return 写入的映射单元格数
+     */
+    public long write(XSSFWorkbook templateWorkbook, MappingPlan plan, List<String[]> recordSlots,
+                      OutputStream out) throws IOException {
+        RowMajorWritePlan rowPlan = RowMajorWritePlan.of(plan);
+        XSSFSheet templateSheet = templateWorkbook.getSheetAt(0);
+
+        int firstRow = rowPlan.firstRow();
+        if (firstRow < 0) {
+            templateWorkbook.write(out);
+            return 0;
+        }
+
+        SheetSnapshot tail = SheetSnapshot.captureRows(templateSheet, firstRow);
+        for (SheetSnapshot.RowData rowData : tail.getRows()) {
+            templateSheet.removeRow(templateSheet.getRow(rowData.getIndex()));
+            if (!templateWorkbook.getForceFormulaRecalculation() && containsFormula(rowData)) {
+                // 重新写出的公式没有缓存结果，需要 Excel 打开时重新计算
+                templateWorkbook.setForceFormulaRecalculation(true);
+            }
+        }
+
+        SXSSFWorkbook streamingWorkbook = new SXSSFWorkbook(templateWorkbook, rowAccessWindow);
+        streamingWorkbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet sheet = streamingWorkbook.getSheetAt(0);
+            MappedCellWriter cells = new MappedCellWriter(streamingWorkbook, plan, numericOutput);
+            List<SheetSnapshot.RowData> tailRows = tail.getRows();
+            int tailPos = 0;
+            int planPos = 0;
+            long written = 0;
+
+            // 按行号升序归并"模板尾部行"和"映射行"
+            while (tailPos < tailRows.size() || planPos < rowPlan.size()) {
+                int nextTail = tailPos < tailRows.size() ? tailRows.get(tailPos).getIndex() : Integer.MAX_VALUE;
+                int nextPlan = planPos < rowPlan.size() ? rowPlan.rowAt(planPos) : Integer.MAX_VALUE;
+                int rowIndex = Math.min(nextTail, nextPlan);
+
+                Row row = nextTail == rowIndex
+                        ? tailRows.get(tailPos++).restore(sheet)
+                        : sheet.createRow(rowIndex);
+
+                if (nextPlan == rowIndex) {
+                    written += fillRow(row, cells, rowPlan.targetsAt(planPos++), recordSlots);
+                }
+            }
+
+            streamingWorkbook.write(out);
+            return written;
+        } finally {
+            streamingWorkbook.dispose();
+        }
+    }
+
+    /*
+     * 在一行内依次写入所有记录的值，记录 i 写在 baseCol + i 列。
+     * @return 写入的单元格数
+     */
+    private int fillRow(Row row, MappedCellWriter cells, List<MappingPlan.CellTarget> targets,
+                        List<String[]> recordSlots) {
+        int written = 0;
+        for (int recordIndex = 0; recordIndex < recordSlots.size(); recordIndex++) {
+            String[] slotValues = recordSlots.get(recordIndex);
+            for (MappingPlan.CellTarget target : targets) {
+                if (cells.write(row, target, slotValues, recordIndex)) {
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    private static boolean containsFormula(SheetSnapshot.RowData rowData) {
+        for (SheetSnapshot.CellData cellData : rowData.getCells()) {
+            if (cellData.getType() == CellType.FORMULA) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
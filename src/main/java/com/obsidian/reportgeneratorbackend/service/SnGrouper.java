@@ -0,0 +1,473 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/SnGrouper.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/*
+ * 描述: 带内存预算的 SN 分组器（ZIP / 多工作表模式使用）。
+ *       每条记录读入后立即合并进该 SN 的槽位数组（先出现的值优先），不保留原始记录，也不复制 detailedItems。
+ *       分组的估算内存占用超过预算时，把当前所有分组按 SN 排序写入一个临时文件（一个"段"）并清空内存；
+ *       读取时对所有段和内存中剩余的分组做多路归并，逐个 SN 合并返回，
+ *       因此无论记录多少，分组阶段的内存占用都不超过预算（外加每个段一个读缓冲区）。
+ *       段数超过归并的最大路数时，先把相邻的段逐层归并为更大的段，再做最终的归并，
+ *       同时打开的文件数和读缓冲区数不会超过最大路数。
+ *
+ *       段文件格式（DataOutputStream，均为大端）：
+ *         int 分组数，之后每个分组依次为 SN 和 slotCount 个源值；
+ *         每个字符串为 int 字节长度（null 为 -1）+ UTF-8 字节。
+ */
+public final class SnGrouper implements Closeable {
+
+    /*
+     * 内存占用估算用的对象开销（64 位 JVM，按未压缩指针保守估算）。
+     */
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int MAP_ENTRY_OVERHEAD = 48;
+
+    private static final int IO_BUFFER_SIZE = 16 * 1024;
+
+    /*
+     * 一次归并最多同时读取的输入数（段文件 + 内存中的分组）。
+     */
+    static final int DEFAULT_MAX_MERGE_FAN_IN = 64;
+
+    private final MappingPlan plan;
+    private final long memoryBudgetBytes;
+    private final Path spillDir;
+    private final int maxMergeFanIn;
+
+    private TreeMap<String, String[]> groups = new TreeMap<>();
+    private long estimatedBytes;
+    private int spillCount;
+
+    /*
+     * 按读入先后排列的段；逐层归并后被合并出的新段替换。
+     */
+    private final List<Path> segments = new ArrayList<>();
+
+    /*
+     * 磁盘上所有尚未删除的临时文件（包括归并中途的输出），close() 时删除。
+     */
+    private final List<Path> spillFiles = new ArrayList<>();
+
+    /*
+     * 归并读取阶段的状态，finish() 之后才有值。
+     */
+    private GroupMerger merger;
+    private final List<GroupSource> sources = new ArrayList<>();
+
+    public SnGrouper(MappingPlan plan, long memoryBudgetBytes, Path spillDir) {
+        this(plan, memoryBudgetBytes, spillDir, DEFAULT_MAX_MERGE_FAN_IN);
+    }
+
+    SnGrouper(MappingPlan plan, long memoryBudgetBytes, Path spillDir, int maxMergeFanIn) {
+        if (maxMergeFanIn < 2) {
+            throw new IllegalArgumentException("归并的最大路数不能小于 2。");
+        }
+        this.plan = plan;
+        this.memoryBudgetBytes = Math.max(1, memoryBudgetBytes);
+        this.spillDir = spillDir;
+        this.maxMergeFanIn = maxMergeFanIn;
+    }
+
+    /*
+     * 读入一条记录，没有 SN 的记录被忽略。
+     */
+    public void add(LogRecord record) throws IOException {
+        String sn = record.getSn();
+        if (sn == null || sn.isEmpty()) {
+            return;
+        }
+        add(new ResolvedRecord(sn, plan.resolve(record)));
+    }
+
+    /*
+     * 读入一条已解析的记录（槽位数组按映射计划排列，合并后可能被直接保留），没有 SN 的记录被忽略。
+     */
+    public void add(ResolvedRecord record) throws IOException {
+        String sn = record.getSn();
+        if (sn == null || sn.isEmpty()) {
+            return;
+        }
+
+        String[] resolved = record.getSlotValues();
+        String[] slotValues = groups.get(sn);
+        if (slotValues == null) {
+            groups.put(sn, resolved);
+            estimatedBytes += MAP_ENTRY_OVERHEAD + stringBytes(sn) + ARRAY_OVERHEAD + 8L * resolved.length;
+            for (String value : resolved) {
+                estimatedBytes += stringBytes(value);
+            }
+        } else {
+            for (int i = 0; i < slotValues.length; i++) {
+                if (slotValues[i] == null && resolved[i] != null) {
+                    slotValues[i] = resolved[i];
+                    estimatedBytes += stringBytes(resolved[i]);
+                }
+            }
+        }
+
+        if (estimatedBytes > memoryBudgetBytes) {
+            spill();
+        }
+    }
+
+    /*
+     * 分组数。发生过溢出时，同一个 SN 可能分布在多个段中，归并前无法得知准确数量，返回 -1。
+     */
+    public long size() {
+        return spillCount == 0 ? groups.size() : -1;
+    }
+
+    /*
+     * 溢出的次数（逐层归并不计入）。
+     */
+    public int getSpillCount() {
+        return spillCount;
+    }
+
+    /*
+     * 内存中（尚未溢出）的分组的估算占用（字节）。
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /*
+     * 按 SN 顺序返回下一个合并后的分组，没有更多分组时返回 null。
+     * 第一次调用后不能再 add()。
+     */
+    public SnGroup nextGroup() throws IOException {
+        if (merger == null) {
+            finish();
+        }
+        return merger.next();
+    }
+
+    private void finish() throws IOException {
+        // 留一路给内存中剩余的分组
+        while (segments.size() > maxMergeFanIn - 1) {
+            mergeSegments();
+        }
+        for (Path segment : segments) {
+            sources.add(new SpillFileSource(sources.size(), segment, plan.getSlotCount()));
+        }
+        // 内存中剩余的分组最晚读入，排在所有段之后
+        sources.add(new MemorySource(sources.size(), groups.entrySet().iterator()));
+        merger = new GroupMerger(sources);
+    }
+
+    /*
+     * 一轮逐层归并：每 maxMergeFanIn 个相邻的段合并为一个新段，段的先后顺序保持不变，
+     * 因此合并结果与一次归并所有段相同（同一个 SN 仍是先出现的值优先）。
+     */
+    private void mergeSegments() throws IOException {
+        List<Path> merged = new ArrayList<>();
+        for (int from = 0; from < segments.size(); from += maxMergeFanIn) {
+            List<Path> run = segments.subList(from, Math.min(from + maxMergeFanIn, segments.size()));
+            merged.add(run.size() == 1 ? run.get(0) : mergeRun(run));
+        }
+        segments.clear();
+        segments.addAll(merged);
+    }
+
+    private Path mergeRun(List<Path> run) throws IOException {
+        Path mergedFile = createSpillFile();
+        List<GroupSource> inputs = new ArrayList<>(run.size());
+        try {
+            for (Path segment : run) {
+                inputs.add(new SpillFileSource(inputs.size(), segment, plan.getSlotCount()));
+            }
+            GroupMerger runMerger = new GroupMerger(inputs);
+            int groupCount = 0;
+            try (DataOutputStream out = openSpillFile(mergedFile)) {
+                // 分组数在写完之后回填
+                out.writeInt(0);
+                for (SnGroup group = runMerger.next(); group != null; group = runMerger.next()) {
+                    writeGroup(out, group.getSn(), group.getSlotValues());
+                    groupCount++;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(mergedFile, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, groupCount), 0);
+            }
+        } finally {
+            closeAll(inputs);
+        }
+
+        for (Path segment : run) {
+            Files.deleteIfExists(segment);
+            spillFiles.remove(segment);
+        }
+        return mergedFile;
+    }
+
+    private void spill() throws IOException {
+        Path spillFile = createSpillFile();
+        segments.add(spillFile);
+        spillCount++;
+
+        try (DataOutputStream out = openSpillFile(spillFile)) {
+            out.writeInt(groups.size());
+            for (Map.Entry<String, String[]> entry : groups.entrySet()) {
+                writeGroup(out, entry.getKey(), entry.getValue());
+            }
+        }
+
+        groups = new TreeMap<>();
+        estimatedBytes = 0;
+    }
+
+    private Path createSpillFile() throws IOException {
+        Files.createDirectories(spillDir);
+        Path spillFile = Files.createTempFile(spillDir, "sn-groups-", ".bin");
+        spillFiles.add(spillFile);
+        return spillFile;
+    }
+
+    private static DataOutputStream openSpillFile(Path spillFile) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), IO_BUFFER_SIZE));
+    }
+
+    /*
+     * 关闭所有读取中的段并删除所有溢出文件。关闭失败时仍然删除文件，第一个异常在最后抛出。
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeAll(sources);
+        } finally {
+            sources.clear();
+            groups = new TreeMap<>();
+            IOException failure = null;
+            for (Path spillFile : spillFiles) {
+                try {
+                    Files.deleteIfExists(spillFile);
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            spillFiles.clear();
+            segments.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /*
+     * 依次关闭所有输入，某个输入关闭失败时仍会关闭其余输入，第一个异常在最后抛出。
+     */
+    private static void closeAll(List<? extends Closeable> closeables) throws IOException {
+        IOException failure = null;
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    private static void writeGroup(DataOutputStream out, String sn, String[] slotValues) throws IOException {
+        writeString(out, sn);
+        for (String value : slotValues) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * 描述: 一个 SN 合并后的源值。
+     */
+    @Getter
+    public static final class SnGroup {
+        private final String sn;
+        private final String[] slotValues;
+
+        SnGroup(String sn, String[] slotValues) {
+            this.sn = sn;
+            this.slotValues = slotValues;
+        }
+    }
+
+    /*
+     * 描述: 按 SN 的多路归并：同一个 SN 在多路输入中都有值时，按输入的先后顺序补齐仍为空的槽位（先出现的值优先）。
+     */
+    private static final class GroupMerger {
+        private final PriorityQueue<GroupSource> queue = new PriorityQueue<>(
+                Comparator.comparing((GroupSource source) -> source.sn).thenComparingInt(source -> source.order));
+
+        GroupMerger(List<? extends GroupSource> sources) throws IOException {
+            for (GroupSource source : sources) {
+                advance(source);
+            }
+        }
+
+        /*
+         * 下一个合并后的分组，没有更多分组时返回 null。
+         */
+        SnGroup next() throws IOException {
+            GroupSource first = queue.poll();
+            if (first == null) {
+                return null;
+            }
+            String sn = first.sn;
+            String[] slotValues = first.slotValues;
+            advance(first);
+
+            while (!queue.isEmpty() && queue.peek().sn.equals(sn)) {
+                GroupSource later = queue.poll();
+                for (int i = 0; i < slotValues.length; i++) {
+                    if (slotValues[i] == null) {
+                        slotValues[i] = later.slotValues[i];
+                    }
+                }
+                advance(later);
+            }
+            return new SnGroup(sn, slotValues);
+        }
+
+        private void advance(GroupSource source) throws IOException {
+            if (source.advance()) {
+                queue.add(source);
+            }
+        }
+    }
+
+    /*
+     * 描述: 归并的一路输入，当前分组保存在 sn / slotValues 中。
+     */
+    private abstract static class GroupSource implements Closeable {
+        final int order;
+        String sn;
+        String[] slotValues;
+
+        GroupSource(int order) {
+            this.order = order;
+        }
+
+        /*
+         * 读取下一个分组，没有更多分组时返回 false。
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemorySource extends GroupSource {
+        private final Iterator<Map.Entry<String, String[]>> iterator;
+
+        MemorySource(int order, Iterator<Map.Entry<String, String[]>> iterator) {
+            super(order);
+            this.iterator = iterator;
+        }
+
+        @Override
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            Map.Entry<String, String[]> entry = iterator.next();
+            sn = entry.getKey();
+            slotValues = entry.getValue();
+            return true;
+        }
+    }
+
+    private static final class SpillFileSource extends GroupSource {
+        private final DataInputStream in;
+        private final int slotCount;
+        private int remaining;
+
+        SpillFileSource(int order, Path file, int slotCount) throws IOException {
+            super(order);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE));
+            this.slotCount = slotCount;
+            try {
+                this.remaining = in.readInt();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            remaining--;
+            sn = readString(in);
+            slotValues = new String[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slotValues[i] = readString(in);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/StreamingReportRequest.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import lombok.Getter;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/*
+ * 描述: 以流方式读取的报告生成请求（JSON 结构与 ReportGenerationRequest 相同）。
+ *       打开时只读取 exportMode、mappingRules 和 summary，logData 中的记录之后由 next() 逐条解析，
+ *       任何时刻只有一条 LogRecord 存在于内存中。
+ *       - logData 位于 exportMode / mappingRules 之后时（推荐的字段顺序），只读一遍请求体；
+ *       - logData 在前时，第一遍跳过 logData（不构建对象），读完头部后重新打开请求体定位到 logData。
+ *       可选的 summary 应位于 logData 之前（ReportGenerationRequest 序列化时的字段顺序）：汇总的测试项要在读取记录时取值，
+ *       只读一遍时读完 logData 才会看到其后的 summary，此时记录已经读过，读到它时抛出 IllegalArgumentException（400），
+ *       而不是静默地忽略汇总。
+ *       因此请求源必须可以重复打开，例如 multipart 部分或本地文件。
+ *       生成流程通过 nextResolved() 读取记录：直接从 JSON 记号填充槽位数组，测试项名称用解析器的字符缓冲区
+ *       在映射计划中查找，未被映射引用的测试项不创建任何对象，也不构建 LogRecord 和 DetailedItem。
+ */
+public final class StreamingReportRequest implements LogRecordCursor, Closeable {
+
+    private static final String EXPORT_MODE_FIELD = "exportMode";
+    private static final String MAPPING_RULES_FIELD = "mappingRules";
+    private static final String SUMMARY_FIELD = "summary";
+    private static final String LOG_DATA_FIELD = "logData";
+    private static final String SN_FIELD = "sn";
+    private static final String DETAILED_ITEMS_FIELD = "detailedItems";
+    private static final String ITEM_NAME_FIELD = "itemName";
+    private static final String ACTUAL_VALUE_FIELD = "actualValue";
+
+    private static final TypeReference<Map<String, SingleCellMapping>> MAPPING_RULES_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    @Getter
+    private ExportMode exportMode;
+    @Getter
+    private Map<String, SingleCellMapping> mappingRules;
+    @Getter
+    private SummaryMapping summary;
+
+    /*
+     * 请求中是否包含 logData 数组。
+     */
+    @Getter
+    private boolean logDataPresent;
+
+    /*
+     * 定位在 logData 数组内部的解析器；记录读完或关闭后为 null。
+     */
+    private JsonParser parser;
+
+    /*
+     * 读取头部时是否已读到 logData 之后的字段（logData 在前、重新定位的情况）。
+     * 为 false 时，读完 logData 后还要检查其后的字段，见 readTrailingFields。
+     */
+    private boolean trailingFieldsRead;
+
+    private StreamingReportRequest(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /*
+     * 打开请求并读取头部（exportMode、mappingRules、summary）。
+     * JSON 格式错误在这里转换为 IllegalArgumentException，以便在写响应之前返回 400。
+     */
+    public static StreamingReportRequest open(InputStreamSource source, ObjectMapper objectMapper) throws IOException {
+        StreamingReportRequest request = new StreamingReportRequest(objectMapper);
+        try {
+            request.readHeader(source);
+            return request;
+        } catch (JsonProcessingException e) {
+            request.close();
+            throw new IllegalArgumentException("报告生成请求数据无效: " + e.getOriginalMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            request.close();
+            throw e;
+        }
+    }
+
+    private void readHeader(InputStreamSource source) throws IOException {
+        parser = objectMapper.createParser(source.getInputStream());
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("报告生成请求数据无效。");
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (EXPORT_MODE_FIELD.equals(field)) {
+                exportMode = objectMapper.readValue(parser, ExportMode.class);
+            } else if (MAPPING_RULES_FIELD.equals(field)) {
+                mappingRules = objectMapper.readValue(parser, MAPPING_RULES_TYPE);
+            } else if (SUMMARY_FIELD.equals(field)) {
+                summary = objectMapper.readValue(parser, SummaryMapping.class);
+            } else if (LOG_DATA_FIELD.equals(field) && valueToken == JsonToken.START_ARRAY) {
+                logDataPresent = true;
+                if (exportMode != null && mappingRules != null) {
+                    return; // 头部已完整，直接从当前位置逐条读取记录，logData 之后的字段读完记录后再检查
+                }
+                parser.skipChildren();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        close();
+        trailingFieldsRead = true;
+
+        if (logDataPresent) {
+            seekLogData(source);
+        }
+    }
+
+    /*
+     * 跳过 logData 中尚未读取的记录（不构建对象）并读取其后的字段，用于只需要头部的情况（见 TabularReportRequest）。
+     * 由于记录没有被使用，logData 之后的 summary 在这里可以正常读取。
+     */
+    public void skipLogData() throws IOException {
+        if (parser == null) {
+            return;
+        }
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token == null) {
+                close();
+                return;
+            }
+            parser.skipChildren();
+        }
+        readTrailingFields(false);
+    }
+
+    /*
+     * logData 读完后读取其后的顶层字段并关闭解析器。
+     * @param recordsConsumed 记录是否已被读取；此时再出现 summary 已无法在读取记录时统计，按无效请求处理
+     */
+    private void readTrailingFields(boolean recordsConsumed) throws IOException {
+        try {
+            if (trailingFieldsRead) {
+                return;
+            }
+            trailingFieldsRead = true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if (SUMMARY_FIELD.equals(field) && valueToken != JsonToken.VALUE_NULL) {
+                    if (recordsConsumed) {
+                        throw new IllegalArgumentException("summary 必须位于 logData 之前。");
+                    }
+                    summary = objectMapper.readValue(parser, SummaryMapping.class);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /*
+     * 重新打开请求体，把解析器定位到顶层 logData 数组的开头。
+     */
+    private void seekLogData(InputStreamSource source) throws IOException {
+        parser = objectMapper.createParser(source.getInputStream());
+        parser.nextToken();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && LOG_DATA_FIELD.equals(field)) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalStateException("重新读取请求时未找到 logData。");
+    }
+
+    @Override
+    public LogRecord next() throws IOException {
+        while (parser != null) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                close();
+                return null;
+            }
+            if (token == JsonToken.END_ARRAY) {
+                readTrailingFields(true);
+                return null;
+            }
+            if (token != JsonToken.VALUE_NULL) {
+                return objectMapper.readValue(parser, LogRecord.class);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * 语义与 MappingPlan.resolve(LogRecord) 相同：同名测试项先出现的非 null 值优先，null 元素被跳过。
+     */
+    @Override
+    public ResolvedRecord nextResolved(MappingPlan plan) throws IOException {
+        while (parser != null) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                close();
+                return null;
+            }
+            if (token == JsonToken.END_ARRAY) {
+                readTrailingFields(true);
+                return null;
+            }
+            if (token == JsonToken.START_OBJECT) {
+                return readResolved(plan);
+            }
+            if (token != JsonToken.VALUE_NULL) {
+                throw new IllegalArgumentException("logData 中的记录不是 JSON 对象。");
+            }
+        }
+        return null;
+    }
+
+    private ResolvedRecord readResolved(MappingPlan plan) throws IOException {
+        String sn = null;
+        String[] slotValues = new String[plan.getSlotCount()];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (SN_FIELD.equals(field)) {
+                sn = scalarText(value);
+            } else if (DETAILED_ITEMS_FIELD.equals(field) && value == JsonToken.START_ARRAY) {
+                readItems(plan, slotValues);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        plan.resolveSn(slotValues, sn);
+        return new ResolvedRecord(sn, slotValues);
+    }
+
+    private void readItems(MappingPlan plan, String[] slotValues) throws IOException {
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            int slot = -1;
+            boolean nameSeen = false;
+            // actualValue 出现在 itemName 之前时，只能先保留其文本
+            boolean valueBeforeName = false;
+            String pendingValue = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (ITEM_NAME_FIELD.equals(field)) {
+                    nameSeen = true;
+                    slot = value == JsonToken.VALUE_STRING
+                            ? plan.slotOf(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())
+                            : plan.slotOf(scalarText(value));
+                } else if (ACTUAL_VALUE_FIELD.equals(field)) {
+                    if (!nameSeen) {
+                        valueBeforeName = true;
+                        pendingValue = scalarText(value);
+                    } else if (slot >= 0 && slotValues[slot] == null) {
+                        slotValues[slot] = scalarText(value);
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (valueBeforeName && slot >= 0 && slotValues[slot] == null) {
+                slotValues[slot] = pendingValue;
+            }
+        }
+    }
+
+    /*
+     * 标量的文本（数字、布尔值按原文），null 和对象/数组返回 null（后者同时跳过其内容）。
+     */
+    private String scalarText(JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            JsonParser current = parser;
+            parser = null;
+            current.close();
+        }
+    }
+}
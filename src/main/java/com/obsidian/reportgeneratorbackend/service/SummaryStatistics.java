@@ -0,0 +1,286 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.SummaryColumn;
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * 描述: 汇总表的统计（见 SummaryMapping）：在读取记录的同一遍中逐条累加，不保留原始值，也不再遍历第二遍。
+ *       - 每个测试项一组基本类型累加器：数量、数值个数、通过数、最小值、最大值，
+ *         平均值和标准差用 Welford 算法在线更新，数值较大时也不会因相减而损失精度；
+ *       - 数值按原始值解析（不按映射规则的小数位数舍入），判断规则与单元格格式化相同，普通小数不抛异常、不装箱；
+ *       - 按记录统计，同一 SN 的多条记录各计一次。
+ *       只被汇总引用的测试项在映射计划中排在映射槽位之后，累加后即从槽位数组中清除，不随记录一起保留。
+ *       只能在单个线程中使用。
+ */
+public final class SummaryStatistics {
+
+    private static final String DEFAULT_PASS_VALUE = "PASS";
+    private static final String PERCENT_FORMAT = "0.00%";
+
+    @Getter
+    private final String sheetName;
+    private final String[] itemNames;
+    private final int[] slots;
+    private final SummaryColumn[] columns;
+    private final String[] passValues;
+    private final int originRow;
+    private final int originCol;
+    private final boolean header;
+
+    /*
+     * 累加后需要清除的槽位区间 [mappedSlotCount, slotCount)。
+     */
+    private final int mappedSlotCount;
+    private final int slotCount;
+
+    private final long[] counts;
+    private final long[] numericCounts;
+    private final long[] passCounts;
+    private final double[] mins;
+    private final double[] maxs;
+    private final double[] means;
+    private final double[] squaredDeviations;
+
+    private SummaryStatistics(SummaryMapping mapping, MappingPlan plan) {
+        int[] origin = parseOrigin(mapping.getOrigin());
+        this.sheetName = WorkbookUtil.createSafeSheetName(mapping.getSheetName());
+        this.itemNames = mapping.getItems().toArray(new String[0]);
+        this.slots = new int[itemNames.length];
+        for (int i = 0; i < itemNames.length; i++) {
+            slots[i] = plan.slotOf(itemNames[i]);
+        }
+        this.columns = mapping.getColumns() == null || mapping.getColumns().isEmpty()
+                ? SummaryColumn.values()
+                : mapping.getColumns().toArray(new SummaryColumn[0]);
+        this.passValues = mapping.getPassValues() == null || mapping.getPassValues().isEmpty()
+                ? new String[]{DEFAULT_PASS_VALUE}
+                : mapping.getPassValues().toArray(new String[0]);
+        this.originRow = origin[0];
+        this.originCol = origin[1];
+        this.header = mapping.isHeader();
+        this.mappedSlotCount = plan.getMappedSlotCount();
+        this.slotCount = plan.getSlotCount();
+
+        int itemCount = itemNames.length;
+        this.counts = new long[itemCount];
+        this.numericCounts = new long[itemCount];
+        this.passCounts = new long[itemCount];
+        this.mins = new double[itemCount];
+        this.maxs = new double[itemCount];
+        this.means = new double[itemCount];
+        this.squaredDeviations = new double[itemCount];
+    }
+
+    /*
+     * 为请求的汇总布局创建统计；布局为 null 时返回 null。
+     * @param plan 已包含汇总测试项槽位的映射计划，见 MappingPlan.compile(Map, Collection)
+     */
+    public static SummaryStatistics create(SummaryMapping mapping, MappingPlan plan) {
+        if (mapping == null) {
+            return null;
+        }
+        validate(mapping);
+        return new SummaryStatistics(mapping, plan);
+    }
+
+    /*
+     * 校验汇总布局，控制器在开始写响应之前调用，以便仍能返回 400。
+     */
+    public static void validate(SummaryMapping mapping) {
+        if (mapping == null) {
+            return;
+        }
+        if (mapping.getItems() == null || mapping.getItems().isEmpty()) {
+            throw new IllegalArgumentException("汇总表未指定测试项。");
+        }
+        if (mapping.getSheetName() == null || mapping.getSheetName().isBlank()) {
+            throw new IllegalArgumentException("汇总表名称不能为空。");
+        }
+        // List.of 等不可变列表的 contains(null) 会抛出 NullPointerException，逐个检查
+        if (mapping.getColumns() != null && mapping.getColumns().stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("汇总表包含无效的列。");
+        }
+        parseOrigin(mapping.getOrigin());
+    }
+
+    private static int[] parseOrigin(String origin) {
+        String[] parts = origin == null ? new String[0] : origin.split("_");
+        if (parts.length == 2) {
+            try {
+                int row = Integer.parseInt(parts[0]);
+                int col = Integer.parseInt(parts[1]);
+                if (row >= 0 && col >= 0) {
+                    return new int[]{row, col};
+                }
+            } catch (NumberFormatException e) {
+                // 按格式错误处理
+            }
+        }
+        throw new IllegalArgumentException("无效的汇总表地址 '" + origin + "'。");
+    }
+
+    /*
+     * 累加一条记录的源值，并清除只被汇总引用的槽位。
+     */
+    public void accept(String[] slotValues) {
+        for (int i = 0; i < slots.length; i++) {
+            String value = slots[i] < 0 ? null : slotValues[slots[i]];
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            counts[i]++;
+            if (isPass(value)) {
+                passCounts[i]++;
+            }
+
+            double number = ValueFormatter.parseNumber(value);
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                continue;
+            }
+            long n = ++numericCounts[i];
+            if (n == 1) {
+                mins[i] = number;
+                maxs[i] = number;
+            } else {
+                mins[i] = Math.min(mins[i], number);
+                maxs[i] = Math.max(maxs[i], number);
+            }
+            double delta = number - means[i];
+            means[i] += delta / n;
+            squaredDeviations[i] += delta * (number - means[i]);
+        }
+        if (mappedSlotCount < slotCount) {
+            Arrays.fill(slotValues, mappedSlotCount, slotCount, null);
+        }
+    }
+
+    private boolean isPass(String value) {
+        for (String passValue : passValues) {
+            if (passValue != null && passValue.equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * 在工作簿末尾添加汇总工作表并写入统计结果。与已有工作表重名时在名称后加序号。
+     * @return 写入的单元格数
+     */
+    public int addTo(Workbook workbook) {
+        String name = sheetName;
+        for (int suffix = 2; workbook.getSheetIndex(name) >= 0; suffix++) {
+            String tail = "_" + suffix;
+            name = sheetName.substring(0, Math.min(sheetName.length(), 31 - tail.length())) + tail;
+        }
+        return write(workbook.createSheet(name));
+    }
+
+    /*
+     * 把汇总表写为一个单独的工作簿（ZIP 模式的汇总条目）。
+     */
+    public void writeWorkbook(OutputStream out) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            addTo(workbook);
+            workbook.write(out);
+        }
+    }
+
+    /*
+     * 从 origin 开始写出表头行（若启用）和每个测试项的一行，没有数值的统计留空。
+     * @return 写入的单元格数
+     */
+    public int write(Sheet sheet) {
+        int written = 0;
+        int rowIndex = originRow;
+        if (header) {
+            Row row = getOrCreateRow(sheet, rowIndex++);
+            for (int j = 0; j < columns.length; j++) {
+                row.createCell(originCol + j).setCellValue(columns[j].getLabel());
+                written++;
+            }
+        }
+
+        CellStyle percentStyle = null;
+        for (int i = 0; i < itemNames.length; i++) {
+            Row row = getOrCreateRow(sheet, rowIndex++);
+            for (int j = 0; j < columns.length; j++) {
+                SummaryColumn column = columns[j];
+                if (column == SummaryColumn.ITEM) {
+                    row.createCell(originCol + j).setCellValue(itemNames[i]);
+                    written++;
+                    continue;
+                }
+                double value = valueOf(i, column);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                Cell cell = row.createCell(originCol + j);
+                cell.setCellValue(value);
+                if (column == SummaryColumn.PASS_RATE) {
+                    if (percentStyle == null) {
+                        Workbook workbook = sheet.getWorkbook();
+                        percentStyle = workbook.createCellStyle();
+                        percentStyle.setDataFormat(workbook.createDataFormat().getFormat(PERCENT_FORMAT));
+                    }
+                    cell.setCellStyle(percentStyle);
+                }
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /*
+     * 第 item 个测试项的一项统计值，没有可统计的值时返回 NaN。
+     */
+    double valueOf(int item, SummaryColumn column) {
+        long numeric = numericCounts[item];
+        switch (column) {
+            case COUNT:
+                return counts[item];
+            case NUMERIC_COUNT:
+                return numeric;
+            case MIN:
+                return numeric > 0 ? mins[item] : Double.NaN;
+            case MAX:
+                return numeric > 0 ? maxs[item] : Double.NaN;
+            case MEAN:
+                return numeric > 0 ? means[item] : Double.NaN;
+            case STDDEV:
+                return numeric > 1 ? Math.sqrt(squaredDeviations[item] / (numeric - 1)) : Double.NaN;
+            case PASS_COUNT:
+                return passCounts[item];
+            case PASS_RATE:
+                return counts[item] > 0 ? (double) passCounts[item] / counts[item] : Double.NaN;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /*
+     * 参与统计的测试项名称，用于构建映射计划。
+     */
+    public static List<String> itemNames(SummaryMapping mapping) {
+        return mapping == null || mapping.getItems() == null ? List.of() : mapping.getItems();
+    }
+
+    private static Row getOrCreateRow(Sheet sheet, int rowIndex) {
+        Row row = sheet.getRow(rowIndex);
+        return row == null ? sheet.createRow(rowIndex) : row;
+    }
+}
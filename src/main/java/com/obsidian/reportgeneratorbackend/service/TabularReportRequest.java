@@ -0,0 +1,342 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import lombok.Getter;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * 描述: 以紧凑的表格格式（CSV / TSV）上传日志数据的报告生成请求。
+ *       exportMode、mappingRules 和 summary 仍来自 JSON 请求（与 ReportGenerationRequest 结构相同，logData 被忽略），
+ *       日志数据是单独的 UTF-8 文本，第一行是表头（字典）：第一列为 SN，其余每列是一个测试项名称；
+ *       之后每行是一条记录，依次为 SN 和各测试项的值，例如：
+ *           SN,电池电压,充电电流
+ *           SN001,3.30,0.12
+ *       - 测试项名称只在表头出现一次，记录行中没有 "itemName" / "actualValue" 之类的重复键，请求体通常只有 JSON 的几分之一；
+ *       - 表头包含制表符时按 TSV 解析，否则按 CSV 解析（支持 RFC 4180 双引号转义）；
+ *       - 空字段表示该记录没有这个测试项，与 JSON 中缺少该项相同；同名的列先出现的非空值优先；
+ *       - 以 gzip 压缩的数据按魔数自动识别并解压。
+ *       nextResolved() 在打开时按映射计划把每一列对应到槽位，记录行逐字段解析，
+ *       未被映射引用的列不创建任何对象，也不构建 LogRecord 和 DetailedItem。
+ */
+public final class TabularReportRequest implements LogRecordCursor, Closeable {
+
+    /*
+     * 同样的数据以 JSON（logData）表示时的大致倍数，用于按 JSON 大小估算内存的地方（见 AdmissionLimiter）。
+     */
+    private static final long ESTIMATED_JSON_EXPANSION = 4;
+
+    /*
+     * 测试日志文本的典型 gzip 压缩比。
+     */
+    private static final long ESTIMATED_GZIP_RATIO = 5;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int DELIMITER = 0;
+    private static final int END_OF_ROW = 1;
+
+    @Getter
+    private ExportMode exportMode;
+    @Getter
+    private Map<String, SingleCellMapping> mappingRules;
+    @Getter
+    private SummaryMapping summary;
+
+    /*
+     * 日志数据是否经过 gzip 压缩。
+     */
+    @Getter
+    private boolean compressed;
+
+    /*
+     * 表头中的测试项名称（不含第一列 SN）。
+     */
+    private String[] itemNames;
+
+    private Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private char delimiter;
+    private boolean quoting;
+
+    /*
+     * 当前字段的内容（引号已去除），跨缓冲区的字段也在这里拼接完整。
+     */
+    private char[] field = new char[256];
+    private int fieldLength;
+
+    /*
+     * 已读取的行数（含表头），用于错误信息。
+     */
+    private long rowNumber;
+
+    /*
+     * 各测试项列对应的槽位（-1 表示未被映射引用），按 columnSlotsPlan 计算。
+     */
+    private int[] columnSlots;
+    private MappingPlan columnSlotsPlan;
+
+    private TabularReportRequest() {
+    }
+
+    /*
+     * 打开请求：读取 JSON 头部（exportMode、mappingRules、summary）和日志数据的表头。
+     * 数据格式错误在这里转换为 IllegalArgumentException，以便在写响应之前返回 400。
+     * @param header  JSON 请求，logData 可以省略
+     * @param logData CSV / TSV 日志数据，可以是 gzip 压缩的
+     */
+    public static TabularReportRequest open(InputStreamSource header, InputStreamSource logData,
+                                            ObjectMapper objectMapper) throws IOException {
+        TabularReportRequest request = new TabularReportRequest();
+        try (StreamingReportRequest json = StreamingReportRequest.open(header, objectMapper)) {
+            // logData 之后可能还有 summary
+            json.skipLogData();
+            request.exportMode = json.getExportMode();
+            request.mappingRules = json.getMappingRules();
+            request.summary = json.getSummary();
+        }
+        try {
+            request.openLogData(logData.getInputStream());
+            return request;
+        } catch (IOException | RuntimeException e) {
+            request.close();
+            throw e;
+        }
+    }
+
+    private void openLogData(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        compressed = buffered.read() == 0x1f && buffered.read() == 0x8b;
+        buffered.reset();
+        reader = new InputStreamReader(compressed ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered,
+                StandardCharsets.UTF_8);
+
+        if (peek() == '\uFEFF') {
+            position++; // UTF-8 BOM
+        }
+        if (!skipBlankLines()) {
+            throw new IllegalArgumentException("logData 数据无效: 缺少表头。");
+        }
+        delimiter = headerContainsTab() ? '\t' : ',';
+        quoting = delimiter == ',';
+
+        List<String> names = new ArrayList<>();
+        int end;
+        do {
+            end = readField();
+            names.add(fieldLength == 0 ? null : new String(field, 0, fieldLength));
+        } while (end == DELIMITER);
+        itemNames = names.subList(1, names.size()).toArray(new String[0]);
+    }
+
+    /*
+     * 在已读入缓冲区的第一行中查找制表符（表头超过缓冲区时只检查缓冲区中的部分）。
+     */
+    private boolean headerContainsTab() {
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '\t') {
+                return true;
+            }
+            if (c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * 用 JSON 大小表示的日志数据量，用于内存估算。
+     * @param logDataBytes 上传的日志数据字节数
+     */
+    public long estimatedJsonBytes(long logDataBytes) {
+        return logDataBytes * ESTIMATED_JSON_EXPANSION * (compressed ? ESTIMATED_GZIP_RATIO : 1);
+    }
+
+    @Override
+    public LogRecord next() throws IOException {
+        if (!skipBlankLines()) {
+            close();
+            return null;
+        }
+        LogRecord record = new LogRecord();
+        List<DetailedItem> items = new ArrayList<>(itemNames.length);
+        int column = 0;
+        int end;
+        do {
+            end = readField();
+            if (column == 0) {
+                record.setSn(fieldText());
+            } else if (column <= itemNames.length && itemNames[column - 1] != null && fieldLength > 0) {
+                DetailedItem item = new DetailedItem();
+                item.setItemName(itemNames[column - 1]);
+                item.setActualValue(fieldText());
+                items.add(item);
+            }
+            column++;
+        } while (end == DELIMITER);
+        record.setDetailedItems(items);
+        return record;
+    }
+
+    /*
+     * 语义与 MappingPlan.resolve(next()) 相同，但只为映射引用的列创建字符串。
+     */
+    @Override
+    public ResolvedRecord nextResolved(MappingPlan plan) throws IOException {
+        if (!skipBlankLines()) {
+            close();
+            return null;
+        }
+        int[] slots = columnSlots(plan);
+        String sn = null;
+        String[] slotValues = new String[plan.getSlotCount()];
+        int column = 0;
+        int end;
+        do {
+            end = readField();
+            if (column == 0) {
+                sn = fieldText();
+            } else if (column <= slots.length && fieldLength > 0) {
+                int slot = slots[column - 1];
+                if (slot >= 0 && slotValues[slot] == null) {
+                    slotValues[slot] = new String(field, 0, fieldLength);
+                }
+            }
+            column++;
+        } while (end == DELIMITER);
+        plan.resolveSn(slotValues, sn);
+        return new ResolvedRecord(sn, slotValues);
+    }
+
+    private int[] columnSlots(MappingPlan plan) {
+        if (plan != columnSlotsPlan) {
+            columnSlots = new int[itemNames.length];
+            for (int i = 0; i < itemNames.length; i++) {
+                columnSlots[i] = plan.slotOf(itemNames[i]);
+            }
+            columnSlotsPlan = plan;
+        }
+        return columnSlots;
+    }
+
+    private String fieldText() {
+        return fieldLength == 0 ? null : new String(field, 0, fieldLength);
+    }
+
+    /*
+     * 跳过空行，定位到下一行的开头；没有更多数据时返回 false。
+     */
+    private boolean skipBlankLines() throws IOException {
+        if (reader == null) {
+            return false;
+        }
+        for (int c = peek(); ; c = peek()) {
+            if (c == -1) {
+                return false;
+            }
+            if (c != '\n' && c != '\r') {
+                rowNumber++;
+                return true;
+            }
+            position++;
+        }
+    }
+
+    /*
+     * 读取当前行的下一个字段到 field，返回其后是分隔符 (DELIMITER) 还是行尾或输入结束 (END_OF_ROW)。
+     */
+    private int readField() throws IOException {
+        fieldLength = 0;
+        int c = read();
+        if (quoting && c == '"') {
+            while (true) {
+                c = read();
+                if (c == -1) {
+                    throw new IllegalArgumentException("logData 数据无效: 第 " + rowNumber + " 行的引号未闭合。");
+                }
+                if (c == '"') {
+                    if (peek() != '"') {
+                        c = read();
+                        break;
+                    }
+                    position++; // "" 表示一个双引号
+                }
+                append((char) c);
+            }
+            if (c != delimiter && c != '\n' && c != '\r' && c != -1) {
+                throw new IllegalArgumentException("logData 数据无效: 第 " + rowNumber + " 行的引号之后缺少分隔符。");
+            }
+        } else {
+            while (c != delimiter && c != '\n' && c != '\r' && c != -1) {
+                append((char) c);
+                c = read();
+            }
+        }
+
+        if (c == delimiter) {
+            return DELIMITER;
+        }
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+        return END_OF_ROW;
+    }
+
+    private void append(char c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = c;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        return buffer[position];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            Reader current = reader;
+            reader = null;
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/TemplateRegistry.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.TemplateCacheStats;
+import com.obsidian.reportgeneratorbackend.exception.TemplateNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 描述: 模板注册表。按模板内容的 SHA-256 缓存预解析的模板快照，
+ *       前端可以先上传一次模板拿到 templateId，之后的生成请求只传 id。
+ *       缓存按估算内存占用加权，超出上限时按最近最少使用(LRU)顺序淘汰。
+ */
+@Service
+public class TemplateRegistry {
+
+    private final ReportProperties.TemplateCache config;
+
+    private final ReportMetrics metrics;
+
+    /*
+     * accessOrder = true 的 LinkedHashMap，迭代顺序即 LRU 顺序。所有访问都在 this 上同步。
+     */
+    private final LinkedHashMap<String, TemplateSnapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TemplateRegistry(ReportProperties properties, ReportMetrics metrics) {
+        this.config = properties.getTemplateCache();
+        this.metrics = metrics;
+    }
+
+    /*
+     * 注册模板字节：已缓存相同内容时直接返回缓存的快照，否则解析并放入缓存。
+     */
+    public TemplateSnapshot register(byte[] templateBytes) throws IOException {
+        if (templateBytes == null || templateBytes.length == 0) {
+            throw new IllegalArgumentException("Excel模板文件字节为空。");
+        }
+        String id = TemplateSnapshot.sha256Hex(templateBytes);
+        TemplateSnapshot cached = lookup(id);
+        if (cached != null) {
+            return cached;
+        }
+        // 解析在锁外进行；并发注册同一模板时最多重复解析一次，结果等价
+        long start = System.nanoTime();
+        TemplateSnapshot snapshot = TemplateSnapshot.parse(templateBytes);
+        metrics.recordTemplateParse(start);
+        put(snapshot);
+        return snapshot;
+    }
+
+    /*
+     * 按 templateId 查找已缓存的模板快照。
+     */
+    public Optional<TemplateSnapshot> find(String templateId) {
+        return Optional.ofNullable(lookup(templateId));
+    }
+
+    /*
+     * 解析生成请求中的模板：优先使用上传的模板字节（同时登记到缓存），否则按 templateId 从缓存中查找。
+     * @param uploadedBytes 上传的模板字节，未上传时为 null
+     */
+    public TemplateSnapshot resolve(byte[] uploadedBytes, String templateId) throws IOException {
+        if (uploadedBytes != null && uploadedBytes.length > 0) {
+            return register(uploadedBytes);
+        }
+        if (templateId == null || templateId.isBlank()) {
+            throw new IllegalArgumentException("必须上传模板文件或提供 templateId。");
+        }
+        return find(templateId.trim()).orElseThrow(() -> new TemplateNotFoundException(templateId));
+    }
+
+    public TemplateCacheStats stats() {
+        TemplateCacheStats stats = new TemplateCacheStats();
+        synchronized (this) {
+            stats.setEntries(snapshots.size());
+            stats.setWeightBytes(totalWeight);
+        }
+        stats.setMaxWeightBytes(config.getMaxWeightBytes());
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        return stats;
+    }
+
+    private TemplateSnapshot lookup(String id) {
+        TemplateSnapshot snapshot;
+        synchronized (this) {
+            snapshot = snapshots.get(id);
+        }
+        (snapshot != null ? hits : misses).incrementAndGet();
+        return snapshot;
+    }
+
+    private synchronized void put(TemplateSnapshot snapshot) {
+        if (!config.isEnabled() || snapshot.getWeight() > config.getMaxWeightBytes()) {
+            return;
+        }
+        TemplateSnapshot previous = snapshots.put(snapshot.getId(), snapshot);
+        if (previous != null) {
+            totalWeight -= previous.getWeight();
+        }
+        totalWeight += snapshot.getWeight();
+
+        Iterator<Map.Entry<String, TemplateSnapshot>> eldest = snapshots.entrySet().iterator();
+        while (totalWeight > config.getMaxWeightBytes() && eldest.hasNext()) {
+            TemplateSnapshot evicted = eldest.next().getValue();
+            eldest.remove();
+            totalWeight -= evicted.getWeight();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.ConditionalFormatting;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.DataValidation;
+import org.apache.poi.ss.usermodel.DataValidationConstraint;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.xssf.model.CommentsTable;
+import org.apache.poi.xssf.usermodel.XSSFChart;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFPivotTable;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFTable;
+import org.apache.poi.xssf.usermodel.XSSFVMLDrawing;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/*
+ * 描述: 多工作表模式 (MULTI_SHEET) 的包级工作表克隆引擎。
+ *       输出工作簿直接由模板字节加载，每个 SN 的工作表是模板第一个工作表在 OOXML 包内的副本：
+ *       工作表 XML 部件整体序列化后重新解析（XSSFWorkbook.cloneSheet），绘图部件连同关系一并复制，
+ *       图片部件在所有副本之间共享。条件格式、数据验证、形状等都随 XML 一起保留，
+ *       样式直接沿用模板的样式表，不需要逐个克隆。克隆成本与工作表 XML 的字节数成正比，与单元格数无关。
+ *       所有 SN 工作表创建完毕后删除原有的模板工作表，因此引用工作表名的公式和定义的名称不能使用这种方式（见 supports）。
+ *       与输出工作簿一样，本类只能在单个线程中使用。
+ */
+public class TemplateSheetCloner {
+
+    private final XSSFWorkbook workbook;
+    private final int templateSheetCount;
+
+    /*
+     * @param workbook 由模板字节加载的工作簿，将作为输出工作簿
+     */
+    public TemplateSheetCloner(XSSFWorkbook workbook) {
+        this.workbook = workbook;
+        this.templateSheetCount = workbook.getNumberOfSheets();
+    }
+
+    /*
+     * 判断工作表能否在包级别克隆，不能时改用逐单元格复制：
+     * - 表格、数据透视表、批注和图表部件在副本之间不能共享（名称或 ID 冲突会导致 Excel 报告文件损坏）；
+     * - 模板工作表在克隆后会被删除，引用工作表名的公式（包括引用第一个工作表自身的）和定义的名称
+     *   在所有副本中都会变成 #REF!。
+     */
+    public static boolean supports(XSSFSheet sheet) {
+        if (sheet.getWorkbook().getNumberOfNames() > 0 || hasSheetReferences(sheet)) {
+            return false;
+        }
+        for (POIXMLDocumentPart part : sheet.getRelations()) {
+            if (part instanceof XSSFTable || part instanceof XSSFPivotTable
+                    || part instanceof CommentsTable || part instanceof XSSFVMLDrawing) {
+                return false;
+            }
+            if (part instanceof XSSFDrawing) {
+                for (POIXMLDocumentPart drawingPart : part.getRelations()) {
+                    if (drawingPart instanceof XSSFChart) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * 单元格公式、数据验证和条件格式中是否含有工作表引用（如 Sheet2!A1、'模板'!A1，以及外部引用）。
+     * 按 "!" 判断：字符串常量中的 "!" 也会被当作引用，这时只是改用逐单元格复制。
+     */
+    private static boolean hasSheetReferences(XSSFSheet sheet) {
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (cell.getCellType() == CellType.FORMULA && isSheetReference(cell.getCellFormula())) {
+                    return true;
+                }
+            }
+        }
+        for (DataValidation validation : sheet.getDataValidations()) {
+            DataValidationConstraint constraint = validation.getValidationConstraint();
+            if (isSheetReference(constraint.getFormula1()) || isSheetReference(constraint.getFormula2())) {
+                return true;
+            }
+        }
+        SheetConditionalFormatting conditionalFormatting = sheet.getSheetConditionalFormatting();
+        for (int i = 0; i < conditionalFormatting.getNumConditionalFormattings(); i++) {
+            ConditionalFormatting formatting = conditionalFormatting.getConditionalFormattingAt(i);
+            for (int j = 0; j < formatting.getNumberOfRules(); j++) {
+                ConditionalFormattingRule rule = formatting.getRule(j);
+                if (isSheetReference(rule.getFormula1()) || isSheetReference(rule.getFormula2())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSheetReference(String formula) {
+        return formula != null && formula.indexOf('!') >= 0;
+    }
+
+    /*
+     * 在工作簿末尾创建模板第一个工作表的副本。
+     * 名称与某个模板工作表相同时，先给该模板工作表改名（它最终会被删除）。
+     */
+    public XSSFSheet cloneFirstSheet(String sheetName) {
+        int existing = workbook.getSheetIndex(sheetName);
+        if (existing >= 0 && existing < templateSheetCount) {
+            workbook.setSheetName(existing, "__template_" + existing);
+        }
+        return workbook.cloneSheet(0, sheetName);
+    }
+
+    /*
+     * 删除原有的模板工作表，并把第一个副本设为活动工作表。
+     * 没有创建任何副本时保留模板，避免写出不含工作表的工作簿。
+     */
+    public void removeTemplateSheets() {
+        if (workbook.getNumberOfSheets() == templateSheetCount) {
+            return;
+        }
+
+        // supports() 保证了模板中没有定义的名称和工作表引用，删除模板工作表不会留下 #REF!
+        for (int i = templateSheetCount - 1; i >= 0; i--) {
+            workbook.removeSheetAt(i);
+        }
+
+        workbook.setActiveSheet(0);
+        workbook.setFirstVisibleTab(0);
+        workbook.getSheetAt(0).setSelected(true);
+    }
+}
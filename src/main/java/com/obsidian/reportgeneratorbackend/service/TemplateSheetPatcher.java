@@ -0,0 +1,574 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * 描述: ZIP 模式的"补丁"写出：不加载完整的 XSSFWorkbook，而是直接修补模板第一个工作表的 XML。
+ *       - 创建时用 StAX 把工作表 XML 流式读一遍，在映射的目标单元格处切开，
+ *         得到"固定的 XML 片段 + 目标单元格"交替排列的模板；模板中不存在的行和单元格按行列顺序插入；
+ *       - 每个 SN 只需依次写出这些片段，并在目标单元格处写入该 SN 的值（文本为内联字符串，数值为 <v>）；
+ *       - 压缩包中的其他条目按原始压缩数据逐字节复制，不解压也不重新压缩；
+ *       - 数值单元格需要的带数字格式的样式在创建时一次性加入样式表，与 MappedCellWriter 的效果一致。
+ *       目标单元格含有公式、行或单元格缺少 r 属性、或找不到工作表部件时不适用，create 返回 null，
+ *       调用方改用 POI 加载工作簿。创建后的实例不可变，可以被多个线程同时使用。
+ */
+@Slf4j
+public class TemplateSheetPatcher {
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    private final MappingPlan plan;
+    private final boolean numericOutput;
+
+    /*
+     * 模板压缩包的所有条目，按物理顺序排列。
+     */
+    private final List<TemplateEntry> entries;
+
+    /*
+     * 工作表 XML 片段，比 holes 多一个：chunks[0] holes[0] chunks[1] ... holes[n-1] chunks[n]。
+     */
+    private final List<byte[]> chunks;
+    private final List<Hole> holes;
+
+    private TemplateSheetPatcher(MappingPlan plan, boolean numericOutput, List<TemplateEntry> entries,
+                                 List<byte[]> chunks, List<Hole> holes) {
+        this.plan = plan;
+        this.numericOutput = numericOutput;
+        this.entries = entries;
+        this.chunks = chunks;
+        this.holes = holes;
+    }
+
+    /*
+     * 为模板和映射计划构建补丁写出器，不适用时返回 null。
+     * @param numericOutput 是否把单源数值映射写为数值单元格（report.cell-output.numeric-enabled）
+     */
+    public static TemplateSheetPatcher create(TemplateSnapshot template, MappingPlan plan,
+                                              boolean numericOutput) throws IOException {
+        if (template.getFirstSheetPartName() == null) {
+            return null;
+        }
+
+        List<TemplateEntry> entries = new ArrayList<>();
+        byte[] sheetXml = null;
+        byte[] stylesXml = null;
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(template.getBytes()))) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntriesInPhysicalOrder())) {
+                String name = entry.getName();
+                if (name.equalsIgnoreCase(template.getFirstSheetPartName())) {
+                    sheetXml = readAll(zipFile.getInputStream(entry));
+                } else if (name.equalsIgnoreCase(template.getStylesPartName())) {
+                    stylesXml = readAll(zipFile.getInputStream(entry));
+                }
+                entries.add(new TemplateEntry(entry, readAll(zipFile.getRawInputStream(entry))));
+            }
+        }
+        if (sheetXml == null) {
+            return null;
+        }
+
+        // 同一地址出现多次时（如 "1_2" 与 "01_2"）按规则顺序保留，写入时后出现的有值的规则优先
+        TreeMap<Long, List<MappingPlan.CellTarget>> targetsByCell = new TreeMap<>();
+        for (MappingPlan.CellTarget target : plan.getTargets()) {
+            targetsByCell.computeIfAbsent(cellKey(target.getRow(), target.getCol()), key -> new ArrayList<>())
+                    .add(target);
+        }
+
+        SheetStencil stencil;
+        try {
+            stencil = new SheetStencil(targetsByCell);
+            if (!stencil.build(sheetXml)) {
+                return null;
+            }
+        } catch (XMLStreamException e) {
+            log.warn("无法解析模板工作表 XML，改用完整工作簿生成: {}", e.getMessage());
+            return null;
+        }
+
+        byte[] patchedStylesXml = null;
+        if (numericOutput && stencil.hasNumericTargets()) {
+            if (stylesXml == null) {
+                return null;
+            }
+            patchedStylesXml = stencil.assignNumericStyles(stylesXml);
+        }
+
+        List<TemplateEntry> patchedEntries = new ArrayList<>(entries.size());
+        for (TemplateEntry entry : entries) {
+            String name = entry.getName();
+            if (name.equalsIgnoreCase(template.getFirstSheetPartName())) {
+                patchedEntries.add(TemplateEntry.sheet(name));
+            } else if (patchedStylesXml != null && name.equalsIgnoreCase(template.getStylesPartName())) {
+                patchedEntries.add(TemplateEntry.replaced(name, patchedStylesXml));
+            } else {
+                patchedEntries.add(entry);
+            }
+        }
+        return new TemplateSheetPatcher(plan, numericOutput, patchedEntries, stencil.chunks, stencil.holes);
+    }
+
+    /*
+     * 为一个 SN 写出完整的 xlsx 文件，输出流不会被关闭。
+     * @return 写入了值的目标单元格数
+     */
+    public int write(String[] slotValues, OutputStream out) throws IOException {
+        int written = 0;
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(out))) {
+            for (TemplateEntry entry : entries) {
+                if (entry.isSheet()) {
+                    zip.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                    written = writeSheet(slotValues, zip);
+                    zip.closeArchiveEntry();
+                } else if (entry.getReplacement() != null) {
+                    zip.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                    zip.write(entry.getReplacement());
+                    zip.closeArchiveEntry();
+                } else {
+                    // 原始压缩数据直接复制，CRC 和大小沿用模板中的条目
+                    zip.addRawArchiveEntry(new ZipArchiveEntry(entry.getEntry()),
+                            new ByteArrayInputStream(entry.getRawData()));
+                }
+            }
+            zip.finish();
+        }
+        return written;
+    }
+
+    private int writeSheet(String[] slotValues, OutputStream out) throws IOException {
+        int written = 0;
+        StringBuilder cell = new StringBuilder(128);
+        for (int i = 0; i < holes.size(); i++) {
+            out.write(chunks.get(i));
+            Hole hole = holes.get(i);
+            cell.setLength(0);
+            if (hole.render(plan, numericOutput, slotValues, cell)) {
+                out.write(cell.toString().getBytes(StandardCharsets.UTF_8));
+                written++;
+            } else if (hole.getOriginalXml() != null) {
+                out.write(hole.getOriginalXml());
+            }
+        }
+        out.write(chunks.get(holes.size()));
+        return written;
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    /*
+     * 描述: 工作表 XML 的一次 StAX 遍历：固定部分经 XMLEventWriter 原样写出，在目标单元格处切开。
+     */
+    private static final class SheetStencil {
+
+        private final TreeMap<Long, List<MappingPlan.CellTarget>> pendingTargets;
+        private final List<byte[]> chunks = new ArrayList<>();
+        private final List<Hole> holes = new ArrayList<>();
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private XMLEventWriter writer;
+
+        /*
+         * 主命名空间的前缀（如 "x:"），通常为空。插入的新行和单元格使用同样的前缀。
+         */
+        private String prefix = "";
+
+        SheetStencil(TreeMap<Long, List<MappingPlan.CellTarget>> targetsByCell) {
+            this.pendingTargets = new TreeMap<>(targetsByCell);
+        }
+
+        /*
+         * @return 工作表结构是否受支持
+         */
+        boolean build(byte[] sheetXml) throws XMLStreamException, IOException {
+            XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new ByteArrayInputStream(sheetXml));
+            writer = OUTPUT_FACTORY.createXMLEventWriter(buffer, "UTF-8");
+
+            // 深度：worksheet = 1，sheetData = 2，row = 3，c = 4
+            int depth = 0;
+            boolean inSheetData = false;
+            int currentRow = -1;
+            boolean sheetDataSeen = false;
+
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                    StartElement element = event.asStartElement();
+                    String localName = element.getName().getLocalPart();
+                    if (depth == 2 && "sheetData".equals(localName)) {
+                        String elementPrefix = element.getName().getPrefix();
+                        prefix = elementPrefix == null || elementPrefix.isEmpty() ? "" : elementPrefix + ":";
+                        inSheetData = true;
+                        sheetDataSeen = true;
+                    } else if (inSheetData && depth == 3 && "row".equals(localName)) {
+                        Integer row = rowIndex(element);
+                        if (row == null) {
+                            return false;
+                        }
+                        insertRowsBefore(row);
+                        currentRow = row;
+                    } else if (currentRow >= 0 && depth == 4 && "c".equals(localName)) {
+                        Integer col = colIndex(element);
+                        if (col == null) {
+                            return false;
+                        }
+                        insertCellsBefore(currentRow, col);
+                        List<MappingPlan.CellTarget> targets = pendingTargets.remove(cellKey(currentRow, col));
+                        if (targets != null) {
+                            if (!captureExistingCell(reader, element, currentRow, col, targets)) {
+                                return false;
+                            }
+                            depth--;
+                            continue;
+                        }
+                    }
+                } else if (event.isEndElement()) {
+                    if (currentRow >= 0 && depth == 3) {
+                        insertCellsBefore(currentRow, Integer.MAX_VALUE);
+                        currentRow = -1;
+                    } else if (inSheetData && depth == 2) {
+                        insertRowsBefore(Integer.MAX_VALUE);
+                        inSheetData = false;
+                    }
+                    depth--;
+                }
+                writer.add(event);
+            }
+            writer.flush();
+            chunks.add(buffer.toByteArray());
+            return sheetDataSeen && pendingTargets.isEmpty();
+        }
+
+        boolean hasNumericTargets() {
+            for (Hole hole : holes) {
+                for (MappingPlan.CellTarget target : hole.getTargets()) {
+                    if (target.getNumericFormat() != null) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /*
+         * 为数值目标单元格创建 (原有样式, 数字格式) 对应的样式，返回修改后的样式表 XML。
+         */
+        byte[] assignNumericStyles(byte[] stylesXml) throws IOException {
+            StylesTable styles = new StylesTable(new ByteArrayInputStream(stylesXml));
+            Map<String, Integer> styleIndexByKey = new HashMap<>();
+            for (Hole hole : holes) {
+                int baseIndex = hole.getStyleIndex();
+                List<MappingPlan.CellTarget> targets = hole.getTargets();
+                for (int i = 0; i < targets.size(); i++) {
+                    String format = targets.get(i).getNumericFormat();
+                    if (format == null) {
+                        continue;
+                    }
+                    Integer styleIndex = styleIndexByKey.get(baseIndex + "|" + format);
+                    if (styleIndex == null) {
+                        XSSFCellStyle baseStyle = styles.getStyleAt(baseIndex);
+                        XSSFCellStyle style = styles.createCellStyle();
+                        if (baseStyle != null) {
+                            style.cloneStyleFrom(baseStyle);
+                        }
+                        style.setDataFormat(styles.putNumberFormat(format));
+                        styleIndex = Short.toUnsignedInt(style.getIndex());
+                        styleIndexByKey.put(baseIndex + "|" + format, styleIndex);
+                    }
+                    hole.getNumericStyles()[i] = String.valueOf(styleIndex);
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stylesXml.length + 1024);
+            styles.writeTo(out);
+            return out.toByteArray();
+        }
+
+        /*
+         * 在第 row 行（0 起）之前插入模板中不存在的、含有目标单元格的行。
+         */
+        private void insertRowsBefore(int row) throws XMLStreamException, IOException {
+            while (!pendingTargets.isEmpty()) {
+                long key = pendingTargets.firstKey();
+                int pendingRow = (int) (key >>> 32);
+                if (pendingRow >= row) {
+                    return;
+                }
+                writeRaw("<" + prefix + "row r=\"" + (pendingRow + 1) + "\">");
+                insertCellsBefore(pendingRow, Integer.MAX_VALUE);
+                writeRaw("</" + prefix + "row>");
+            }
+        }
+
+        /*
+         * 在第 row 行的第 col 列之前插入模板中不存在的目标单元格。
+         */
+        private void insertCellsBefore(int row, int col) throws XMLStreamException {
+            while (!pendingTargets.isEmpty()) {
+                long key = pendingTargets.firstKey();
+                if ((int) (key >>> 32) != row || (int) key >= col) {
+                    return;
+                }
+                cut();
+                addHole(row, (int) key, null, pendingTargets.remove(key), null);
+            }
+        }
+
+        /*
+         * 读取模板中已存在的目标单元格（直到其结束标签），保存其原始 XML，
+         * 以便该 SN 没有值时原样写回。含有公式的单元格不支持修补。
+         */
+        private boolean captureExistingCell(XMLEventReader reader, StartElement element, int row, int col,
+                                            List<MappingPlan.CellTarget> targets) throws XMLStreamException {
+            ByteArrayOutputStream original = new ByteArrayOutputStream();
+            XMLEventWriter originalWriter = OUTPUT_FACTORY.createXMLEventWriter(original, "UTF-8");
+            originalWriter.add(element);
+            int depth = 1;
+            while (depth > 0) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                    if ("f".equals(event.asStartElement().getName().getLocalPart())) {
+                        return false;
+                    }
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                originalWriter.add(event);
+            }
+            originalWriter.flush();
+
+            Attribute style = element.getAttributeByName(new QName("s"));
+            cut();
+            addHole(row, col, style == null ? null : style.getValue(), targets, original.toByteArray());
+            return true;
+        }
+
+        private void addHole(int row, int col, String style, List<MappingPlan.CellTarget> targets,
+                             byte[] originalXml) {
+            holes.add(new Hole(prefix, new CellReference(row, col).formatAsString(false), style, targets,
+                    originalXml));
+        }
+
+        /*
+         * 结束当前片段，之后紧接着添加一个目标单元格。
+         */
+        private void cut() throws XMLStreamException {
+            sync();
+            chunks.add(buffer.toByteArray());
+            buffer.reset();
+        }
+
+        /*
+         * 绕过 StAX 写出器直接向当前片段追加 XML。
+         */
+        private void writeRaw(String xml) throws XMLStreamException, IOException {
+            sync();
+            buffer.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /*
+         * 先写出一个空的字符事件，让 StAX 写出器补全尚未闭合的开始标签，再把缓冲的内容刷到 buffer。
+         */
+        private void sync() throws XMLStreamException {
+            writer.add(EVENT_FACTORY.createCharacters(""));
+            writer.flush();
+        }
+
+        private static Integer rowIndex(StartElement element) {
+            Attribute r = element.getAttributeByName(new QName("r"));
+            if (r == null) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(r.getValue().trim()) - 1;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Integer colIndex(StartElement element) {
+            Attribute r = element.getAttributeByName(new QName("r"));
+            if (r == null) {
+                return null;
+            }
+            try {
+                return (int) new CellReference(r.getValue().trim()).getCol();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * 描述: 工作表 XML 中的一个目标单元格位置。
+     */
+    @Getter
+    private static final class Hole {
+        private final String prefix;
+        private final String reference;
+        private final String style;
+        private final List<MappingPlan.CellTarget> targets;
+        private final byte[] originalXml;
+
+        /*
+         * 与 targets 一一对应：写为数值时使用的样式索引，未启用数值输出时为 null。
+         */
+        private final String[] numericStyles;
+
+        Hole(String prefix, String reference, String style, List<MappingPlan.CellTarget> targets,
+             byte[] originalXml) {
+            this.prefix = prefix;
+            this.reference = reference;
+            this.style = style;
+            this.targets = targets;
+            this.originalXml = originalXml;
+            this.numericStyles = new String[targets.size()];
+        }
+
+        int getStyleIndex() {
+            if (style == null) {
+                return 0;
+            }
+            try {
+                return Integer.parseInt(style.trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        /*
+         * 按 MappedCellWriter 的规则渲染单元格 XML；没有任何规则取到值时返回 false。
+         */
+        boolean render(MappingPlan plan, boolean numericOutput, String[] slotValues, StringBuilder out) {
+            for (int i = targets.size() - 1; i >= 0; i--) {
+                MappingPlan.CellTarget target = targets.get(i);
+                Double number = numericOutput && numericStyles[i] != null ? plan.renderNumber(target, slotValues) : null;
+                if (number != null) {
+                    out.append('<').append(prefix).append("c r=\"").append(reference)
+                            .append("\" s=\"").append(numericStyles[i]).append("\"><")
+                            .append(prefix).append("v>").append(number.doubleValue())
+                            .append("</").append(prefix).append("v></").append(prefix).append("c>");
+                    return true;
+                }
+                String text = plan.renderCell(target, slotValues);
+                if (text != null) {
+                    out.append('<').append(prefix).append("c r=\"").append(reference).append('"');
+                    if (style != null) {
+                        out.append(" s=\"").append(style).append('"');
+                    }
+                    out.append(" t=\"inlineStr\"><").append(prefix).append("is><").append(prefix)
+                            .append("t xml:space=\"preserve\">");
+                    appendEscaped(text, out);
+                    out.append("</").append(prefix).append("t></").append(prefix).append("is></")
+                            .append(prefix).append("c>");
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * XML 转义；XML 1.0 不允许的控制字符按 Excel 的约定编码为 _xHHHH_。
+         */
+        private static void appendEscaped(String text, StringBuilder out) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '&' -> out.append("&amp;");
+                    case '<' -> out.append("&lt;");
+                    case '>' -> out.append("&gt;");
+                    default -> {
+                        if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                            out.append(String.format("_x%04X_", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * 描述: 模板压缩包中的一个条目：原样复制的原始压缩数据、替换后的内容，或待修补的工作表。
+     */
+    @Getter
+    private static final class TemplateEntry {
+        private final ZipArchiveEntry entry;
+        private final String name;
+        private final byte[] rawData;
+        private final byte[] replacement;
+        private final boolean sheet;
+
+        private TemplateEntry(ZipArchiveEntry entry, String name, byte[] rawData, byte[] replacement,
+                              boolean sheet) {
+            this.entry = entry;
+            this.name = name;
+            this.rawData = rawData;
+            this.replacement = replacement;
+            this.sheet = sheet;
+        }
+
+        TemplateEntry(ZipArchiveEntry entry, byte[] rawData) {
+            this(entry, entry.getName(), rawData, null, false);
+        }
+
+        static TemplateEntry sheet(String name) {
+            return new TemplateEntry(null, name, null, null, true);
+        }
+
+        static TemplateEntry replaced(String name, byte[] replacement) {
+            return new TemplateEntry(null, name, null, replacement, false);
+        }
+    }
+}
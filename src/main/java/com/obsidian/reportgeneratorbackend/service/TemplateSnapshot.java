@@ -0,0 +1,123 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/TemplateSnapshot.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import lombok.Getter;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/*
+ * 描述: 预解析的模板快照，按内容的 SHA-256 标识，可被多个请求共享。
+ *       - bytes: 原始模板字节，需要完整模板包的导出模式（单表、ZIP）从这里创建工作簿；
+ *       - firstSheet: 第一个工作表的只读快照（值、样式索引、合并区域、列宽、图片），
+ *         多工作表模式直接用它"盖章"出新的工作表，不必再解析模板 XML；
+ *       - styles: 单独解析的模板样式表（见 TemplateStyles），多工作表模式逐单元格复制时从这里克隆样式；
+ *       - firstSheetCloneable: 第一个工作表能否由 TemplateSheetCloner 在包级别克隆；
+ *       - firstSheetPartName / stylesPartName: 第一个工作表和样式表在压缩包中的条目名，供 TemplateSheetPatcher 使用。
+ *       快照不常驻已解析的模板工作簿：解析得到的 XML 对象树通常是压缩包大小的数倍，缓存中的每个模板都持有一份
+ *       代价过高。样式表通常只有几 KB，单独保留。
+ */
+public class TemplateSnapshot {
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final byte[] bytes;
+
+    @Getter
+    private final SheetSnapshot firstSheet;
+
+    @Getter
+    private final TemplateStyles styles;
+
+    @Getter
+    private final boolean firstSheetCloneable;
+
+    @Getter
+    private final String firstSheetPartName;
+
+    /*
+     * 模板没有样式表部件时为 null。
+     */
+    @Getter
+    private final String stylesPartName;
+
+    /*
+     * 快照本身估算的内存占用（字节：模板字节、第一个工作表的快照和图片、样式表），作为缓存的权重。
+     */
+    @Getter
+    private final long weight;
+
+    /*
+     * 从 bytes 加载一个模板工作簿的估算内存占用（字节），用于估算生成过程的内存。
+     */
+    @Getter
+    private final long workbookWeight;
+
+    private TemplateSnapshot(String id, byte[] bytes, SheetSnapshot firstSheet, TemplateStyles styles,
+                             boolean firstSheetCloneable, String firstSheetPartName, String stylesPartName,
+                             long weight, long workbookWeight) {
+        this.id = id;
+        this.bytes = bytes;
+        this.firstSheet = firstSheet;
+        this.styles = styles;
+        this.firstSheetCloneable = firstSheetCloneable;
+        this.firstSheetPartName = firstSheetPartName;
+        this.stylesPartName = stylesPartName;
+        this.weight = weight;
+        this.workbookWeight = workbookWeight;
+    }
+
+    /*
+     * 解析模板并生成快照。模板无效或不包含任何工作表时抛出 IllegalArgumentException。
+     */
+    public static TemplateSnapshot parse(byte[] templateBytes) throws IOException {
+        if (templateBytes == null || templateBytes.length == 0) {
+            throw new IllegalArgumentException("Excel模板文件字节为空。");
+        }
+        try (XSSFWorkbook workbook = PoiHelper.createWorkbookFromTemplate(templateBytes)) {
+            if (workbook.getNumberOfSheets() == 0) {
+                throw new IllegalArgumentException("模板文件不包含任何工作表。");
+            }
+            SheetSnapshot firstSheet = SheetSnapshot.captureSheet(workbook.getSheetAt(0));
+            TemplateStyles styles = TemplateStyles.capture(workbook);
+
+            long pictureBytes = 0;
+            for (SheetSnapshot.PictureData picture : firstSheet.getPictures()) {
+                pictureBytes += picture.getData().length;
+            }
+            // 解析后的 XML 对象通常是 XML 大小的数倍，按经验值粗略估算
+            long weight = templateBytes.length + firstSheet.cellCount() * 96L + pictureBytes
+                    + styles.getSerializedSize() * 8L;
+            long workbookWeight = templateBytes.length * 8L;
+
+            boolean cloneable = TemplateSheetCloner.supports(workbook.getSheetAt(0));
+            String firstSheetPartName = zipEntryName(workbook.getSheetAt(0));
+            String stylesPartName = workbook.getStylesSource() == null
+                    ? null
+                    : zipEntryName(workbook.getStylesSource());
+            return new TemplateSnapshot(sha256Hex(templateBytes), templateBytes, firstSheet, styles, cloneable,
+                    firstSheetPartName, stylesPartName, weight, workbookWeight);
+        }
+    }
+
+    /*
+     * OPC 部件名（如 "/xl/worksheets/sheet1.xml"）对应的压缩包条目名。
+     */
+    private static String zipEntryName(POIXMLDocumentPart part) {
+        return part.getPackagePart().getPartName().getName().substring(1);
+    }
+
+    public static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256。", e);
+        }
+    }
+}
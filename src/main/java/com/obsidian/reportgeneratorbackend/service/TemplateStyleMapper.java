@@ -0,0 +1,48 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/TemplateStyleMapper.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * 描述: 单个输出工作簿内的样式映射：模板样式索引 -> 已克隆到输出工作簿的样式。
+ *       每种模板样式只克隆一次，之后所有工作表、所有单元格共享同一个样式对象。
+ *       克隆时连带创建的字体、数字格式也因此只会登记一次，
+ *       避免多工作表报告触及 Excel 的 64000 个单元格样式上限，并显著缩小 styles.xml。
+ *       样式从模板快照缓存的样式表（TemplateStyles）中克隆，不需要为每个请求重新解析模板工作簿。
+ *       与输出工作簿一样，本类只能在单个线程中使用。
+ */
+public class TemplateStyleMapper {
+
+    private final TemplateStyles templateStyles;
+    private final Workbook targetWorkbook;
+    private final Map<Integer, CellStyle> clonedStyles = new HashMap<>();
+
+    /*
+     * @param templateStyles 模板快照的样式表，样式索引与快照中的单元格一致
+     */
+    public TemplateStyleMapper(TemplateStyles templateStyles, Workbook targetWorkbook) {
+        this.templateStyles = templateStyles;
+        this.targetWorkbook = targetWorkbook;
+    }
+
+    public CellStyle map(int templateStyleIndex) {
+        CellStyle style = clonedStyles.get(templateStyleIndex);
+        if (style == null) {
+            style = targetWorkbook.createCellStyle();
+            templateStyles.copyTo(templateStyleIndex, style);
+            clonedStyles.put(templateStyleIndex, style);
+        }
+        return style;
+    }
+
+    /*
+     * 已克隆的样式数量。
+     */
+    public int size() {
+        return clonedStyles.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/*
+ * 描述: 模板样式表的只读模型，随 TemplateSnapshot 缓存并在请求之间共享。
+ *       只包含从模板样式表部件（styles.xml）单独解析的 StylesTable，不引用模板工作簿或其他部件，
+ *       样式索引与模板快照中记录的单元格样式索引一致。
+ *       对外只提供"把某个模板样式复制到目标样式"的操作，不暴露可修改的 XSSFCellStyle；
+ *       复制时加锁，多个请求可以同时使用同一份样式表。每个输出工作簿只在首次用到某个样式时复制一次
+ *       （见 TemplateStyleMapper），锁的开销可以忽略。
+ */
+public class TemplateStyles {
+
+    private final StylesTable stylesTable;
+    private final int serializedSize;
+
+    private TemplateStyles(StylesTable stylesTable, int serializedSize) {
+        this.stylesTable = stylesTable;
+        this.serializedSize = serializedSize;
+    }
+
+    /*
+     * 把模板工作簿的样式表序列化后重新解析为独立的 StylesTable。
+     * 模板没有样式表部件时，POI 在加载时已创建默认样式表，这里同样适用。
+     */
+    static TemplateStyles capture(XSSFWorkbook templateWorkbook) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        templateWorkbook.getStylesSource().writeTo(buffer);
+        byte[] stylesXml = buffer.toByteArray();
+        return new TemplateStyles(new StylesTable(new ByteArrayInputStream(stylesXml)), stylesXml.length);
+    }
+
+    /*
+     * 把模板中索引为 templateStyleIndex 的单元格样式（连同字体、填充、边框和数字格式）复制到 target。
+     */
+    public synchronized void copyTo(int templateStyleIndex, CellStyle target) {
+        target.cloneStyleFrom(stylesTable.getStyleAt(templateStyleIndex));
+    }
+
+    /*
+     * 样式表 XML 的字节数，用于估算内存占用。
+     */
+    public int getSerializedSize() {
+        return serializedSize;
+    }
+}
@@ -0,0 +1,315 @@
+// src/main/java/com/obsidian/reportgeneratorbackend/service/ValueFormatter.java
+package com.obsidian.reportgeneratorbackend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * 描述: 单元格值的格式化引擎，结果与原先"new BigDecimal(value).setScale(decimals, HALF_UP).toPlainString() + unit"完全一致。
+ *       - 先扫描一遍字符串做分类，不分配对象、不抛异常：
+ *         普通小数（[+-]digits[.digits]）走快速路径，直接在数字字符上做 HALF_UP 舍入；
+ *         明显不是数字的文本（如 "PASS"、"N/A"）直接原样返回；
+ *         只有带指数或非 ASCII 数字的少数情况才交给 BigDecimal 处理。
+ *       - 实例绑定一组 (decimals, unit)，并缓存最近格式化过的值，供同一请求内重复出现的值复用。
+ *       - 也可以给出舍入后的数值和对应的 Excel 数字格式（如 0.00"V"），供数值单元格使用。
+ */
+public final class ValueFormatter {
+
+    /*
+     * 每个实例最多缓存的值个数，避免大量互不相同的测量值让缓存无限增长。
+     */
+    private static final int MAX_CACHED_VALUES = 4096;
+
+    private static final int NOT_A_NUMBER = 0;
+    private static final int PLAIN_DECIMAL = 1;
+    private static final int NEEDS_BIG_DECIMAL = 2;
+
+    /*
+     * double 能精确还原的有效数字位数，超出时仍按文本写入，避免显示结果与文本不一致。
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final Integer decimals;
+    private final String unit;
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    /*
+     * 原始值 -> 舍入后的数值；无法作为数值写入的值记为 NaN。
+     */
+    private final Map<String, Double> numberCache = new ConcurrentHashMap<>();
+
+    public ValueFormatter(Integer decimals, String unit) {
+        this.decimals = decimals;
+        this.unit = unit;
+    }
+
+    /*
+     * 格式化并缓存结果。可以被多个线程同时调用（例如 ZIP 模式的并行任务共用同一个映射计划）。
+     */
+    public String format(String actualValue) {
+        if (actualValue == null) {
+            return "";
+        }
+        String cached = cache.get(actualValue);
+        if (cached != null) {
+            return cached;
+        }
+        String formatted = format(actualValue, decimals, unit);
+        if (cache.size() < MAX_CACHED_VALUES) {
+            cache.put(actualValue, formatted);
+        }
+        return formatted;
+    }
+
+    /*
+     * 舍入后的数值，结果同样被缓存。
+     * @return 数值；不是数字或超出 double 的精确范围时返回 null，调用方应改用 format 的文本结果
+     */
+    public Double toNumber(String actualValue) {
+        if (actualValue == null) {
+            return null;
+        }
+        Double cached = numberCache.get(actualValue);
+        if (cached == null) {
+            String plain = formatNumber(actualValue, decimals);
+            cached = plain != null && significantDigits(plain) <= MAX_EXACT_DIGITS
+                    ? Double.valueOf(plain)
+                    : Double.NaN;
+            if (numberCache.size() < MAX_CACHED_VALUES) {
+                numberCache.put(actualValue, cached);
+            }
+        }
+        return cached.isNaN() ? null : cached;
+    }
+
+    /*
+     * 把原始值解析为 double（不舍入），与 format 对"是否为数字"的判断一致；不是数字时返回 NaN。
+     * 普通小数不抛异常、不装箱，供逐条记录调用（见 SummaryStatistics）。
+     */
+    static double parseNumber(String actualValue) {
+        if (actualValue == null || actualValue.isEmpty()) {
+            return Double.NaN;
+        }
+        switch (classify(actualValue)) {
+            case PLAIN_DECIMAL:
+                return Double.parseDouble(actualValue);
+            case NEEDS_BIG_DECIMAL:
+                try {
+                    return new BigDecimal(actualValue).doubleValue();
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /*
+     * 与 format 结果显示一致的 Excel 数字格式，例如 decimals=2、unit="V" 时为 0.00"V"。
+     * @return 数字格式；未指定小数位数（显示位数随值变化）或单位中含有引号时返回 null，表示只能按文本写入
+     */
+    public static String dataFormat(Integer decimals, String unit) {
+        if (decimals == null || decimals < 0) {
+            return null;
+        }
+        StringBuilder format = new StringBuilder(decimals + 8).append('0');
+        if (decimals > 0) {
+            format.append('.');
+            for (int i = 0; i < decimals; i++) {
+                format.append('0');
+            }
+        }
+        if (unit != null && !unit.trim().isEmpty()) {
+            if (unit.indexOf('"') >= 0) {
+                return null;
+            }
+            format.append('"').append(unit).append('"');
+        }
+        return format.toString();
+    }
+
+    /*
+     * 根据规则格式化要输出的值（无缓存）。
+     * @param actualValue 原始值
+     * @param decimals    要保留的小数位数，null 或负数表示不舍入
+     * @param unit        要附加的单位
+     * @return 格式化后的字符串；无法解析为数字时返回原始值（附加单位）
+     */
+    public static String format(String actualValue, Integer decimals, String unit) {
+        if (actualValue == null || actualValue.trim().isEmpty()) {
+            return "";
+        }
+
+        String formattedString = formatNumber(actualValue, decimals);
+
+        // 无法解析为数字时直接使用原始值
+        String result = formattedString != null ? formattedString : actualValue;
+        return unit != null && !unit.trim().isEmpty() ? result + unit : result;
+    }
+
+    /*
+     * 把数字舍入为不带单位的纯文本（与 BigDecimal.toPlainString() 相同），无法解析为数字时返回 null。
+     */
+    private static String formatNumber(String actualValue, Integer decimals) {
+        if (actualValue.isEmpty()) {
+            return null;
+        }
+        int scale = decimals != null && decimals >= 0 ? decimals : -1;
+        switch (classify(actualValue)) {
+            case PLAIN_DECIMAL:
+                return formatPlainDecimal(actualValue, scale);
+            case NEEDS_BIG_DECIMAL:
+                return formatWithBigDecimal(actualValue, scale);
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * 纯文本数字中从第一个非零数字到最后一个非零数字的位数。
+     */
+    private static int significantDigits(String plain) {
+        int first = -1;
+        int last = -1;
+        int count = 0;
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            if (c >= '1' && c <= '9') {
+                if (first < 0) {
+                    first = count;
+                }
+                last = count;
+            }
+            if (c >= '0' && c <= '9') {
+                count++;
+            }
+        }
+        return first < 0 ? 0 : last - first + 1;
+    }
+
+    /*
+     * 对字符串分类，不分配对象。
+     * BigDecimal(String) 只接受数字、'.'、'+'、'-'、'e'、'E'，其中非指数形式只能是 [+-]digits[.digits]。
+     */
+    private static int classify(String value) {
+        int length = value.length();
+        int i = 0;
+        char first = value.charAt(0);
+        if (first == '+' || first == '-') {
+            i++;
+        }
+        boolean hasDigit = false;
+        boolean hasPoint = false;
+        boolean plain = true;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c == '.' && !hasPoint) {
+                hasPoint = true;
+            } else if (c == 'e' || c == 'E' || Character.isDigit(c)) {
+                plain = false;
+            } else if (c == '.' || c == '+' || c == '-') {
+                // 只有带指数时才可能合法（例如 "1.5E-3"）
+                plain = false;
+            } else {
+                return NOT_A_NUMBER;
+            }
+        }
+        if (plain) {
+            return hasDigit ? PLAIN_DECIMAL : NOT_A_NUMBER;
+        }
+        return containsExponentOrUnicodeDigit(value) ? NEEDS_BIG_DECIMAL : NOT_A_NUMBER;
+    }
+
+    private static boolean containsExponentOrUnicodeDigit(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 'e' || c == 'E' || (c > 127 && Character.isDigit(c))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * 快速路径：value 已确认是 [+-]digits[.digits] 且至少有一位数字。
+     * 直接在数字字符上做 HALF_UP 舍入（丢弃部分的第一位 >= 5 时向远离零的方向进一），
+     * 输出与 BigDecimal.toPlainString() 相同：去掉整数部分的前导零，零值不带负号。
+     * @param scale 保留的小数位数，-1 表示保持原有小数位数
+     */
+    private static String formatPlainDecimal(String value, int scale) {
+        int length = value.length();
+        boolean negative = value.charAt(0) == '-';
+        int intStart = value.charAt(0) == '+' || negative ? 1 : 0;
+        int point = value.indexOf('.', intStart);
+        int intEnd = point < 0 ? length : point;
+        int fracStart = point < 0 ? length : point + 1;
+        int fracLength = length - fracStart;
+
+        while (intStart < intEnd && value.charAt(intStart) == '0') {
+            intStart++;
+        }
+        int intLength = intEnd - intStart;
+        int keptFraction = scale < 0 ? fracLength : scale;
+
+        // digits[0] 预留给进位
+        char[] digits = new char[1 + intLength + keptFraction];
+        digits[0] = '0';
+        value.getChars(intStart, intEnd, digits, 1);
+        int copied = Math.min(keptFraction, fracLength);
+        value.getChars(fracStart, fracStart + copied, digits, 1 + intLength);
+        for (int i = 1 + intLength + copied; i < digits.length; i++) {
+            digits[i] = '0';
+        }
+
+        if (keptFraction < fracLength && value.charAt(fracStart + keptFraction) >= '5') {
+            int i = digits.length - 1;
+            while (digits[i] == '9') {
+                digits[i--] = '0';
+            }
+            digits[i]++;
+        }
+
+        int firstInt = digits[0] == '0' ? 1 : 0;
+        int intDigits = digits.length - keptFraction - firstInt;
+        boolean zero = true;
+        for (int i = firstInt; i < digits.length; i++) {
+            if (digits[i] != '0') {
+                zero = false;
+                break;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(digits.length + 3);
+        if (negative && !zero) {
+            builder.append('-');
+        }
+        if (intDigits == 0) {
+            builder.append('0');
+        } else {
+            builder.append(digits, firstInt, intDigits);
+        }
+        if (keptFraction > 0) {
+            builder.append('.').append(digits, digits.length - keptFraction, keptFraction);
+        }
+        return builder.toString();
+    }
+
+    /*
+     * 少数情况（指数形式、非 ASCII 数字）使用 BigDecimal，无法解析时返回 null。
+     */
+    private static String formatWithBigDecimal(String value, int scale) {
+        try {
+            BigDecimal numberValue = new BigDecimal(value);
+            if (scale >= 0) {
+                numberValue = numberValue.setScale(scale, RoundingMode.HALF_UP);
+            }
+            return numberValue.toPlainString();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
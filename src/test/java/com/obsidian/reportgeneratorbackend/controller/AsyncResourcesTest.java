@@ -0,0 +1,65 @@
+package com.obsidian.reportgeneratorbackend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncResourcesTest {
+
+    private final MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+
+    @Test
+    void releasesResourcesWhenBodyNeverRuns() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        AsyncResources resources = AsyncResources.register(servletRequest, closed::incrementAndGet, null);
+
+        // 异步处理结束（超时、执行器拒绝、客户端断开）时响应体还没有开始
+        resources.afterCompletion(new ServletWebRequest(servletRequest), () -> null);
+
+        assertEquals(1, closed.get());
+        assertFalse(resources.claim());
+    }
+
+    @Test
+    void leavesClaimedResourcesToTheBody() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        AsyncResources resources = AsyncResources.register(servletRequest, closed::incrementAndGet);
+
+        assertTrue(resources.claim());
+        resources.afterCompletion(new ServletWebRequest(servletRequest), () -> null);
+        assertEquals(0, closed.get());
+
+        resources.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void closesRemainingResourcesWhenOneFails() {
+        AtomicInteger closed = new AtomicInteger();
+        IOException first = new IOException("first");
+        IOException second = new IOException("second");
+        Closeable failing = () -> {
+            throw first;
+        };
+        Closeable alsoFailing = () -> {
+            throw second;
+        };
+        AsyncResources resources = AsyncResources.register(servletRequest,
+                failing, closed::incrementAndGet, alsoFailing);
+
+        IOException thrown = assertThrows(IOException.class, resources::close);
+        assertSame(first, thrown);
+        assertSame(second, thrown.getSuppressed()[0]);
+        assertEquals(1, closed.get());
+    }
+}
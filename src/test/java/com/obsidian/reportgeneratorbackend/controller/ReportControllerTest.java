@@ -0,0 +1,172 @@
+package com.obsidian.reportgeneratorbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.exception.ServiceBusyException;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.service.AdmissionLimiter;
+import com.obsidian.reportgeneratorbackend.service.BatchReportService;
+import com.obsidian.reportgeneratorbackend.service.ReportGenerationService;
+import com.obsidian.reportgeneratorbackend.service.ReportProgressListener;
+import com.obsidian.reportgeneratorbackend.service.ReportResultCache;
+import com.obsidian.reportgeneratorbackend.service.StreamingReportRequest;
+import com.obsidian.reportgeneratorbackend.service.TemplateRegistry;
+import com.obsidian.reportgeneratorbackend.service.TemplateSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * 控制器在开始写响应之前的错误路径（400 / 429）、准入额度的归还，以及结果缓存命中的响应。
+ */
+class ReportControllerTest {
+
+    private static final String VALID_REQUEST = "{\"exportMode\":\"single-sheet\",\"mappingRules\":{},\"logData\":[]}";
+
+    private final ReportGenerationService reportService = mock(ReportGenerationService.class);
+    private final TemplateRegistry templateRegistry = mock(TemplateRegistry.class);
+    private final AdmissionLimiter admission = mock(AdmissionLimiter.class);
+    private final ReportResultCache resultCache = mock(ReportResultCache.class);
+    private final TemplateSnapshot template = mock(TemplateSnapshot.class);
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReportController controller = new ReportController(reportService, mock(BatchReportService.class),
+                templateRegistry, admission, resultCache, new ObjectMapper(), new ReportProperties());
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ReportExceptionHandler())
+                .build();
+        when(templateRegistry.resolve(any(), eq("t1"))).thenReturn(template);
+    }
+
+    @Test
+    void rejectsMalformedRequestWith400() throws Exception {
+        mvc.perform(generate("{\"exportMode\": x}"))
+                .andExpect(status().isBadRequest());
+        verify(admission, never()).admit(anyLong());
+    }
+
+    @Test
+    void rejectsInvalidMappingWith400() throws Exception {
+        doThrow(new IllegalArgumentException("映射规则无效")).when(reportService).validate(any(StreamingReportRequest.class));
+
+        mvc.perform(generate(VALID_REQUEST))
+                .andExpect(status().isBadRequest());
+        verify(admission, never()).admit(anyLong());
+    }
+
+    @Test
+    void rejectsBusyServiceWith429AndRetryAfter() throws Exception {
+        when(admission.estimate(any(), any(), anyLong(), anyInt())).thenReturn(1024L);
+        when(admission.admit(1024L)).thenThrow(new ServiceBusyException("繁忙", 7));
+
+        mvc.perform(generate(VALID_REQUEST))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+        verify(reportService, never()).generateReport(any(StreamingReportRequest.class), any(), any(), any());
+    }
+
+    @Test
+    void releasesTicketAfterStreamingTheReport() throws Exception {
+        AdmissionLimiter.Ticket ticket = mock(AdmissionLimiter.Ticket.class);
+        when(admission.admit(anyLong())).thenReturn(ticket);
+
+        MvcResult result = mvc.perform(generate(VALID_REQUEST))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        verify(reportService).generateReport(any(StreamingReportRequest.class), eq(template), any(),
+                eq(ReportProgressListener.NONE));
+        verify(ticket).close();
+    }
+
+    @Test
+    void releasesTicketWhenSetupFailsAfterAdmission() throws Exception {
+        AdmissionLimiter.Ticket ticket = mock(AdmissionLimiter.Ticket.class);
+        when(admission.admit(anyLong())).thenReturn(ticket);
+        // 缺少 ZIP 配置时生成响应头失败，此时已经拿到准入额度
+        ReportProperties properties = new ReportProperties();
+        properties.setZip(null);
+        MockMvc failing = MockMvcBuilders.standaloneSetup(new ReportController(reportService,
+                        mock(BatchReportService.class), templateRegistry, admission, resultCache, new ObjectMapper(),
+                        properties))
+                .setControllerAdvice(new ReportExceptionHandler())
+                .build();
+
+        failing.perform(generate("{\"exportMode\":\"zip-files\",\"mappingRules\":{},\"logData\":[]}"))
+                .andExpect(status().isBadRequest());
+        verify(ticket).close();
+    }
+
+    @Test
+    void keepsExportModeHeaders() throws Exception {
+        when(admission.admit(anyLong())).thenReturn(mock(AdmissionLimiter.Ticket.class));
+
+        mvc.perform(generate("{\"exportMode\":\"zip-files\",\"mappingRules\":{},\"logData\":[]}"))
+                .andExpect(header().exists(ReportResponses.ZIP_COMPRESSION_HEADER));
+        verify(admission).estimate(eq(ExportMode.ZIP_FILES), eq(template), anyLong(), eq(0));
+    }
+
+    @Test
+    void servesCachedResultWith200EvenIfNoneMatch() throws Exception {
+        byte[] cachedBytes = "缓存的报告".getBytes(StandardCharsets.UTF_8);
+        ReportResultCache.CachedResult hit = mock(ReportResultCache.CachedResult.class);
+        when(hit.getSize()).thenReturn((long) cachedBytes.length);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(cachedBytes);
+            return null;
+        }).when(hit).transferTo(any());
+        when(resultCache.isEnabled()).thenReturn(true);
+        when(resultCache.key(any(), any(), eq(template))).thenReturn("abc");
+        when(resultCache.get("abc")).thenReturn(hit);
+
+        // POST 不是条件请求：即使 ETag 匹配也返回 200 和文件，而不是 304
+        MvcResult result = mvc.perform(generate(VALID_REQUEST).header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(content().bytes(cachedBytes));
+
+        verify(admission, never()).admit(anyLong());
+        verify(reportService, never()).generateReport(any(StreamingReportRequest.class), any(), any(), any());
+        verify(hit).close();
+    }
+
+    private static MockHttpServletRequestBuilder generate(String json) {
+        MockPart part = new MockPart("request", "request.json", json.getBytes(StandardCharsets.UTF_8));
+        part.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return multipart("/api/reports/generate").part(part).param("templateId", "t1");
+    }
+}
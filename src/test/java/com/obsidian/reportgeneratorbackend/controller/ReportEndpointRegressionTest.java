@@ -0,0 +1,207 @@
+package com.obsidian.reportgeneratorbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import com.obsidian.reportgeneratorbackend.service.ReportTestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * 描述: REST 接口的端到端回归测试：启动完整的应用上下文，经 /api/reports 的各个接口生成所有导出模式的报告，
+ *       与关闭所有并行路径、直接调用 ReportGenerationService 的结果逐工作表比较。
+ */
+@SpringBootTest(properties = {
+        // 固定工作线程数，单核机器上也走并行路径
+        "report.worker.parallelism=4",
+        "report.single-sheet.streaming-threshold=" + ReportEndpointRegressionTest.STREAMING_THRESHOLD
+})
+@AutoConfigureMockMvc
+class ReportEndpointRegressionTest {
+
+    static final int STREAMING_THRESHOLD = 100;
+
+    /*
+     * 单表模式走 SXSSF 流式输出；多工作表和 ZIP 模式各有 80 个 SN。
+     */
+    private static final int RECORD_COUNT = 240;
+    private static final int RECORDS_PER_SN = 3;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String templateId;
+
+    @BeforeEach
+    void uploadTemplate() throws Exception {
+        MockMultipartFile template = new MockMultipartFile("template", "template.xlsx",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, ReportTestFixtures.template());
+        String response = mvc.perform(multipart("/api/reports/templates").file(template))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        templateId = objectMapper.readTree(response).get("templateId").asText();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExportMode.class)
+    void generateMatchesSerialGeneration(ExportMode exportMode) throws Exception {
+        ReportGenerationRequest request = ReportTestFixtures.request(exportMode,
+                ReportTestFixtures.records(RECORD_COUNT, RECORDS_PER_SN));
+
+        byte[] output = stream(multipart("/api/reports/generate")
+                .part(jsonPart("request", request))
+                .param("templateId", templateId));
+
+        Map<String, List<String>> expected = ReportTestFixtures.describeReport(serial(request), exportMode);
+        assertEquals(exportMode == ExportMode.SINGLE_SHEET ? 1 : RECORD_COUNT / RECORDS_PER_SN, expected.size());
+        assertEquals(expected, ReportTestFixtures.describeReport(output, exportMode));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExportMode.class)
+    void tabularMatchesSerialGeneration(ExportMode exportMode) throws Exception {
+        List<LogRecord> records = ReportTestFixtures.records(RECORD_COUNT, RECORDS_PER_SN);
+        ReportGenerationRequest request = ReportTestFixtures.request(exportMode, records);
+        ReportGenerationRequest header = ReportTestFixtures.request(exportMode, null);
+        MockPart logData = new MockPart("logData", "logData.csv", csv(records).getBytes(StandardCharsets.UTF_8));
+        logData.getHeaders().setContentType(MediaType.valueOf("text/csv"));
+
+        byte[] output = stream(multipart("/api/reports/generate/tabular")
+                .part(jsonPart("request", header), logData)
+                .param("templateId", templateId));
+
+        assertEquals(ReportTestFixtures.describeReport(serial(request), exportMode),
+                ReportTestFixtures.describeReport(output, exportMode));
+    }
+
+    @Test
+    void batchMatchesSerialGeneration() throws Exception {
+        List<ReportGenerationRequest> requests = new ArrayList<>();
+        for (ExportMode exportMode : ExportMode.values()) {
+            requests.add(ReportTestFixtures.request(exportMode, ReportTestFixtures.records(30, RECORDS_PER_SN)));
+        }
+
+        byte[] output = stream(multipart("/api/reports/batch")
+                .part(jsonPart("requests", requests))
+                .param("templateId", templateId));
+
+        Map<String, byte[]> entries = unzip(output);
+        List<String> expectedNames = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ExportMode exportMode = requests.get(i).getExportMode();
+            String name = String.format("%03d_%s%s", i + 1, exportMode.name().toLowerCase(Locale.ROOT),
+                    exportMode == ExportMode.ZIP_FILES ? ".zip" : ".xlsx");
+            expectedNames.add(name);
+            assertEquals(ReportTestFixtures.describeReport(serial(requests.get(i)), exportMode),
+                    ReportTestFixtures.describeReport(entries.get(name), exportMode), name);
+        }
+        expectedNames.add("batch-summary.json");
+        assertEquals(expectedNames, new ArrayList<>(entries.keySet()));
+    }
+
+    @Test
+    void rejectsInvalidRequestsBeforeStreaming() throws Exception {
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.ZIP_FILES,
+                ReportTestFixtures.records(3, 1));
+
+        mvc.perform(multipart("/api/reports/generate")
+                        .part(jsonPart("request", request))
+                        .param("templateId", "unknown"))
+                .andExpect(status().isNotFound());
+
+        MockPart malformed = new MockPart("request", "request.json", "{\"exportMode\": x".getBytes(StandardCharsets.UTF_8));
+        malformed.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        mvc.perform(multipart("/api/reports/generate").part(malformed).param("templateId", templateId))
+                .andExpect(status().isBadRequest());
+    }
+
+    /*
+     * 关闭 ZIP 并行生成和多工作表并行渲染，作为对照的串行结果。
+     */
+    private static byte[] serial(ReportGenerationRequest request) throws IOException {
+        ReportProperties properties = new ReportProperties();
+        properties.getZip().setParallelEnabled(false);
+        properties.getMultiSheet().setParallelFillEnabled(false);
+        properties.getSingleSheet().setStreamingThreshold(STREAMING_THRESHOLD);
+        return ReportTestFixtures.generate(ReportTestFixtures.service(properties), request);
+    }
+
+    /*
+     * 执行返回 StreamingResponseBody 的请求，等待异步写出完成后返回响应体。
+     */
+    private byte[] stream(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private MockPart jsonPart(String name, Object value) throws IOException {
+        MockPart part = new MockPart(name, name + ".json", objectMapper.writeValueAsBytes(value));
+        part.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return part;
+    }
+
+    /*
+     * 表头为 SN 和各测试项名称；测试数据中每条记录的测试项顺序相同。
+     */
+    private static String csv(List<LogRecord> records) {
+        StringBuilder csv = new StringBuilder("SN");
+        for (DetailedItem item : records.get(0).getDetailedItems()) {
+            csv.append(',').append(item.getItemName());
+        }
+        for (LogRecord record : records) {
+            csv.append('\n').append(record.getSn());
+            for (DetailedItem item : record.getDetailedItems()) {
+                csv.append(',').append(item.getActualValue());
+            }
+        }
+        return csv.append('\n').toString();
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zipBytes) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
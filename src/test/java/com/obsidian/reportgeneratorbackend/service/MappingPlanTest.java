@@ -0,0 +1,177 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SourceRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.CURRENT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.RESULT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MappingPlanTest {
+
+    @Test
+    void compilesAddressesAndSkipsInvalidOnes() {
+        Map<String, SingleCellMapping> rules = new LinkedHashMap<>(ReportTestFixtures.mappingRules());
+        rules.put("abc", ReportTestFixtures.mapping(ReportTestFixtures.source(VOLTAGE, null, null)));
+        rules.put("1_x", ReportTestFixtures.mapping(ReportTestFixtures.source(VOLTAGE, null, null)));
+        rules.put("1_2_3", ReportTestFixtures.mapping(ReportTestFixtures.source(VOLTAGE, null, null)));
+        rules.put("7_0", null);
+
+        MappingPlan plan = MappingPlan.compile(rules);
+
+        // 5 条有效规则 + 没有源的 7_0；无效地址被跳过
+        assertEquals(6, plan.getTargets().size());
+        MappingPlan.CellTarget first = plan.getTargets().get(0);
+        assertEquals(0, first.getRow());
+        assertEquals(1, first.getCol());
+        assertEquals(0, plan.getTargets().get(5).getSources().length);
+    }
+
+    @Test
+    void sharesOneSlotPerSourceKey() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+
+        // SN、电压、电流、结果各一个槽位，4_1 复用电压和电流的槽位
+        assertEquals(4, plan.getSlotCount());
+        assertEquals(4, plan.getMappedSlotCount());
+        MappingPlan.CompiledSource[] dualSources = plan.getTargets().get(4).getSources();
+        assertEquals(plan.slotOf(VOLTAGE), dualSources[0].getSlot());
+        assertEquals(plan.slotOf(CURRENT), dualSources[1].getSlot());
+        // SN 映射键单独处理，不在源键表中
+        assertEquals(-1, plan.slotOf(MappingPlan.SN_MAPPING_KEY));
+        assertEquals(-1, plan.slotOf((String) null));
+    }
+
+    @Test
+    void appendsExtraSourceKeysAfterMappedSlots() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(),
+                List.of(VOLTAGE, "温度", MappingPlan.SN_MAPPING_KEY, "温度"));
+
+        assertEquals(4, plan.getMappedSlotCount());
+        assertEquals(5, plan.getSlotCount());
+        assertEquals(4, plan.slotOf("温度"));
+    }
+
+    @Test
+    void findsSlotsByCharacterRange() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(), List.of("温度"));
+
+        for (String key : new String[]{VOLTAGE, CURRENT, RESULT, "温度", "其他", "", "电"}) {
+            char[] chars = ("[" + key + "]").toCharArray();
+            assertEquals(plan.slotOf(key), plan.slotOf(chars, 1, key.length()), key);
+        }
+    }
+
+    @Test
+    void resolvesFirstValuePerSlot() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+        LogRecord record = ReportTestFixtures.record("SN1",
+                VOLTAGE, "3.3", "其他", "x", VOLTAGE, "9.9", CURRENT, null, CURRENT, "12");
+        record.getDetailedItems().add(null);
+
+        String[] slots = plan.resolve(record);
+        assertEquals("3.3", slots[plan.slotOf(VOLTAGE)]);
+        assertEquals("12", slots[plan.slotOf(CURRENT)]);
+        assertNull(slots[plan.slotOf(RESULT)]);
+        assertEquals("SN1", plan.renderCell(plan.getTargets().get(0), slots));
+
+        // 合并同一个 SN 的下一条记录：已有值的槽位保持不变
+        plan.resolveInto(slots, ReportTestFixtures.record("SN1", VOLTAGE, "1.0", RESULT, "PASS"));
+        assertEquals("3.3", slots[plan.slotOf(VOLTAGE)]);
+        assertEquals("PASS", slots[plan.slotOf(RESULT)]);
+    }
+
+    @Test
+    void rendersCellsLikeTheOriginalLookup() {
+        Map<String, SingleCellMapping> rules = ReportTestFixtures.mappingRules();
+        MappingPlan plan = MappingPlan.compile(rules);
+        List<String> addresses = new ArrayList<>(rules.keySet());
+        Random random = new Random(5);
+        String[] values = {"3.14159", "PASS", "-0.005", "1.5E3", "N/A", "", "12"};
+        String[] names = {VOLTAGE, CURRENT, RESULT, "其他"};
+
+        for (int n = 0; n < 500; n++) {
+            List<String> itemsAndValues = new ArrayList<>();
+            int itemCount = random.nextInt(6);
+            for (int i = 0; i < itemCount; i++) {
+                itemsAndValues.add(names[random.nextInt(names.length)]);
+                itemsAndValues.add(values[random.nextInt(values.length)]);
+            }
+            LogRecord record = ReportTestFixtures.record(random.nextBoolean() ? "SN" + n : null,
+                    itemsAndValues.toArray(new String[0]));
+
+            String[] slots = plan.resolve(record);
+            for (int t = 0; t < addresses.size(); t++) {
+                assertEquals(reference(rules.get(addresses.get(t)), record),
+                        plan.renderCell(plan.getTargets().get(t), slots));
+            }
+        }
+    }
+
+    @Test
+    void rendersNumbersOnlyForSingleSourcesWithDecimals() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+        String[] slots = plan.resolve(ReportTestFixtures.record("SN1", VOLTAGE, "3.14159", CURRENT, "12",
+                RESULT, "PASS"));
+        List<MappingPlan.CellTarget> targets = plan.getTargets();
+
+        assertEquals(3.14, plan.renderNumber(targets.get(1), slots));
+        assertEquals("0.00\"V\"", targets.get(1).getNumericFormat());
+        // 未指定小数位数、多源、或不是数字时按文本写入
+        assertNull(plan.renderNumber(targets.get(2), slots));
+        assertNull(plan.renderNumber(targets.get(4), slots));
+        assertNull(targets.get(4).getNumericFormat());
+        assertEquals("3.1/12mA", plan.renderCell(targets.get(4), slots));
+
+        String[] textSlots = plan.resolve(ReportTestFixtures.record("SN1", VOLTAGE, "N/A"));
+        assertNull(plan.renderNumber(targets.get(1), textSlots));
+        assertEquals("N/AV", plan.renderCell(targets.get(1), textSlots));
+    }
+
+    @Test
+    void resolvesRecordsWithoutItems() {
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+        LogRecord record = new LogRecord();
+        record.setSn("SN1");
+
+        String[] slots = plan.resolve(record);
+        assertArrayEquals(new String[]{"SN1", null, null, null}, slots);
+        assertNull(plan.renderCell(plan.getTargets().get(1), slots));
+    }
+
+    /*
+     * 编译映射计划之前的实现：每个源在 detailedItems 中线性查找第一个同名测试项，格式化后用 "/" 连接。
+     */
+    private static String reference(SingleCellMapping cellMapping, LogRecord record) {
+        List<String> formattedValues = new ArrayList<>();
+        for (SourceRule sourceRule : cellMapping.getSources()) {
+            String rawValue = null;
+            if (MappingPlan.SN_MAPPING_KEY.equals(sourceRule.getSourceKey())) {
+                rawValue = record.getSn();
+            } else {
+                for (DetailedItem item : record.getDetailedItems()) {
+                    if (sourceRule.getSourceKey().equals(item.getItemName())) {
+                        rawValue = item.getActualValue();
+                        break;
+                    }
+                }
+            }
+            if (rawValue != null) {
+                formattedValues.add(ValueFormatter.format(rawValue, sourceRule.getDecimals(), sourceRule.getUnit()));
+            }
+        }
+        return formattedValues.isEmpty() ? null : String.join("/", formattedValues);
+    }
+}
@@ -0,0 +1,195 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedTaskPipelineTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deliversResultsInSubmissionOrder() throws IOException {
+        Random random = new Random(1);
+        List<Integer> delays = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            delays.add(random.nextInt(3));
+        }
+        int[] nextIndex = {0};
+        OrderedTaskPipeline.TaskSource<Integer> tasks = () -> {
+            if (nextIndex[0] >= delays.size()) {
+                return null;
+            }
+            int index = nextIndex[0]++;
+            return () -> {
+                Thread.sleep(delays.get(index));
+                return index;
+            };
+        };
+
+        List<Integer> results = new ArrayList<>();
+        new OrderedTaskPipeline<Integer>(executor, 8, Long.MAX_VALUE, result -> 1).run(tasks, 1, results::add);
+
+        assertEquals(delays.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i));
+        }
+    }
+
+    @Test
+    void limitsTasksInFlight() throws IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> list = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            list.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return 0;
+            });
+        }
+
+        new OrderedTaskPipeline<Integer>(executor, 2, Long.MAX_VALUE, result -> 1)
+                .run(source(list), 1, result -> { });
+        assertTrue(maxRunning.get() <= 2);
+
+        // 预算小于单个结果：每次只提交队首任务，但不会死锁
+        maxRunning.set(0);
+        new OrderedTaskPipeline<Integer>(executor, 8, 10, result -> 100)
+                .run(source(list), 100, result -> { });
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void waitsForRunningTasksWhenATaskFails() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        IOException failure = new IOException("失败");
+        List<Callable<Integer>> list = new ArrayList<>();
+        list.add(() -> {
+            started.incrementAndGet();
+            slowStarted.await();
+            throw failure;
+        });
+        for (int i = 0; i < 20; i++) {
+            list.add(() -> {
+                started.incrementAndGet();
+                running.incrementAndGet();
+                slowStarted.countDown();
+                sleepIgnoringInterrupts(200);
+                running.decrementAndGet();
+                return 1;
+            });
+        }
+
+        // 2 个工作线程，4 个在途任务：失败时另有 2 个任务还在队列中
+        ExecutorService twoThreads = Executors.newFixedThreadPool(2);
+        try {
+            IOException thrown = assertThrows(IOException.class, () -> new OrderedTaskPipeline<Integer>(
+                    twoThreads, 4, Long.MAX_VALUE, result -> 1).run(source(list), 1, result -> { }));
+            assertSame(failure, thrown);
+            // 返回时正在执行的任务已经结束，不会继续使用调用方即将关闭的资源
+            assertEquals(0, running.get());
+        } finally {
+            twoThreads.shutdown();
+            assertTrue(twoThreads.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        // 尚未开始的任务被放弃；失败任务的线程可能在放弃之前取走一个排队的任务
+        assertTrue(started.get() <= 3, "started=" + started.get());
+    }
+
+    @Test
+    void waitsForRunningTasksWhenTheSinkFails() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        List<Callable<Integer>> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int index = i;
+            list.add(() -> {
+                running.incrementAndGet();
+                try {
+                    if (index > 0) {
+                        sleepIgnoringInterrupts(50);
+                    }
+                    return index;
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+
+        assertThrows(IllegalStateException.class, () -> new OrderedTaskPipeline<Integer>(
+                executor, 8, Long.MAX_VALUE, result -> 1).run(source(list), 1, result -> {
+                    throw new IllegalStateException("写入失败");
+                }));
+        assertEquals(0, running.get());
+    }
+
+    @Test
+    void unwrapsTaskExceptions() {
+        IOException cause = new IOException("io");
+        assertSame(cause, assertThrows(IOException.class, () -> runSingle(() -> {
+            throw new UncheckedIOException(cause);
+        })));
+        IllegalArgumentException invalid = new IllegalArgumentException("无效");
+        assertSame(invalid, assertThrows(IllegalArgumentException.class, () -> runSingle(() -> {
+            throw invalid;
+        })));
+        IOException wrapped = assertThrows(IOException.class, () -> runSingle(() -> {
+            throw new Exception("checked");
+        }));
+        assertEquals("checked", wrapped.getCause().getMessage());
+    }
+
+    private void runSingle(Callable<Integer> task) throws IOException {
+        new OrderedTaskPipeline<Integer>(executor, 1, Long.MAX_VALUE, result -> 1)
+                .run(source(List.of(task)), 1, result -> { });
+    }
+
+    private static <R> OrderedTaskPipeline.TaskSource<R> source(List<Callable<R>> list) {
+        int[] nextIndex = {0};
+        return () -> nextIndex[0] < list.size() ? list.get(nextIndex[0]++) : null;
+    }
+
+    /*
+     * 模拟不响应中断的工作（如 POI 序列化）。
+     */
+    private static void sleepIgnoringInterrupts(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        boolean interrupted = false;
+        for (long remaining = millis; remaining > 0;
+             remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+            try {
+                Thread.sleep(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
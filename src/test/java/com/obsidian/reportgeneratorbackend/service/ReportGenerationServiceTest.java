@@ -0,0 +1,96 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 单表模式的记录数上限：每条记录占用一列，不能超过 Excel 的最后一列。
+ */
+class ReportGenerationServiceTest {
+
+    /*
+     * 目标列为 16380 时，第 0 ~ 3 条记录写入 16380 ~ 16383 列。
+     */
+    private static final int LAST_COLUMNS_START = SpreadsheetVersion.EXCEL2007.getLastColumnIndex() - 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReportGenerationService service = ReportTestFixtures.service(new ReportProperties());
+
+    @Test
+    void computesRecordLimitFromRightmostTarget() {
+        assertEquals(SpreadsheetVersion.EXCEL2007.getMaxColumns() - 1,
+                ReportGenerationService.maxSingleSheetRecords(MappingPlan.compile(ReportTestFixtures.mappingRules())));
+        assertEquals(4, ReportGenerationService.maxSingleSheetRecords(MappingPlan.compile(lastColumnsRules())));
+        assertEquals(Integer.MAX_VALUE, ReportGenerationService.maxSingleSheetRecords(MappingPlan.compile(Map.of())));
+    }
+
+    @Test
+    void fillsUpToTheLastColumn() throws IOException {
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.SINGLE_SHEET,
+                ReportTestFixtures.records(4, 1));
+        request.setMappingRules(lastColumnsRules());
+
+        byte[] output = ReportTestFixtures.generate(service, request);
+
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(output)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals("SN0000", ReportTestFixtures.text(sheet, 0, LAST_COLUMNS_START));
+            assertEquals("SN0003", ReportTestFixtures.text(sheet, 0, SpreadsheetVersion.EXCEL2007.getLastColumnIndex()));
+        }
+    }
+
+    @Test
+    void rejectsKnownRecordCountBeforeReading() throws IOException {
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.SINGLE_SHEET,
+                ReportTestFixtures.records(5, 1));
+        request.setMappingRules(lastColumnsRules());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.generateReport(
+                request, TemplateSnapshot.parse(ReportTestFixtures.template()), out));
+        assertTrue(e.getMessage().contains("最多支持 4 条记录"), e.getMessage());
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void stopsReadingStreamedRecordsAtTheLimit() throws IOException {
+        // 第 5 条记录之后是无效的 JSON：读完所有记录才失败时会得到解析错误
+        StringBuilder json = new StringBuilder("{\"exportMode\":\"single-sheet\",\"mappingRules\":")
+                .append(objectMapper.writeValueAsString(lastColumnsRules()))
+                .append(",\"logData\":[");
+        for (int i = 0; i < 5; i++) {
+            json.append("{\"sn\":\"SN").append(i).append("\",\"detailedItems\":[]},");
+        }
+        json.append("x");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json.toString()),
+                objectMapper)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.generateReport(
+                    request, TemplateSnapshot.parse(ReportTestFixtures.template()), out, ReportProgressListener.NONE));
+            assertTrue(e.getMessage().contains("最多支持 4 条记录"), e.getMessage());
+        }
+        assertEquals(0, out.size());
+    }
+
+    private static Map<String, SingleCellMapping> lastColumnsRules() {
+        return Map.of("0_" + LAST_COLUMNS_START,
+                ReportTestFixtures.mapping(ReportTestFixtures.source(MappingPlan.SN_MAPPING_KEY, null, null)));
+    }
+}
@@ -0,0 +1,159 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportResultCacheTest {
+
+    @TempDir
+    Path diskDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void clearsOnlyItsOwnFilesOnStartup() throws IOException {
+        Path results = Files.createDirectories(diskDir.resolve(ReportResultCache.DISK_SUBDIR));
+        Path operatorFile = Files.writeString(diskDir.resolve("keep.result"), "x");
+        Path otherFile = Files.writeString(results.resolve("notes.txt"), "x");
+        Path staleResult = Files.writeString(results.resolve("abc.result"), "x");
+        Path staleTemp = Files.writeString(results.resolve("def.part"), "x");
+        Path nested = Files.createDirectories(results.resolve("nested.result"));
+
+        newCache(1024 * 1024);
+
+        // disk-dir 本身的文件和子目录中不是缓存命名的文件都保留
+        assertTrue(Files.exists(operatorFile));
+        assertTrue(Files.exists(otherFile));
+        assertTrue(Files.exists(nested));
+        assertFalse(Files.exists(staleResult));
+        assertFalse(Files.exists(staleTemp));
+    }
+
+    @Test
+    void servesCommittedResultsFromBothTiers() throws IOException {
+        ReportResultCache cache = newCache(1024 * 1024);
+        byte[] small = "小结果".getBytes(StandardCharsets.UTF_8);
+        byte[] large = new byte[64 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+
+        assertArrayEquals(small, store(cache, "small", small));
+        assertArrayEquals(small, read(cache, "small"));
+        // 超过 memory-max-entry-bytes 的结果只在磁盘层
+        assertArrayEquals(large, store(cache, "large", large));
+        assertArrayEquals(large, read(cache, "large"));
+        assertEquals(2, countFiles(".result"));
+        assertEquals(0, countFiles(".part"));
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    void discardsUncommittedCaptures() throws IOException {
+        ReportResultCache cache = newCache(1024 * 1024);
+
+        try (ReportResultCache.Capture capture = cache.capture("k")) {
+            capture.wrap(OutputStream.nullOutputStream()).write(new byte[100]);
+        }
+
+        assertNull(cache.get("k"));
+        assertEquals(0, countFiles(""));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedDiskResults() throws IOException {
+        ReportResultCache cache = newCache(3 * 10_000);
+        byte[] data = new byte[10_000];
+        store(cache, "a", data);
+        store(cache, "b", data);
+        store(cache, "c", data);
+        // 访问 a 之后，b 成为最久未使用的条目
+        try (ReportResultCache.CachedResult hit = cache.get("a")) {
+            assertNotNull(hit);
+        }
+        store(cache, "d", data);
+
+        assertNull(cache.get("b"));
+        assertNotNull(read(cache, "a"));
+        assertEquals(3, countFiles(".result"));
+    }
+
+    @Test
+    void keyIgnoresFormattingButNotContent() throws IOException {
+        TemplateSnapshot template = TemplateSnapshot.parse(ReportTestFixtures.template());
+        ReportResultCache cache = newCache(0);
+
+        String base = key(cache, template, "{\"exportMode\":\"zip-files\",\"mappingRules\":{\"0_1\":{\"sources\":"
+                + "[{\"sourceKey\":\"a\"}]}},\"logData\":[{\"sn\":\"SN1\",\"detailedItems\":[]}]}");
+        // 字段位置和空白不同
+        assertEquals(base, key(cache, template, "{ \"logData\" : [ { \"sn\" : \"SN1\", \"detailedItems\" : [ ] } ],"
+                + " \"mappingRules\" : {\"0_1\":{\"sources\":[{\"sourceKey\":\"a\"}]}}, \"exportMode\" : \"zip-files\" }"));
+        assertNotEquals(base, key(cache, template, "{\"exportMode\":\"zip-files\",\"mappingRules\":{\"0_1\":{\"sources\":"
+                + "[{\"sourceKey\":\"a\"}]}},\"logData\":[{\"sn\":\"SN2\",\"detailedItems\":[]}]}"));
+        assertNotEquals(base, key(cache, template, "{\"exportMode\":\"single-sheet\",\"mappingRules\":{\"0_1\":{\"sources\":"
+                + "[{\"sourceKey\":\"a\"}]}},\"logData\":[{\"sn\":\"SN1\",\"detailedItems\":[]}]}"));
+    }
+
+    private ReportResultCache newCache(long diskMaxBytes) throws IOException {
+        ReportProperties properties = new ReportProperties();
+        ReportProperties.ResultCache config = properties.getResultCache();
+        config.setEnabled(true);
+        config.setMemoryMaxEntryBytes(1024);
+        config.setDiskMaxBytes(diskMaxBytes);
+        config.setDiskDir(diskDir.toString());
+        return new ReportResultCache(properties, objectMapper, new SimpleMeterRegistry());
+    }
+
+    private String key(ReportResultCache cache, TemplateSnapshot template, String json) throws IOException {
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            return cache.key(ReportTestFixtures.body(json), request, template);
+        }
+    }
+
+    /*
+     * 通过 Capture 写入并登记结果，返回调用方收到的输出。
+     */
+    private static byte[] store(ReportResultCache cache, String key, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportResultCache.Capture capture = cache.capture(key)) {
+            capture.wrap(out).write(data);
+            capture.commit();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] read(ReportResultCache cache, String key) throws IOException {
+        try (ReportResultCache.CachedResult hit = cache.get(key)) {
+            assertNotNull(hit);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            hit.transferTo(out);
+            assertEquals(hit.getSize(), out.size());
+            return out.toByteArray();
+        }
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(diskDir.resolve(ReportResultCache.DISK_SUBDIR))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+}
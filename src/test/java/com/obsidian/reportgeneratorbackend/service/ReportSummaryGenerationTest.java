@@ -0,0 +1,116 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.RESULT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+ * 汇总表的端到端测试：请求按 ReportGenerationRequest 序列化后以流方式读取，与控制器的路径相同。
+ */
+class ReportSummaryGenerationTest {
+
+    private static final String UNMAPPED = "绝缘电阻";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @EnumSource(ExportMode.class)
+    void writesSummaryForSerializedRequest(ExportMode exportMode) throws IOException {
+        ReportGenerationRequest dto = ReportTestFixtures.request(exportMode, ReportTestFixtures.records(10, 2));
+        // 未被映射引用的测试项也可以统计
+        dto.getLogData().forEach(record -> record.getDetailedItems().add(
+                ReportTestFixtures.record(null, UNMAPPED, "500").getDetailedItems().get(0)));
+        SummaryMapping summary = new SummaryMapping();
+        summary.setItems(List.of(VOLTAGE, RESULT, UNMAPPED));
+        dto.setSummary(summary);
+
+        byte[] output = generateStreaming(dto);
+
+        if (exportMode == ExportMode.ZIP_FILES) {
+            List<String> names = new ArrayList<>();
+            byte[] summaryEntry = null;
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output))) {
+                for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    names.add(entry.getName());
+                    if (entry.getName().equals("Summary.xlsx")) {
+                        summaryEntry = IOUtils.toByteArray(zip);
+                    }
+                }
+            }
+            // 5 个 SN 的报告 + 最后的汇总条目
+            assertEquals(6, names.size());
+            assertEquals("Summary.xlsx", names.get(names.size() - 1));
+            assertNotNull(summaryEntry);
+            try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(summaryEntry)) {
+                assertSummary(workbook.getSheet("Summary"));
+            }
+            return;
+        }
+
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(output)) {
+            Sheet sheet = workbook.getSheetAt(workbook.getNumberOfSheets() - 1);
+            assertEquals("Summary", sheet.getSheetName());
+            assertSummary(sheet);
+        }
+    }
+
+    @Test
+    void rejectsSummaryAfterLogDataBeforeWritingOutput() throws IOException {
+        String json = "{\"exportMode\":\"multi-sheet\",\"mappingRules\":{},"
+                + "\"logData\":[{\"sn\":\"SN1\"}],\"summary\":{\"items\":[\"电压\"]}}";
+        ReportGenerationService service = ReportTestFixtures.service(new ReportProperties());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            assertThrows(IllegalArgumentException.class, () -> service.generateReport(request,
+                    TemplateSnapshot.parse(ReportTestFixtures.template()), out, ReportProgressListener.NONE));
+        }
+        assertEquals(0, out.size());
+    }
+
+    private static void assertSummary(Sheet sheet) {
+        assertNotNull(sheet);
+        assertEquals("测试项", ReportTestFixtures.text(sheet, 0, 0));
+        assertEquals(VOLTAGE, ReportTestFixtures.text(sheet, 1, 0));
+        assertEquals("10", ReportTestFixtures.text(sheet, 1, 1));
+        assertEquals(RESULT, ReportTestFixtures.text(sheet, 2, 0));
+        // 10 条记录中有 2 条 FAIL
+        assertEquals("8", ReportTestFixtures.text(sheet, 2, 7));
+        assertEquals("80.00%", ReportTestFixtures.text(sheet, 2, 8));
+        assertEquals(UNMAPPED, ReportTestFixtures.text(sheet, 3, 0));
+        assertEquals("500", ReportTestFixtures.text(sheet, 3, 5));
+    }
+
+    private byte[] generateStreaming(ReportGenerationRequest dto) throws IOException {
+        ReportGenerationService service = ReportTestFixtures.service(new ReportProperties());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamingReportRequest request = StreamingReportRequest.open(
+                ReportTestFixtures.json(objectMapper, dto), objectMapper)) {
+            service.generateReport(request, TemplateSnapshot.parse(ReportTestFixtures.template()), out,
+                    ReportProgressListener.NONE);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,241 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.dto.SourceRule;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/*
+ * 描述: 单元测试共用的小模板、映射规则和日志数据。
+ *       映射：0_1 为 SN，1_1 为"电压"（2 位小数，单位 V），2_1 为"电流"，3_1 为"结果"，4_1 为"电压"/"电流"双源。
+ *       controller 包的端到端测试也会用到，因此生成和比较报告的入口是公开的。
+ */
+public final class ReportTestFixtures {
+
+    static final String VOLTAGE = "电压";
+    static final String CURRENT = "电流";
+    static final String RESULT = "结果";
+
+    /*
+     * 并行路径使用的工作线程池，所有测试共用，守护线程不阻止 JVM 退出。
+     */
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "report-test-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final DataFormatter FORMATTER = new DataFormatter();
+
+    private ReportTestFixtures() {
+    }
+
+    /*
+     * 一个带标题、合并区域、样式和列宽的单工作表模板。
+     */
+    public static byte[] template() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet("Template");
+            CellStyle titleStyle = workbook.createCellStyle();
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            titleStyle.setFont(bold);
+
+            Row title = sheet.createRow(0);
+            Cell titleCell = title.createCell(0);
+            titleCell.setCellValue("测试报告");
+            titleCell.setCellStyle(titleStyle);
+            String[] labels = {VOLTAGE, CURRENT, RESULT, "汇总"};
+            for (int i = 0; i < labels.length; i++) {
+                sheet.createRow(i + 1).createCell(0).setCellValue(labels[i]);
+            }
+            sheet.createRow(6).createCell(0).setCellValue("备注");
+            sheet.addMergedRegion(new CellRangeAddress(6, 6, 0, 2));
+            sheet.setColumnWidth(0, 4000);
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    static Map<String, SingleCellMapping> mappingRules() {
+        Map<String, SingleCellMapping> rules = new LinkedHashMap<>();
+        rules.put("0_1", mapping(source(MappingPlan.SN_MAPPING_KEY, null, null)));
+        rules.put("1_1", mapping(source(VOLTAGE, 2, "V")));
+        rules.put("2_1", mapping(source(CURRENT, null, null)));
+        rules.put("3_1", mapping(source(RESULT, null, null)));
+        rules.put("4_1", mapping(source(VOLTAGE, 1, null), source(CURRENT, null, "mA")));
+        return rules;
+    }
+
+    static SingleCellMapping mapping(SourceRule... sources) {
+        SingleCellMapping mapping = new SingleCellMapping();
+        mapping.setSources(List.of(sources));
+        return mapping;
+    }
+
+    static SourceRule source(String sourceKey, Integer decimals, String unit) {
+        SourceRule rule = new SourceRule();
+        rule.setSourceKey(sourceKey);
+        rule.setDecimals(decimals);
+        rule.setUnit(unit);
+        return rule;
+    }
+
+    /*
+     * @param itemsAndValues 依次为测试项名称和值
+     */
+    static LogRecord record(String sn, String... itemsAndValues) {
+        LogRecord record = new LogRecord();
+        record.setSn(sn);
+        List<DetailedItem> items = new ArrayList<>();
+        for (int i = 0; i + 1 < itemsAndValues.length; i += 2) {
+            DetailedItem item = new DetailedItem();
+            item.setItemName(itemsAndValues[i]);
+            item.setActualValue(itemsAndValues[i + 1]);
+            items.add(item);
+        }
+        record.setDetailedItems(items);
+        return record;
+    }
+
+    /*
+     * 确定性生成的记录：每 recordsPerSn 条记录共用一个 SN，每 5 条中有 1 条不通过。
+     */
+    public static List<LogRecord> records(int count, int recordsPerSn) {
+        List<LogRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(record(String.format("SN%04d", i / recordsPerSn),
+                    VOLTAGE, String.valueOf(3.3 + i % 7 * 0.013),
+                    CURRENT, String.valueOf(100 + i % 11),
+                    RESULT, i % 5 == 4 ? "FAIL" : "PASS"));
+        }
+        return records;
+    }
+
+    public static ReportGenerationRequest request(ExportMode exportMode, List<LogRecord> records) {
+        ReportGenerationRequest request = new ReportGenerationRequest();
+        request.setExportMode(exportMode);
+        request.setMappingRules(mappingRules());
+        request.setLogData(records);
+        return request;
+    }
+
+    public static ReportGenerationService service(ReportProperties properties) {
+        return new ReportGenerationService(properties, WORKERS, ReportMetrics.standalone());
+    }
+
+    static ExecutorService workers() {
+        return WORKERS;
+    }
+
+    public static byte[] generate(ReportGenerationService service, ReportGenerationRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.generateReport(request, TemplateSnapshot.parse(template()), out);
+        return out.toByteArray();
+    }
+
+    /*
+     * 把 DTO 按 Jackson 默认的字段顺序序列化，作为可以重复打开的请求体。
+     */
+    static InputStreamSource json(ObjectMapper objectMapper, Object value) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(value);
+        return () -> new ByteArrayInputStream(bytes);
+    }
+
+    static InputStreamSource body(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return () -> new ByteArrayInputStream(bytes);
+    }
+
+    /*
+     * 报告内容的描述，用于比较两次生成的结果（不涉及文档属性中的时间戳等）：
+     * ZIP 模式为 "条目名!工作表名" -> 工作表内容，其他模式为 工作表名 -> 工作表内容。
+     */
+    public static Map<String, List<String>> describeReport(byte[] output, ExportMode exportMode) throws IOException {
+        Map<String, List<String>> description = new LinkedHashMap<>();
+        if (exportMode != ExportMode.ZIP_FILES) {
+            describeWorkbook("", output, description);
+            return description;
+        }
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                describeWorkbook(entry.getName() + "!", zip.readAllBytes(), description);
+            }
+        }
+        return description;
+    }
+
+    private static void describeWorkbook(String prefix, byte[] bytes, Map<String, List<String>> description)
+            throws IOException {
+        try (XSSFWorkbook workbook = readWorkbook(bytes)) {
+            for (Sheet sheet : workbook) {
+                description.put(prefix + sheet.getSheetName(), describe(sheet));
+            }
+        }
+    }
+
+    /*
+     * 每个非空单元格的类型、显示文本、数字格式和字体加粗，以及合并区域和第一列的列宽。
+     */
+    static List<String> describe(Sheet sheet) {
+        Map<String, String> cells = new TreeMap<>();
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                String text = text(sheet, cell.getRowIndex(), cell.getColumnIndex());
+                if (text.isEmpty()) {
+                    continue;
+                }
+                cells.put(String.format("%03d_%05d", cell.getRowIndex(), cell.getColumnIndex()),
+                        cell.getCellType() + " " + text + " " + cell.getCellStyle().getDataFormatString()
+                                + " bold=" + sheet.getWorkbook().getFontAt(cell.getCellStyle().getFontIndex()).getBold());
+            }
+        }
+        List<String> description = new ArrayList<>();
+        cells.forEach((address, cell) -> description.add(address + " " + cell));
+        sheet.getMergedRegions().forEach(region -> description.add("merged " + region.formatAsString()));
+        description.add("width " + sheet.getColumnWidth(0));
+        return description;
+    }
+
+    static XSSFWorkbook readWorkbook(byte[] bytes) throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(bytes));
+    }
+
+    /*
+     * 单元格的显示文本，不存在的单元格为 ""。
+     */
+    static String text(Sheet sheet, int row, int col) {
+        Row r = sheet.getRow(row);
+        Cell cell = r == null ? null : r.getCell(col);
+        return cell == null ? "" : FORMATTER.formatCellValue(cell);
+    }
+}
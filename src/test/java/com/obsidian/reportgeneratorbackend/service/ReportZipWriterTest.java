@@ -0,0 +1,70 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReportZipWriterTest {
+
+    @Test
+    void renamesDuplicateEntries() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportZipWriter zip = new ReportZipWriter(out, new ReportProperties().getZip());
+        // STORED（预先准备）和 deflate（流式）两种写入方式共用同一组名称
+        zip.write("SN1.xlsx", bytes("a"));
+        zip.write(zip.prepare("SN1.xlsx", bytes("b")));
+        zip.write("sn1.XLSX", entryOut -> entryOut.write(bytes("c")));
+        zip.write("notes", entryOut -> entryOut.write(bytes("d")));
+        zip.write("notes", bytes("e"));
+        zip.finish();
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        assertEquals(List.of("SN1.xlsx", "SN1_2.xlsx", "sn1_3.XLSX", "notes", "notes_2"),
+                new ArrayList<>(entries.keySet()));
+        assertEquals(List.of("a", "b", "c", "d", "e"), new ArrayList<>(entries.values()));
+    }
+
+    @Test
+    void keepsSnsThatSanitizeToTheSameNameAndSummary() throws IOException {
+        List<LogRecord> records = List.of(
+                ReportTestFixtures.record("A/1", ReportTestFixtures.VOLTAGE, "1"),
+                ReportTestFixtures.record("A:1", ReportTestFixtures.VOLTAGE, "2"),
+                ReportTestFixtures.record("Summary", ReportTestFixtures.VOLTAGE, "3"));
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.ZIP_FILES, records);
+        request.setSummary(SummaryStatisticsTest.summary(ReportTestFixtures.VOLTAGE));
+
+        byte[] output = ReportTestFixtures.generate(ReportTestFixtures.service(new ReportProperties()), request);
+
+        assertEquals(List.of("A_1.xlsx", "A_1_2.xlsx", "Summary.xlsx", "Summary_2.xlsx"),
+                new ArrayList<>(unzip(output).keySet()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> unzip(byte[] zipBytes) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
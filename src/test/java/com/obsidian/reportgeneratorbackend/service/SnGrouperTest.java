@@ -0,0 +1,181 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnGrouperTest {
+
+    /*
+     * 足够大的预算：不会溢出。
+     */
+    private static final long NO_SPILL = Long.MAX_VALUE;
+
+    /*
+     * 每条记录加入后都会溢出。
+     */
+    private static final long SPILL_EVERY_RECORD = 1;
+
+    @TempDir
+    Path spillDir;
+
+    private final MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+
+    @Test
+    void spilledGroupingMatchesInMemoryGrouping() throws IOException {
+        List<ResolvedRecord> records = randomRecords(new Random(11), 500, 40);
+
+        List<String> expected = group(records, NO_SPILL, SnGrouper.DEFAULT_MAX_MERGE_FAN_IN, 0);
+        // 记录数远多于最大路数：先逐层归并再做最终归并
+        assertEquals(expected, group(records, SPILL_EVERY_RECORD, 3, records.size()));
+        assertEquals(expected, group(records, SPILL_EVERY_RECORD, 2, records.size()));
+        assertEquals(expected, group(records, SPILL_EVERY_RECORD, SnGrouper.DEFAULT_MAX_MERGE_FAN_IN, records.size()));
+        // 只溢出一部分，其余分组留在内存中
+        assertEquals(expected, group(records, 4096, 4, -1));
+    }
+
+    @Test
+    void firstValueWinsAcrossSegments() throws IOException {
+        int voltage = plan.slotOf(ReportTestFixtures.VOLTAGE);
+        int current = plan.slotOf(ReportTestFixtures.CURRENT);
+        int result = plan.slotOf(ReportTestFixtures.RESULT);
+
+        try (SnGrouper grouper = new SnGrouper(plan, SPILL_EVERY_RECORD, spillDir, 2)) {
+            grouper.add(record("SN1", voltage, "1.0"));
+            grouper.add(record("SN2", voltage, "9.9"));
+            grouper.add(record("SN1", voltage, "2.0", current, "10"));
+            grouper.add(record("SN1", current, "20", result, "PASS"));
+            assertEquals(4, grouper.getSpillCount());
+            assertEquals(-1, grouper.size());
+
+            SnGrouper.SnGroup first = grouper.nextGroup();
+            assertEquals("SN1", first.getSn());
+            assertEquals("1.0", first.getSlotValues()[voltage]);
+            assertEquals("10", first.getSlotValues()[current]);
+            assertEquals("PASS", first.getSlotValues()[result]);
+
+            SnGrouper.SnGroup second = grouper.nextGroup();
+            assertEquals("SN2", second.getSn());
+            assertNull(second.getSlotValues()[current]);
+            assertNull(grouper.nextGroup());
+        }
+    }
+
+    @Test
+    void ignoresRecordsWithoutSn() throws IOException {
+        try (SnGrouper grouper = new SnGrouper(plan, NO_SPILL, spillDir)) {
+            grouper.add(new ResolvedRecord(null, new String[plan.getSlotCount()]));
+            grouper.add(new ResolvedRecord("", new String[plan.getSlotCount()]));
+            grouper.add(new ResolvedRecord("SN1", new String[plan.getSlotCount()]));
+            assertEquals(1, grouper.size());
+            assertEquals(0, grouper.getSpillCount());
+        }
+    }
+
+    @Test
+    void deletesSpillFilesOnClose() throws IOException {
+        SnGrouper grouper = new SnGrouper(plan, SPILL_EVERY_RECORD, spillDir, 3);
+        for (ResolvedRecord record : randomRecords(new Random(3), 20, 5)) {
+            grouper.add(record);
+        }
+        assertTrue(countFiles() > 0);
+
+        // 读取到一半时关闭，段文件仍处于打开状态
+        assertNotNull(grouper.nextGroup());
+        grouper.close();
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void deletesSpillFilesWithoutReading() throws IOException {
+        SnGrouper grouper = new SnGrouper(plan, SPILL_EVERY_RECORD, spillDir);
+        grouper.add(record("SN1", plan.slotOf(ReportTestFixtures.VOLTAGE), "1"));
+        grouper.add(record("SN2", plan.slotOf(ReportTestFixtures.VOLTAGE), "2"));
+        assertEquals(2, countFiles());
+
+        grouper.close();
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void rejectsFanInBelowTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new SnGrouper(plan, NO_SPILL, spillDir, 1));
+    }
+
+    /*
+     * 分组并把结果展开为 "SN=[值...]" 的列表，便于整体比较。
+     * @param expectedSpills 期望的溢出次数，-1 表示只要求至少溢出一次
+     */
+    private List<String> group(List<ResolvedRecord> records, long budget, int fanIn, int expectedSpills)
+            throws IOException {
+        List<String> groups = new ArrayList<>();
+        try (SnGrouper grouper = new SnGrouper(plan, budget, spillDir, fanIn)) {
+            for (ResolvedRecord record : records) {
+                // 分组器可能直接保留加入的数组，每次传入副本
+                grouper.add(new ResolvedRecord(record.getSn(), record.getSlotValues().clone()));
+            }
+            if (expectedSpills >= 0) {
+                assertEquals(expectedSpills, grouper.getSpillCount());
+            } else {
+                assertTrue(grouper.getSpillCount() > 0);
+            }
+            for (SnGrouper.SnGroup group = grouper.nextGroup(); group != null; group = grouper.nextGroup()) {
+                groups.add(group.getSn() + "=" + Arrays.toString(group.getSlotValues()));
+            }
+        }
+        assertEquals(0, countFiles());
+        return groups;
+    }
+
+    /*
+     * 随机记录：SN 取自 snCount 个值并大量重复，每个槽位约一半为空，以覆盖先出现的值优先的合并。
+     */
+    private List<ResolvedRecord> randomRecords(Random random, int count, int snCount) {
+        List<ResolvedRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] slotValues = new String[plan.getSlotCount()];
+            for (int slot = 0; slot < slotValues.length; slot++) {
+                if (random.nextBoolean()) {
+                    slotValues[slot] = "v" + i + "_" + slot;
+                }
+            }
+            records.add(new ResolvedRecord("SN" + random.nextInt(snCount), slotValues));
+        }
+        return records;
+    }
+
+    /*
+     * @param slotsAndValues 依次为槽位和值
+     */
+    private ResolvedRecord record(String sn, Object... slotsAndValues) {
+        String[] slotValues = new String[plan.getSlotCount()];
+        for (int i = 0; i + 1 < slotsAndValues.length; i += 2) {
+            slotValues[(Integer) slotsAndValues[i]] = (String) slotsAndValues[i + 1];
+        }
+        return new ResolvedRecord(sn, slotValues);
+    }
+
+    private long countFiles() throws IOException {
+        if (!Files.exists(spillDir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.CURRENT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingReportRequestTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsSummaryFromSerializedRequest() throws IOException {
+        ReportGenerationRequest dto = ReportTestFixtures.request(ExportMode.SINGLE_SHEET,
+                ReportTestFixtures.records(5, 1));
+        SummaryMapping summary = new SummaryMapping();
+        summary.setItems(List.of(VOLTAGE));
+        dto.setSummary(summary);
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(
+                ReportTestFixtures.json(objectMapper, dto), objectMapper)) {
+            assertEquals(ExportMode.SINGLE_SHEET, request.getExportMode());
+            assertNotNull(request.getSummary());
+            assertEquals(List.of(VOLTAGE), request.getSummary().getItems());
+            assertEquals(5, drain(request).size());
+        }
+    }
+
+    @Test
+    void resolvesRecordsLikeTheDto() throws IOException {
+        List<LogRecord> records = List.of(
+                ReportTestFixtures.record("SN1", VOLTAGE, "3.30", CURRENT, "12", VOLTAGE, "9.99"),
+                ReportTestFixtures.record("SN2", "其他", "x", CURRENT, null, CURRENT, "7"));
+        ReportGenerationRequest dto = ReportTestFixtures.request(ExportMode.ZIP_FILES, records);
+        MappingPlan plan = MappingPlan.compile(dto.getMappingRules());
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(
+                ReportTestFixtures.json(objectMapper, dto), objectMapper)) {
+            for (LogRecord expected : records) {
+                ResolvedRecord actual = request.nextResolved(plan);
+                assertEquals(expected.getSn(), actual.getSn());
+                assertArrayEquals(plan.resolve(expected), actual.getSlotValues());
+            }
+            assertNull(request.nextResolved(plan));
+        }
+    }
+
+    @Test
+    void rejectsSummaryAfterLogData() throws IOException {
+        String json = "{\"exportMode\":\"single-sheet\",\"mappingRules\":{},"
+                + "\"logData\":[{\"sn\":\"SN1\",\"detailedItems\":[]}],"
+                + "\"summary\":{\"items\":[\"电压\"]}}";
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            assertNull(request.getSummary());
+            assertNotNull(request.nextResolved(plan));
+            assertThrows(IllegalArgumentException.class, () -> request.nextResolved(plan));
+        }
+    }
+
+    @Test
+    void acceptsNullSummaryAfterLogData() throws IOException {
+        String json = "{\"exportMode\":\"single-sheet\",\"mappingRules\":{},"
+                + "\"logData\":[{\"sn\":\"SN1\"}],\"summary\":null}";
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            assertEquals(1, drain(request).size());
+            assertNull(request.getSummary());
+        }
+    }
+
+    @Test
+    void readsTrailingHeaderWhenLogDataComesFirst() throws IOException {
+        String json = "{\"logData\":[{\"sn\":\"SN1\"},{\"sn\":\"SN2\"}],"
+                + "\"summary\":{\"items\":[\"电压\"]},\"exportMode\":\"zip-files\",\"mappingRules\":{}}";
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            assertEquals(ExportMode.ZIP_FILES, request.getExportMode());
+            assertNotNull(request.getSummary());
+            assertEquals(2, drain(request).size());
+        }
+    }
+
+    @Test
+    void skipLogDataReadsTrailingSummary() throws IOException {
+        String json = "{\"exportMode\":\"single-sheet\",\"mappingRules\":{},"
+                + "\"logData\":[{\"sn\":\"SN1\"}],\"summary\":{\"items\":[\"电压\"]}}";
+
+        try (StreamingReportRequest request = StreamingReportRequest.open(ReportTestFixtures.body(json), objectMapper)) {
+            request.skipLogData();
+            assertNotNull(request.getSummary());
+            assertNull(request.next());
+        }
+    }
+
+    @Test
+    void rejectsMalformedJsonAsInvalidRequest() {
+        assertThrows(IllegalArgumentException.class, () -> StreamingReportRequest.open(
+                ReportTestFixtures.body("{\"exportMode\": x}"), objectMapper));
+    }
+
+    private static List<LogRecord> drain(StreamingReportRequest request) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        for (LogRecord record = request.next(); record != null; record = request.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+}
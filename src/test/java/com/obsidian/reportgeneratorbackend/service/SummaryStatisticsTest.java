@@ -0,0 +1,175 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.dto.SummaryMapping;
+import com.obsidian.reportgeneratorbackend.model.SummaryColumn;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.CURRENT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.RESULT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryStatisticsTest {
+
+    private static final String TEMPERATURE = "温度";
+
+    @Test
+    void matchesTwoPassStatistics() {
+        SummaryMapping mapping = summary(VOLTAGE);
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(), mapping.getItems());
+        SummaryStatistics statistics = SummaryStatistics.create(mapping, plan);
+        int slot = plan.slotOf(VOLTAGE);
+
+        // 大的公共偏移量：朴素的平方和公式在这里会损失全部有效数字
+        Random random = new Random(7);
+        double[] values = new double[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.parseDouble(String.format("%.6f", 1e9 + random.nextGaussian()));
+            String[] slots = new String[plan.getSlotCount()];
+            slots[slot] = Double.toString(values[i]);
+            statistics.accept(slots);
+        }
+
+        // 参照值用 BigDecimal 精确计算：double 的朴素求和本身就有约 1e-6 的误差
+        BigDecimal sum = BigDecimal.ZERO;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double value : values) {
+            sum = sum.add(new BigDecimal(value));
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        BigDecimal mean = sum.divide(BigDecimal.valueOf(values.length), MathContext.DECIMAL128);
+        BigDecimal squares = BigDecimal.ZERO;
+        for (double value : values) {
+            BigDecimal deviation = new BigDecimal(value).subtract(mean);
+            squares = squares.add(deviation.multiply(deviation));
+        }
+        double stddev = squares.divide(BigDecimal.valueOf(values.length - 1), MathContext.DECIMAL128)
+                .sqrt(MathContext.DECIMAL128).doubleValue();
+
+        assertEquals(values.length, statistics.valueOf(0, SummaryColumn.COUNT));
+        assertEquals(values.length, statistics.valueOf(0, SummaryColumn.NUMERIC_COUNT));
+        assertEquals(min, statistics.valueOf(0, SummaryColumn.MIN));
+        assertEquals(max, statistics.valueOf(0, SummaryColumn.MAX));
+        // 按相对误差比较：在线更新的平均值在 1e9 附近有若干 ulp 的舍入误差；
+        // 1e9 附近 double 的间距约 1.2e-7，标准差的精度不会高于这个量级
+        assertEquals(mean.doubleValue(), statistics.valueOf(0, SummaryColumn.MEAN), mean.doubleValue() * 1e-14);
+        assertEquals(stddev, statistics.valueOf(0, SummaryColumn.STDDEV), stddev * 1e-7);
+    }
+
+    @Test
+    void countsTextAndPassValues() {
+        SummaryMapping mapping = summary(RESULT, TEMPERATURE);
+        mapping.setPassValues(List.of("pass", "OK"));
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(), mapping.getItems());
+        SummaryStatistics statistics = SummaryStatistics.create(mapping, plan);
+
+        String[] values = {"PASS", "fail", "ok", "", null, "1.5E1", "N/A"};
+        for (String value : values) {
+            String[] slots = new String[plan.getSlotCount()];
+            slots[plan.slotOf(RESULT)] = value;
+            statistics.accept(slots);
+        }
+
+        // 空值和缺失值都不计入
+        assertEquals(5, statistics.valueOf(0, SummaryColumn.COUNT));
+        assertEquals(2, statistics.valueOf(0, SummaryColumn.PASS_COUNT));
+        assertEquals(0.4, statistics.valueOf(0, SummaryColumn.PASS_RATE), 1e-12);
+        assertEquals(1, statistics.valueOf(0, SummaryColumn.NUMERIC_COUNT));
+        assertEquals(15.0, statistics.valueOf(0, SummaryColumn.MEAN));
+        // 只有一个数值时没有样本标准差
+        assertTrue(Double.isNaN(statistics.valueOf(0, SummaryColumn.STDDEV)));
+
+        // 没有任何值的测试项
+        assertEquals(0, statistics.valueOf(1, SummaryColumn.COUNT));
+        assertTrue(Double.isNaN(statistics.valueOf(1, SummaryColumn.MIN)));
+        assertTrue(Double.isNaN(statistics.valueOf(1, SummaryColumn.PASS_RATE)));
+    }
+
+    @Test
+    void clearsSummaryOnlySlotsAfterAccumulating() {
+        SummaryMapping mapping = summary(VOLTAGE, TEMPERATURE);
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(), mapping.getItems());
+        SummaryStatistics statistics = SummaryStatistics.create(mapping, plan);
+
+        String[] slots = new String[plan.getSlotCount()];
+        slots[plan.slotOf(VOLTAGE)] = "3.3";
+        slots[plan.slotOf(TEMPERATURE)] = "25";
+        statistics.accept(slots);
+
+        // 被映射引用的值保留，只被汇总引用的值在累加后清除
+        assertEquals("3.3", slots[plan.slotOf(VOLTAGE)]);
+        assertTrue(plan.slotOf(TEMPERATURE) >= plan.getMappedSlotCount());
+        assertNull(slots[plan.slotOf(TEMPERATURE)]);
+        assertEquals(25.0, statistics.valueOf(1, SummaryColumn.MEAN));
+    }
+
+    @Test
+    void writesLayoutAtOriginWithUniqueSheetName() throws IOException {
+        SummaryMapping mapping = summary(VOLTAGE, CURRENT);
+        mapping.setOrigin("2_1");
+        mapping.setColumns(List.of(SummaryColumn.ITEM, SummaryColumn.COUNT, SummaryColumn.PASS_RATE));
+        mapping.setSheetName("Template");
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules(), mapping.getItems());
+        SummaryStatistics statistics = SummaryStatistics.create(mapping, plan);
+        String[] slots = new String[plan.getSlotCount()];
+        slots[plan.slotOf(VOLTAGE)] = "PASS";
+        statistics.accept(slots);
+
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(ReportTestFixtures.template())) {
+            int written = statistics.addTo(workbook);
+            Sheet sheet = workbook.getSheet("Template_2");
+            assertNotNull(sheet);
+            assertEquals(8, written);
+            assertEquals("测试项", ReportTestFixtures.text(sheet, 2, 1));
+            assertEquals("数量", ReportTestFixtures.text(sheet, 2, 2));
+            assertEquals("通过率", ReportTestFixtures.text(sheet, 2, 3));
+            assertEquals(VOLTAGE, ReportTestFixtures.text(sheet, 3, 1));
+            assertEquals("1", ReportTestFixtures.text(sheet, 3, 2));
+            assertEquals("100.00%", ReportTestFixtures.text(sheet, 3, 3));
+            assertEquals(CURRENT, ReportTestFixtures.text(sheet, 4, 1));
+            assertEquals("0", ReportTestFixtures.text(sheet, 4, 2));
+            assertEquals("", ReportTestFixtures.text(sheet, 4, 3));
+        }
+    }
+
+    @Test
+    void rejectsInvalidLayouts() {
+        assertThrows(IllegalArgumentException.class, () -> SummaryStatistics.validate(new SummaryMapping()));
+
+        SummaryMapping badOrigin = summary(VOLTAGE);
+        badOrigin.setOrigin("A1");
+        assertThrows(IllegalArgumentException.class, () -> SummaryStatistics.validate(badOrigin));
+
+        SummaryMapping blankName = summary(VOLTAGE);
+        blankName.setSheetName(" ");
+        assertThrows(IllegalArgumentException.class, () -> SummaryStatistics.validate(blankName));
+
+        SummaryMapping nullColumn = summary(VOLTAGE);
+        nullColumn.setColumns(Arrays.asList(SummaryColumn.ITEM, null));
+        assertThrows(IllegalArgumentException.class, () -> SummaryStatistics.validate(nullColumn));
+
+        assertNull(SummaryStatistics.create(null, MappingPlan.compile(Map.of())));
+    }
+
+    static SummaryMapping summary(String... items) {
+        SummaryMapping mapping = new SummaryMapping();
+        mapping.setItems(List.of(items));
+        return mapping;
+    }
+}
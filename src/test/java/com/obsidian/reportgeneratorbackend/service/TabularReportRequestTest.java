@@ -0,0 +1,191 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obsidian.reportgeneratorbackend.dto.DetailedItem;
+import com.obsidian.reportgeneratorbackend.dto.LogRecord;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.CURRENT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.RESULT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TabularReportRequestTest {
+
+    private static final String HEADER = "{\"exportMode\":\"zip-files\",\"mappingRules\":{}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parsesQuotedCsvFields() throws IOException {
+        String csv = "SN,电压,\"电流\",结果\n"
+                + "SN1,\"3,30\",\"a \"\"b\"\"\",\"多\n行\"\n"
+                + "\"SN,2\",,\"\",PASS\n";
+
+        try (TabularReportRequest request = open(csv)) {
+            assertFalse(request.isCompressed());
+            assertEquals(ExportMode.ZIP_FILES, request.getExportMode());
+
+            LogRecord first = request.next();
+            assertEquals("SN1", first.getSn());
+            assertItems(first, VOLTAGE, "3,30", CURRENT, "a \"b\"", RESULT, "多\n行");
+
+            // 空字段（包括 ""）表示没有这个测试项
+            LogRecord second = request.next();
+            assertEquals("SN,2", second.getSn());
+            assertItems(second, RESULT, "PASS");
+            assertNull(request.next());
+        }
+    }
+
+    @Test
+    void treatsQuotesLiterallyInTsv() throws IOException {
+        String tsv = "SN\t电压\t结果\r\n"
+                + "SN1\t\"3,30\"\tPASS\r\n";
+
+        try (TabularReportRequest request = open(tsv)) {
+            LogRecord record = request.next();
+            assertEquals("SN1", record.getSn());
+            assertItems(record, VOLTAGE, "\"3,30\"", RESULT, "PASS");
+            assertNull(request.next());
+        }
+    }
+
+    @Test
+    void skipsBomBlankLinesAndCrLf() throws IOException {
+        String csv = "\uFEFF\r\n\r\nSN,电压\r\nSN1,1.5\r\n\r\n\nSN2,2.5";
+
+        try (TabularReportRequest request = open(csv)) {
+            assertEquals("SN1", request.next().getSn());
+            LogRecord last = request.next();
+            assertEquals("SN2", last.getSn());
+            assertItems(last, VOLTAGE, "2.5");
+            assertNull(request.next());
+        }
+    }
+
+    @Test
+    void detectsGzipAutomatically() throws IOException {
+        String csv = "SN,电压\nSN1,1.5\nSN2,2.5\n";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(csv.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (TabularReportRequest request = TabularReportRequest.open(ReportTestFixtures.body(HEADER),
+                bytes(compressed.toByteArray()), objectMapper)) {
+            assertTrue(request.isCompressed());
+            assertEquals(100 * 4 * 5, request.estimatedJsonBytes(100));
+            assertEquals(2, drain(request).size());
+        }
+    }
+
+    @Test
+    void handlesShortLongAndDuplicateColumns() throws IOException {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+        String csv = "SN,电压,电压,,电流\n"
+                + "SN1,,2.0,x,3,多余的列\n"
+                + "SN2\n"
+                + "SN3,\"" + longValue + "\"\n";
+
+        try (TabularReportRequest request = open(csv)) {
+            // 同名的列先出现的非空值优先；表头为空的列和表头之外的列被忽略
+            assertItems(request.next(), VOLTAGE, "2.0", CURRENT, "3");
+            assertItems(request.next());
+            // 超过字段缓冲区和读缓冲区的字段
+            assertItems(request.next(), VOLTAGE, longValue.toString());
+            assertNull(request.next());
+        }
+    }
+
+    @Test
+    void resolvesLikeMappingPlan() throws IOException {
+        String csv = "SN,电压,其他,电压,电流,结果\n"
+                + "SN1,3.14159,x,9,,PASS\n"
+                + "SN2,,y,1.5,0.2,\n"
+                + ",1,2,3,4,5\n";
+        MappingPlan plan = MappingPlan.compile(ReportTestFixtures.mappingRules());
+
+        List<LogRecord> records;
+        try (TabularReportRequest request = open(csv)) {
+            records = drain(request);
+        }
+        try (TabularReportRequest request = open(csv)) {
+            for (LogRecord record : records) {
+                ResolvedRecord resolved = request.nextResolved(plan);
+                assertEquals(record.getSn(), resolved.getSn());
+                assertArrayEquals(plan.resolve(record), resolved.getSlotValues());
+            }
+            assertNull(request.nextResolved(plan));
+        }
+    }
+
+    @Test
+    void readsSummaryAfterLogDataInHeader() throws IOException {
+        String header = "{\"exportMode\":\"single-sheet\",\"mappingRules\":{},"
+                + "\"logData\":[{\"sn\":\"ignored\"}],\"summary\":{\"items\":[\"电压\"]}}";
+
+        try (TabularReportRequest request = TabularReportRequest.open(ReportTestFixtures.body(header),
+                ReportTestFixtures.body("SN,电压\nSN1,1\n"), objectMapper)) {
+            assertNotNull(request.getSummary());
+            assertEquals(List.of(VOLTAGE), request.getSummary().getItems());
+            assertEquals("SN1", request.next().getSn());
+        }
+    }
+
+    @Test
+    void rejectsMalformedData() {
+        assertThrows(IllegalArgumentException.class, () -> open(""));
+        assertThrows(IllegalArgumentException.class, () -> open("\n\r\n"));
+        assertThrows(IllegalArgumentException.class, () -> drain(open("SN,电压\nSN1,\"3.3\n")));
+        assertThrows(IllegalArgumentException.class, () -> drain(open("SN,电压\nSN1,\"3.3\"x\n")));
+    }
+
+    private TabularReportRequest open(String logData) throws IOException {
+        return TabularReportRequest.open(ReportTestFixtures.body(HEADER), ReportTestFixtures.body(logData),
+                objectMapper);
+    }
+
+    private static InputStreamSource bytes(byte[] value) {
+        return () -> new ByteArrayInputStream(value);
+    }
+
+    private static List<LogRecord> drain(TabularReportRequest request) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        for (LogRecord record = request.next(); record != null; record = request.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /*
+     * @param itemsAndValues 依次为期望的测试项名称和值
+     */
+    private static void assertItems(LogRecord record, String... itemsAndValues) {
+        List<String> actual = new ArrayList<>();
+        for (DetailedItem item : record.getDetailedItems()) {
+            actual.add(item.getItemName());
+            actual.add(item.getActualValue());
+        }
+        assertEquals(List.of(itemsAndValues), actual);
+    }
+}
@@ -0,0 +1,116 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataValidationHelper;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellRangeAddressList;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 包级克隆会删除模板工作表：引用工作表的模板必须改用逐单元格复制，不能在副本中留下 #REF!。
+ */
+class TemplateSheetClonerTest {
+
+    @Test
+    void supportsPlainTemplates() throws IOException {
+        assertTrue(TemplateSnapshot.parse(ReportTestFixtures.template()).isFirstSheetCloneable());
+        // 不含工作表名的公式不受影响
+        assertTrue(cloneable(workbook -> workbook.getSheetAt(0).createRow(9).createCell(0)
+                .setCellFormula("SUM(B2:B4)")));
+    }
+
+    @Test
+    void declinesTemplatesReferencingSheets() throws IOException {
+        assertFalse(cloneable(workbook -> workbook.getSheetAt(0).createRow(9).createCell(0)
+                .setCellFormula("Limits!A1*2")));
+        // 引用第一个工作表自身的公式同样会失效
+        assertFalse(cloneable(workbook -> workbook.getSheetAt(0).createRow(9).createCell(0)
+                .setCellFormula("Template!A1")));
+        assertFalse(cloneable(workbook -> {
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            DataValidationHelper helper = sheet.getDataValidationHelper();
+            sheet.addValidationData(helper.createValidation(helper.createFormulaListConstraint("Limits!$A$1:$A$3"),
+                    new CellRangeAddressList(1, 1, 1, 1)));
+        }));
+        assertFalse(cloneable(workbook -> {
+            SheetConditionalFormatting formatting = workbook.getSheetAt(0).getSheetConditionalFormatting();
+            formatting.addConditionalFormatting(new CellRangeAddress[]{CellRangeAddress.valueOf("B2")},
+                    formatting.createConditionalFormattingRule("B2>Limits!A1"));
+        }));
+    }
+
+    @Test
+    void declinesTemplatesWithDefinedNames() throws IOException {
+        assertFalse(cloneable(workbook -> {
+            Name name = workbook.createName();
+            name.setNameName("Limit");
+            name.setRefersToFormula("Limits!$A$1");
+        }));
+    }
+
+    @Test
+    void copiesSheetsReferencingRemovedTemplateSheets() throws IOException {
+        byte[] template = template(workbook -> {
+            Name name = workbook.createName();
+            name.setNameName("Limit");
+            name.setRefersToFormula("Limits!$A$1");
+            Row row = workbook.getSheetAt(0).createRow(9);
+            row.createCell(0).setCellFormula("Limits!A1*2");
+            row.createCell(1).setCellFormula("Limit+1");
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        });
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.MULTI_SHEET,
+                ReportTestFixtures.records(2, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportTestFixtures.service(new ReportProperties())
+                .generateReport(request, TemplateSnapshot.parse(template), out);
+
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(out.toByteArray())) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            for (Sheet sheet : workbook) {
+                // 输出中没有 Limits 工作表和 Limit 名称，公式退回到模板中的缓存结果，而不是 #REF!
+                Cell sheetReference = sheet.getRow(9).getCell(0);
+                assertEquals(CellType.NUMERIC, sheetReference.getCellType());
+                assertEquals(84.0, sheetReference.getNumericCellValue());
+                Cell nameReference = sheet.getRow(9).getCell(1);
+                assertEquals(CellType.NUMERIC, nameReference.getCellType());
+                assertEquals(43.0, nameReference.getNumericCellValue());
+            }
+        }
+    }
+
+    private static boolean cloneable(Consumer<XSSFWorkbook> customizer) throws IOException {
+        return TemplateSnapshot.parse(template(customizer)).isFirstSheetCloneable();
+    }
+
+    /*
+     * 在测试模板之后加一个 Limits 工作表（A1 = 42），再按需修改模板。
+     */
+    private static byte[] template(Consumer<XSSFWorkbook> customizer) throws IOException {
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(ReportTestFixtures.template());
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            workbook.createSheet("Limits").createRow(0).createCell(0).setCellValue(42);
+            customizer.accept(workbook);
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.dto.SingleCellMapping;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.CURRENT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.RESULT;
+import static com.obsidian.reportgeneratorbackend.service.ReportTestFixtures.VOLTAGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/*
+ * 补丁写出与 POI 加载工作簿的写出对照：两条路径生成的每个条目在单元格值、类型、数字格式和合并区域上应一致。
+ */
+class TemplateSheetPatcherTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void matchesPoiOutput(boolean numericEnabled) throws IOException {
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.ZIP_FILES,
+                ReportTestFixtures.records(12, 3));
+        request.setMappingRules(extendedRules());
+        byte[] template = ReportTestFixtures.template();
+
+        // 确认这组模板和映射确实走补丁路径
+        assertNotNull(TemplateSheetPatcher.create(TemplateSnapshot.parse(template),
+                MappingPlan.compile(request.getMappingRules()), numericEnabled));
+
+        assertEquals(describeZip(generate(request, template, false, numericEnabled)),
+                describeZip(generate(request, template, true, numericEnabled)));
+    }
+
+    @Test
+    void writesSingleWorkbookLikePoi() throws IOException {
+        MappingPlan plan = MappingPlan.compile(extendedRules());
+        TemplateSnapshot template = TemplateSnapshot.parse(ReportTestFixtures.template());
+        TemplateSheetPatcher patcher = TemplateSheetPatcher.create(template, plan, true);
+        assertNotNull(patcher);
+
+        String[] slots = plan.resolve(ReportTestFixtures.record("SN1", VOLTAGE, "3.14159", CURRENT, "N/A"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = patcher.write(slots, out);
+
+        // 0_1、1_1、2_1、4_1、1_5、9_3 有值；3_1、6_0 的源缺失
+        assertEquals(6, written);
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(out.toByteArray())) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals("SN1", ReportTestFixtures.text(sheet, 0, 1));
+            assertEquals("3.14V", ReportTestFixtures.text(sheet, 1, 1));
+            assertEquals("N/A", ReportTestFixtures.text(sheet, 2, 1));
+            assertEquals("SN1", ReportTestFixtures.text(sheet, 1, 5));
+            assertEquals("3.142", ReportTestFixtures.text(sheet, 9, 3));
+            // 模板原有的内容保留
+            assertEquals("测试报告", ReportTestFixtures.text(sheet, 0, 0));
+            assertEquals("备注", ReportTestFixtures.text(sheet, 6, 0));
+        }
+    }
+
+    @Test
+    void fallsBackForFormulaTargets() throws IOException {
+        byte[] template;
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(ReportTestFixtures.template());
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            workbook.getSheetAt(0).getRow(1).createCell(1).setCellFormula("1+1");
+            workbook.write(out);
+            template = out.toByteArray();
+        }
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.ZIP_FILES,
+                ReportTestFixtures.records(4, 2));
+
+        assertNull(TemplateSheetPatcher.create(TemplateSnapshot.parse(template),
+                MappingPlan.compile(request.getMappingRules()), true));
+        // 补丁不适用时自动改用 POI，结果与关闭补丁时相同
+        assertEquals(describeZip(generate(request, template, false, true)),
+                describeZip(generate(request, template, true, true)));
+    }
+
+    /*
+     * 在公共映射之外，加入模板中不存在的行和单元格（需要按行列顺序插入）以及覆盖模板原有单元格的目标。
+     */
+    private static Map<String, SingleCellMapping> extendedRules() {
+        Map<String, SingleCellMapping> rules = new LinkedHashMap<>(ReportTestFixtures.mappingRules());
+        rules.put("9_3", ReportTestFixtures.mapping(ReportTestFixtures.source(VOLTAGE, 3, null)));
+        rules.put("1_5", ReportTestFixtures.mapping(ReportTestFixtures.source(MappingPlan.SN_MAPPING_KEY, null, null)));
+        rules.put("6_0", ReportTestFixtures.mapping(ReportTestFixtures.source(RESULT, null, null)));
+        return rules;
+    }
+
+    private static byte[] generate(ReportGenerationRequest request, byte[] template, boolean patchEnabled,
+                                   boolean numericEnabled) throws IOException {
+        ReportProperties properties = new ReportProperties();
+        properties.getZip().setPatchEnabled(patchEnabled);
+        properties.getCellOutput().setNumericEnabled(numericEnabled);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportTestFixtures.service(properties).generateReport(request, TemplateSnapshot.parse(template), out);
+        return out.toByteArray();
+    }
+
+    private static Map<String, List<String>> describeZip(byte[] zipBytes) throws IOException {
+        return ReportTestFixtures.describeReport(zipBytes, ExportMode.ZIP_FILES);
+    }
+}
@@ -0,0 +1,76 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import com.obsidian.reportgeneratorbackend.config.ReportProperties;
+import com.obsidian.reportgeneratorbackend.dto.ReportGenerationRequest;
+import com.obsidian.reportgeneratorbackend.model.ExportMode;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 多工作表模式逐单元格复制时，样式取自模板快照缓存的样式表，而不是重新解析的模板工作簿。
+ */
+class TemplateStylesTest {
+
+    @Test
+    void clonesEachTemplateStyleOnce() throws IOException {
+        TemplateSnapshot template = TemplateSnapshot.parse(ReportTestFixtures.template());
+        int titleStyle;
+        try (XSSFWorkbook workbook = ReportTestFixtures.readWorkbook(template.getBytes())) {
+            titleStyle = workbook.getSheetAt(0).getRow(0).getCell(0).getCellStyle().getIndex();
+        }
+
+        try (XSSFWorkbook output = new XSSFWorkbook()) {
+            TemplateStyleMapper styleMapper = new TemplateStyleMapper(template.getStyles(), output);
+            CellStyle style = styleMapper.map(titleStyle);
+
+            assertTrue(output.getFontAt(style.getFontIndex()).getBold());
+            assertSame(style, styleMapper.map(titleStyle));
+            assertEquals(1, styleMapper.size());
+        }
+    }
+
+    @Test
+    void copiedSheetsMatchClonedSheetsWhenSharingOneSnapshot() throws Exception {
+        ReportGenerationRequest request = ReportTestFixtures.request(ExportMode.MULTI_SHEET,
+                ReportTestFixtures.records(12, 3));
+        ReportProperties properties = new ReportProperties();
+        properties.getMultiSheet().setPackageCloneEnabled(false);
+        ReportGenerationService copying = ReportTestFixtures.service(properties);
+        Map<String, List<String>> expected = ReportTestFixtures.describeReport(
+                ReportTestFixtures.generate(ReportTestFixtures.service(new ReportProperties()), request),
+                ExportMode.MULTI_SHEET);
+
+        // 多个请求同时从同一个快照的样式表克隆样式；请求使用单独的线程池，不占用生成过程的工作线程
+        TemplateSnapshot template = TemplateSnapshot.parse(ReportTestFixtures.template());
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> outputs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                outputs.add(requests.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    copying.generateReport(request, template, out);
+                    return out.toByteArray();
+                }));
+            }
+            for (Future<byte[]> output : outputs) {
+                assertEquals(expected, ReportTestFixtures.describeReport(output.get(), ExportMode.MULTI_SHEET));
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+}
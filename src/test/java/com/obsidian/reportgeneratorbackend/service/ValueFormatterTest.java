@@ -0,0 +1,139 @@
+package com.obsidian.reportgeneratorbackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 快速路径与原先 new BigDecimal(value).setScale(decimals, HALF_UP).toPlainString() 实现的对照。
+ */
+class ValueFormatterTest {
+
+    private static final Integer[] DECIMALS = {null, -1, 0, 1, 2, 3, 6};
+    private static final String[] UNITS = {null, "", " ", "V", "mA"};
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // 符号、前导零和省略的整数/小数部分
+            "0", "-0", "+0", "0.0", "-0.0", "-0.00", "00.50", ".5", "-.5", "+.5", "5.", "-5.", "+5", "0.", ".", "+", "-",
+            // 舍入进位
+            "1.005", "-1.005", "-0.004", "0.0049", "0.005", "9.995", "-9.995", "999.9999", "99", "-99.5",
+            // 超过 17 位有效数字
+            "12345678901234567890.123456789", "0.12345678901234567890", "-99999999999999999999.5", "-0.000000001",
+            // 指数形式
+            "1.5E3", "1e-2", "-2.5e+1", "9.995E0", "1E-10", "1e", "E5",
+            // 非法的数字形式
+            "1.2.3", "--1", "+-1", "1-2", "1+", "e", "0x10", "NaN", "Infinity",
+            // 文本和空白
+            "PASS", "N/A", "FAIL", " 1.5", "1.5 ", "1 5", "\t2", "", "   ",
+            // 非 ASCII 数字
+            "١٢٣", "１２.５", "-٠.٥"
+    })
+    void matchesBigDecimal(String value) {
+        for (Integer decimals : DECIMALS) {
+            for (String unit : UNITS) {
+                assertEquals(reference(value, decimals, unit), ValueFormatter.format(value, decimals, unit),
+                        () -> "value=" + value + ", decimals=" + decimals + ", unit=" + unit);
+            }
+        }
+    }
+
+    @Test
+    void matchesBigDecimalForRandomDecimals() {
+        Random random = new Random(42);
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder value = new StringBuilder();
+            int sign = random.nextInt(4);
+            if (sign == 0) {
+                value.append('-');
+            } else if (sign == 1) {
+                value.append('+');
+            }
+            // 偏向 9 以覆盖连续进位
+            int intDigits = random.nextInt(6);
+            for (int i = 0; i < intDigits; i++) {
+                value.append(random.nextInt(3) == 0 ? '9' : (char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                value.append('.');
+                int fracDigits = random.nextInt(8);
+                for (int i = 0; i < fracDigits; i++) {
+                    value.append(random.nextInt(3) == 0 ? '9' : (char) ('0' + random.nextInt(10)));
+                }
+            }
+            matchesBigDecimal(value.toString());
+        }
+    }
+
+    @Test
+    void cachesFormattedValuesPerInstance() {
+        ValueFormatter formatter = new ValueFormatter(2, "V");
+        String first = formatter.format("3.14159");
+        assertEquals("3.14V", first);
+        assertSame(first, formatter.format("3.14159"));
+        assertEquals("PASSV", formatter.format("PASS"));
+        assertEquals("", formatter.format(null));
+    }
+
+    @Test
+    void convertsToRoundedNumberOnlyWhenExact() {
+        ValueFormatter formatter = new ValueFormatter(2, "V");
+        assertEquals(3.14, formatter.toNumber("3.14159"));
+        assertEquals(-0.01, formatter.toNumber("-.005"));
+        assertEquals(1500.0, formatter.toNumber("1.5E3"));
+        assertNull(formatter.toNumber("PASS"));
+        assertNull(formatter.toNumber(null));
+        // 超过 double 能精确还原的位数时按文本写入
+        assertNull(formatter.toNumber("12345678901234567.5"));
+    }
+
+    @Test
+    void parsesNumbersLikeFormat() {
+        assertEquals(12.5, ValueFormatter.parseNumber("12.5"));
+        assertEquals(-0.5, ValueFormatter.parseNumber("-.5"));
+        assertEquals(0.025, ValueFormatter.parseNumber("2.5e-2"));
+        assertEquals(123.0, ValueFormatter.parseNumber("١٢٣"));
+        assertTrue(Double.isNaN(ValueFormatter.parseNumber("1.2.3")));
+        assertTrue(Double.isNaN(ValueFormatter.parseNumber(" 1.5")));
+        assertTrue(Double.isNaN(ValueFormatter.parseNumber("")));
+        assertTrue(Double.isNaN(ValueFormatter.parseNumber(null)));
+    }
+
+    @Test
+    void buildsMatchingDataFormat() {
+        assertEquals("0.00\"V\"", ValueFormatter.dataFormat(2, "V"));
+        assertEquals("0", ValueFormatter.dataFormat(0, " "));
+        assertNull(ValueFormatter.dataFormat(null, "V"));
+        assertNull(ValueFormatter.dataFormat(-1, null));
+        assertNull(ValueFormatter.dataFormat(1, "\"in\""));
+    }
+
+    /*
+     * 原先基于 BigDecimal 的实现，作为对照。
+     */
+    private static String reference(String actualValue, Integer decimals, String unit) {
+        if (actualValue == null || actualValue.trim().isEmpty()) {
+            return "";
+        }
+        boolean hasUnit = unit != null && !unit.trim().isEmpty();
+        try {
+            BigDecimal numberValue = new BigDecimal(actualValue);
+            if (decimals != null && decimals >= 0) {
+                numberValue = numberValue.setScale(decimals, RoundingMode.HALF_UP);
+            }
+            String formattedString = numberValue.toPlainString();
+            return hasUnit ? formattedString + unit : formattedString;
+        } catch (NumberFormatException e) {
+            return hasUnit ? actualValue + unit : actualValue;
+        }
+    }
+}